@@ -1,6 +1,8 @@
 package com.verzel.challenge;
 
 import com.verzel.challenge.dto.APIMessage;
+import com.verzel.challenge.resilience.BulkheadFullException;
+import com.verzel.challenge.service.InvalidCursorException;
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
@@ -53,6 +55,18 @@ public class GlobalExceptionHandler {
                 .body(new APIMessage<String>(HttpStatus.NOT_FOUND.value(),ex.getMessage()));
     }
 
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<APIMessage<String>> BulkheadFullExceptionHandler(BulkheadFullException ex){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new APIMessage<String>(HttpStatus.SERVICE_UNAVAILABLE.value(),ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<APIMessage<String>> InvalidCursorExceptionHandler(InvalidCursorException ex){
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new APIMessage<String>(HttpStatus.BAD_REQUEST.value(),ex.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<APIMessage<String>> defaultExceptionHandler(Exception ex){
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,37 @@
+package com.verzel.challenge.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Exige o header {@code X-Admin-Token} igual ao {@code admin.token} nas rotas {@code /admin/**}.
+ * Sem token configurado, as rotas ficam desligadas.
+ */
+public class AdminTokenInterceptor implements HandlerInterceptor {
+    static final String HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+
+    public AdminTokenInterceptor(String token) {
+        this.token = token == null ? new byte[0] : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String received = request.getHeader(HEADER);
+        if (token.length == 0) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return false;
+        }
+        if (received == null || !MessageDigest.isEqual(token, received.getBytes(StandardCharsets.UTF_8))) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return false;
+        }
+        return true;
+    }
+}
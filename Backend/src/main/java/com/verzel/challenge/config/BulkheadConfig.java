@@ -0,0 +1,46 @@
+package com.verzel.challenge.config;
+
+import com.verzel.challenge.resilience.Bulkhead;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Bulkheads por dependência externa. O limite do banco é o próprio pool do Hikari
+ * ({@code spring.datasource.hikari.maximum-pool-size} / {@code connection-timeout}).
+ * As permissões livres de cada um ficam na métrica {@code bulkhead.permits.available}.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    @Bean
+    public Bulkhead openAIBulkhead(@Value("${bulkhead.openai.max-concurrent}") int maxConcurrent,
+                                   @Value("${bulkhead.openai.max-wait-ms}") long maxWaitMs) {
+        return new Bulkhead("openai", maxConcurrent, Duration.ofMillis(maxWaitMs));
+    }
+
+    @Bean
+    public Bulkhead pipefyBulkhead(@Value("${bulkhead.pipefy.max-concurrent}") int maxConcurrent,
+                                   @Value("${bulkhead.pipefy.max-wait-ms}") long maxWaitMs) {
+        return new Bulkhead("pipefy", maxConcurrent, Duration.ofMillis(maxWaitMs));
+    }
+
+    @Bean
+    public Bulkhead calendlyBulkhead(@Value("${bulkhead.calendly.max-concurrent}") int maxConcurrent,
+                                     @Value("${bulkhead.calendly.max-wait-ms}") long maxWaitMs) {
+        return new Bulkhead("calendly", maxConcurrent, Duration.ofMillis(maxWaitMs));
+    }
+
+    @Bean
+    public MeterBinder bulkheadMetrics(List<Bulkhead> bulkheads) {
+        return registry -> bulkheads.forEach(bulkhead -> Gauge.builder("bulkhead.permits.available", bulkhead, Bulkhead::getAvailablePermits)
+                .description("Permissões livres do bulkhead")
+                .tag("name", bulkhead.getName())
+                .register(registry));
+    }
+}
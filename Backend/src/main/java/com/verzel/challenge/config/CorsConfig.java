@@ -1,5 +1,6 @@
 package com.verzel.challenge.config;
 
+import com.verzel.challenge.metrics.TurnTrace;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,6 +22,7 @@ public class CorsConfig {
                         .allowedOrigins(frontendUrl)
                         .allowedMethods("GET", "POST", "PUT", "DELETE")
                         .allowedHeaders("*")
+                        .exposedHeaders(TurnTrace.REQUEST_ID_HEADER, TurnTrace.SERVER_TIMING_HEADER)
                         .allowCredentials(true);
             }
         };
@@ -0,0 +1,40 @@
+package com.verzel.challenge.config;
+
+import com.verzel.challenge.jfr.PayloadSizeFilter;
+import com.verzel.challenge.jfr.RepositoryCallInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Liga os eventos customizados do JFR (pacote {@code jfr}) aos clientes HTTP e aos repositórios.
+ * Os eventos só custam algo enquanto uma gravação está ativa (ver {@code /admin/jfr}).
+ */
+@Configuration
+public class JfrConfig {
+
+    /**
+     * Aplicado ao {@code WebClient.Builder} do Spring, de onde saem os clientes da OpenAI, do Pipefy e do Calendly.
+     */
+    @Bean
+    public WebClientCustomizer payloadSizeWebClientCustomizer() {
+        return builder -> builder.filter(new PayloadSizeFilter());
+    }
+
+    @Bean
+    public static BeanPostProcessor repositoryCallEventPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(new RepositoryCallInterceptor(repositoryInformation.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
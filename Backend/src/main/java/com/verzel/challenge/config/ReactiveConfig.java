@@ -0,0 +1,21 @@
+package com.verzel.challenge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class ReactiveConfig {
+
+    /**
+     * Scheduler onde o modo reativo do chat executa as chamadas JPA (que continuam bloqueantes).
+     * O número de threads acompanha o pool do Hikari, então nenhuma thread fica esperando conexão
+     * e as threads do event loop nunca bloqueiam no banco.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler databaseScheduler(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        return Schedulers.newBoundedElastic(poolSize, 10_000, "chat-db");
+    }
+}
@@ -0,0 +1,45 @@
+package com.verzel.challenge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Schedulers dos jobs {@code @Scheduled}.
+ * <p>
+ * Os jobs que bloqueiam por muito tempo têm thread própria ({@code @Scheduled(scheduler = ...)}): o dispatcher do
+ * outbox do Pipefy (chamadas com timeout e novas tentativas), o dos webhooks do Calendly e a retenção das conversas
+ * (arquivo e {@code DETACH} de um mês inteiro). Assim um Pipefy fora do ar ou a retenção da madrugada não param o
+ * processamento dos webhooks. O {@code taskScheduler} fica com os jobs curtos (recargas e limpezas).
+ */
+@Configuration
+public class SchedulingConfig {
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${scheduling.pool-size}") int poolSize) {
+        return scheduler("scheduling-", poolSize);
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler pipefyOutboxScheduler() {
+        return scheduler("pipefy-outbox-", 1);
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler calendlyWebhookScheduler() {
+        return scheduler("calendly-webhook-poll-", 1);
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler chatRetentionScheduler() {
+        return scheduler("chat-retention-", 1);
+    }
+
+    private static ThreadPoolTaskScheduler scheduler(String threadNamePrefix, int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        return scheduler;
+    }
+}
@@ -0,0 +1,77 @@
+package com.verzel.challenge.controller;
+
+import com.verzel.challenge.dto.admin.RecordingStatusDTO;
+import com.verzel.challenge.dto.APIMessage;
+import com.verzel.challenge.dto.chat.HistoryPageDTO;
+import com.verzel.challenge.service.CalendlyWebhookService;
+import com.verzel.challenge.service.PipefyService;
+import com.verzel.challenge.service.ChatHistoryService;
+import com.verzel.challenge.service.FlightRecordingService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Endpoints internos do time (ex: vendas). Protegidos pelo {@code AdminTokenInterceptor}.
+ */
+@RestController()
+@RequestMapping("/admin")
+public class AdminController {
+    private final ChatHistoryService chatHistoryService;
+    private final FlightRecordingService flightRecordingService;
+    private final CalendlyWebhookService calendlyWebhookService;
+    private final PipefyService pipefyService;
+
+    public AdminController(ChatHistoryService chatHistoryService, FlightRecordingService flightRecordingService,
+                           CalendlyWebhookService calendlyWebhookService, PipefyService pipefyService) {
+        this.chatHistoryService = chatHistoryService;
+        this.flightRecordingService = flightRecordingService;
+        this.calendlyWebhookService = calendlyWebhookService;
+        this.pipefyService = pipefyService;
+    }
+
+    @GetMapping("/leads/{leadId}/history")
+    public ResponseEntity<HistoryPageDTO> getLeadHistory(
+            @PathVariable Long leadId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(chatHistoryService.getLeadHistory(leadId, cursor, limit));
+    }
+
+    @GetMapping("/jfr")
+    public ResponseEntity<RecordingStatusDTO> getRecording() {
+        return ResponseEntity.ok(flightRecordingService.status());
+    }
+
+    @PostMapping("/jfr/start")
+    public ResponseEntity<RecordingStatusDTO> startRecording() {
+        return ResponseEntity.ok(flightRecordingService.start());
+    }
+
+    @PostMapping("/jfr/dump")
+    public ResponseEntity<RecordingStatusDTO> dumpRecording() {
+        return ResponseEntity.ok(flightRecordingService.dump());
+    }
+
+    @PostMapping("/jfr/stop")
+    public ResponseEntity<RecordingStatusDTO> stopRecording() {
+        return ResponseEntity.ok(flightRecordingService.stop());
+    }
+
+    /**
+     * Devolve para a fila os webhooks do Calendly que esgotaram as tentativas (ex: depois de corrigir a causa do erro).
+     */
+    @PostMapping("/calendly/webhooks/requeue")
+    public ResponseEntity<APIMessage<Integer>> requeueCalendlyWebhooks() {
+        return ResponseEntity.ok(new APIMessage<>(HttpStatus.OK.value(), calendlyWebhookService.requeueFailed()));
+    }
+
+    /**
+     * Reimporta o índice e-mail → card do Pipefy (ex: depois de cards criados direto no Pipefy).
+     */
+    @PostMapping("/pipefy/card-index/import")
+    public ResponseEntity<APIMessage<Integer>> importPipefyCardIndex() {
+        return ResponseEntity.ok(new APIMessage<>(HttpStatus.OK.value(), pipefyService.importCardIndex()));
+    }
+}
@@ -1,33 +1,37 @@
 package com.verzel.challenge.controller;
 
 import com.verzel.challenge.dto.calendly.CalendlyWebhookWrapper;
-import com.verzel.challenge.dto.calendly.WebhookPayload;
-import com.verzel.challenge.service.ChatService;
+import com.verzel.challenge.service.CalendlyService;
+import com.verzel.challenge.service.CalendlyWebhookService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Map;
-
+/**
+ * Webhook do Calendly. A entrega só é gravada e confirmada aqui; o processamento é do {@code CalendlyWebhookDispatcher}.
+ */
 @RestController
 @RequestMapping("/calendly")
 public class CalendlyController {
-    private final ChatService chatService;
+    private final CalendlyWebhookService calendlyWebhookService;
+    private final CalendlyService calendlyService;
 
-    public CalendlyController(ChatService chatService) {
-        this.chatService = chatService;
+    public CalendlyController(CalendlyWebhookService calendlyWebhookService, CalendlyService calendlyService) {
+        this.calendlyWebhookService = calendlyWebhookService;
+        this.calendlyService = calendlyService;
     }
 
     @PostMapping("/webhook")
     public ResponseEntity<Void> handleWebhook(@RequestBody CalendlyWebhookWrapper payload) {
         try {
-            chatService.scheduleMeeting(payload.getPayload());
+            if (calendlyWebhookService.accept(payload)) {
+                // O horário agendado não pode mais ser oferecido, mesmo que o lead não seja encontrado
+                calendlyService.invalidateAvailability();
+            }
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             System.out.println(e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+}
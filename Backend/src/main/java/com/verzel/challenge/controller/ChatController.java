@@ -2,18 +2,21 @@ package com.verzel.challenge.controller;
 
 import com.verzel.challenge.dto.chat.MessageDTO;
 import com.verzel.challenge.dto.chat.ResponseDTO;
+import com.verzel.challenge.metrics.TurnTrace;
 import com.verzel.challenge.service.ChatService;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.UUID;
+import reactor.core.publisher.Flux;
 
 
 @RestController()
 @RequestMapping("/chat")
+@ConditionalOnExpression("'${chat.execution.mode:blocking}' != 'reactive'")
 public class ChatController {
     private final ChatService chatService;
 
@@ -25,22 +28,33 @@ public class ChatController {
     public ResponseEntity<ResponseDTO> sendChatMessage(
             @RequestBody @Valid MessageDTO userMessage,
             @CookieValue(value = "sessionId", required = false) String sessionId,
+            @RequestHeader(value = TurnTrace.REQUEST_ID_HEADER, required = false) String requestId,
             HttpServletResponse response
     ) {
-        // Se não tem uma Session ID eu crio para o Usuário
-        if (sessionId == null || sessionId.isEmpty()) {
-            sessionId = UUID.randomUUID().toString();
-            int maxAge = 30 * 60;
-            String cookieHeader = String.format(
-                    "sessionId=%s; Max-Age=%d; Path=/; %s; SameSite=None; Partitioned",
-                    sessionId,
-                    maxAge,
-                    "Secure"
-            );
-            response.setHeader("Set-Cookie", cookieHeader);
+        sessionId = SessionCookies.ensure(sessionId, response);
+        TurnTrace trace = TurnTrace.start("blocking", requestId, sessionId);
+        response.setHeader(TurnTrace.REQUEST_ID_HEADER, trace.getRequestId());
+        try {
+            ResponseDTO chatResponse = chatService.handleMessage(userMessage, sessionId, trace);
+            return ResponseEntity.ok(chatResponse);
+        } finally {
+            // Também em caso de erro, antes do GlobalExceptionHandler escrever a resposta
+            response.setHeader(TurnTrace.SERVER_TIMING_HEADER, trace.serverTiming());
         }
-        ResponseDTO chatResponse = chatService.handleMessage(userMessage, sessionId);
-        return ResponseEntity.ok(chatResponse);
+    }
+
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChatMessage(
+            @RequestBody @Valid MessageDTO userMessage,
+            @CookieValue(value = "sessionId", required = false) String sessionId,
+            @RequestHeader(value = TurnTrace.REQUEST_ID_HEADER, required = false) String requestId,
+            HttpServletResponse response
+    ) {
+        sessionId = SessionCookies.ensure(sessionId, response);
+        TurnTrace trace = TurnTrace.start("stream", requestId, sessionId);
+        response.setHeader(TurnTrace.REQUEST_ID_HEADER, trace.getRequestId());
+        return chatService.streamMessage(userMessage, sessionId, trace)
+                .map(event -> ServerSentEvent.builder(event.data()).event(event.event()).build());
     }
 
 }
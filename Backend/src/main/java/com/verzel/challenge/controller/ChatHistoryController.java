@@ -0,0 +1,35 @@
+package com.verzel.challenge.controller;
+
+import com.verzel.challenge.dto.chat.HistoryPageDTO;
+import com.verzel.challenge.service.ChatHistoryService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Histórico da conversa da sessão atual, para o frontend restaurar o chat depois de um reload.
+ * Vale nos dois modos de execução, por isso fica fora do {@link ChatController}.
+ */
+@RestController()
+@RequestMapping("/chat")
+public class ChatHistoryController {
+    private final ChatHistoryService chatHistoryService;
+
+    public ChatHistoryController(ChatHistoryService chatHistoryService) {
+        this.chatHistoryService = chatHistoryService;
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<HistoryPageDTO> getHistory(
+            @CookieValue(value = "sessionId", required = false) String sessionId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        // Sem cookie ainda não existe conversa; o cookie só é criado na primeira mensagem
+        if (sessionId == null || sessionId.isEmpty()) {
+            return ResponseEntity.ok(new HistoryPageDTO(List.of(), null));
+        }
+        return ResponseEntity.ok(chatHistoryService.getSessionHistory(sessionId, cursor, limit));
+    }
+}
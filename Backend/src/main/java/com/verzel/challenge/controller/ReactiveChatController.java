@@ -0,0 +1,62 @@
+package com.verzel.challenge.controller;
+
+import com.verzel.challenge.dto.chat.MessageDTO;
+import com.verzel.challenge.dto.chat.ResponseDTO;
+import com.verzel.challenge.metrics.TurnTrace;
+import com.verzel.challenge.service.ChatService;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller do chat no modo reativo ({@code chat.execution.mode=reactive}).
+ * A thread do Tomcat é liberada assim que o {@link Mono} é devolvido; o turno segue
+ * de forma não bloqueante até a resposta ser escrita.
+ */
+@RestController()
+@RequestMapping("/chat")
+@ConditionalOnProperty(name = "chat.execution.mode", havingValue = "reactive")
+public class ReactiveChatController {
+    private final ChatService chatService;
+
+    public ReactiveChatController(ChatService chatService) {
+        this.chatService = chatService;
+    }
+
+    @PostMapping("/message")
+    public Mono<ResponseEntity<ResponseDTO>> sendChatMessage(
+            @RequestBody @Valid MessageDTO userMessage,
+            @CookieValue(value = "sessionId", required = false) String sessionId,
+            @RequestHeader(value = TurnTrace.REQUEST_ID_HEADER, required = false) String requestId,
+            HttpServletResponse response
+    ) {
+        sessionId = SessionCookies.ensure(sessionId, response);
+        TurnTrace trace = TurnTrace.start("reactive", requestId, sessionId);
+        response.setHeader(TurnTrace.REQUEST_ID_HEADER, trace.getRequestId());
+        return chatService.handleMessageReactive(userMessage, sessionId, trace)
+                .map(chatResponse -> ResponseEntity.ok()
+                        .header(TurnTrace.SERVER_TIMING_HEADER, trace.serverTiming())
+                        .body(chatResponse));
+    }
+
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChatMessage(
+            @RequestBody @Valid MessageDTO userMessage,
+            @CookieValue(value = "sessionId", required = false) String sessionId,
+            @RequestHeader(value = TurnTrace.REQUEST_ID_HEADER, required = false) String requestId,
+            HttpServletResponse response
+    ) {
+        sessionId = SessionCookies.ensure(sessionId, response);
+        TurnTrace trace = TurnTrace.start("stream", requestId, sessionId);
+        response.setHeader(TurnTrace.REQUEST_ID_HEADER, trace.getRequestId());
+        return chatService.streamMessage(userMessage, sessionId, trace)
+                .map(event -> ServerSentEvent.builder(event.data()).event(event.event()).build());
+    }
+
+}
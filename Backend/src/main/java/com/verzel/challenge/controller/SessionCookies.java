@@ -0,0 +1,32 @@
+package com.verzel.challenge.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.UUID;
+
+final class SessionCookies {
+    static final int MAX_AGE_SECONDS = 30 * 60;
+
+    private SessionCookies() {
+    }
+
+    /**
+     * Garante que o usuário tenha uma Session ID, criando o cookie caso ainda não exista.
+     *
+     * @return A Session ID recebida ou a recém-criada.
+     */
+    static String ensure(String sessionId, HttpServletResponse response) {
+        // Se não tem uma Session ID eu crio para o Usuário
+        if (sessionId == null || sessionId.isEmpty()) {
+            sessionId = UUID.randomUUID().toString();
+            String cookieHeader = String.format(
+                    "sessionId=%s; Max-Age=%d; Path=/; %s; SameSite=None; Partitioned",
+                    sessionId,
+                    MAX_AGE_SECONDS,
+                    "Secure"
+            );
+            response.setHeader("Set-Cookie", cookieHeader);
+        }
+        return sessionId;
+    }
+}
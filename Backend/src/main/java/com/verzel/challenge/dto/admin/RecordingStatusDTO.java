@@ -0,0 +1,15 @@
+package com.verzel.challenge.dto.admin;
+
+import java.time.Instant;
+
+/**
+ * Estado da gravação do JFR gerenciada por {@code /admin/jfr}.
+ *
+ * @param recording Se há uma gravação em andamento.
+ * @param settings  A configuração do JFR usada ({@code default} ou {@code profile}).
+ * @param startedAt Quando a gravação começou, ou {@code null} se não há gravação.
+ * @param file      O arquivo gravado pela chamada, ou {@code null} se ela não gravou nenhum.
+ */
+public record RecordingStatusDTO(boolean recording, String settings, Instant startedAt, String file) {
+
+}
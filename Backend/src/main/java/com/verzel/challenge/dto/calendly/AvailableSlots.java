@@ -0,0 +1,22 @@
+package com.verzel.challenge.dto.calendly;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado da busca de disponibilidade no Calendly.
+ *
+ * @param slots         Os horários encontrados, em ordem cronológica e sem repetição. Vazio quando não há horários.
+ * @param searchedUntil Fim do horizonte de busca; não há horários consultados depois dele.
+ */
+public record AvailableSlots(List<Map<String, Object>> slots, OffsetDateTime searchedUntil) {
+
+    public static AvailableSlots none(OffsetDateTime searchedUntil) {
+        return new AvailableSlots(List.of(), searchedUntil);
+    }
+
+    public boolean isEmpty() {
+        return slots.isEmpty();
+    }
+}
@@ -0,0 +1,12 @@
+package com.verzel.challenge.dto.calendly;
+
+/**
+ * URIs da conta do Calendly usadas pela aplicação, guardadas no {@code MetadataCache}.
+ *
+ * @param baseUrl         A API de onde os dados vieram; a cópia em disco de outra API é descartada.
+ * @param userUri         O usuário dono do token.
+ * @param organizationUri A organização do usuário, escopo do webhook.
+ * @param eventTypeUri    O event type cujos horários são oferecidos aos leads.
+ */
+public record CalendlyMetadata(String baseUrl, String userUri, String organizationUri, String eventTypeUri) {
+}
@@ -1,5 +1,6 @@
 package com.verzel.challenge.dto.calendly;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -12,6 +13,8 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class WebhookPayload {
+    // URI do invitee, única por agendamento
+    private String uri;
     private String email;
     private String name;
     private ScheduledEvent scheduled_event;
@@ -20,6 +23,7 @@ public class WebhookPayload {
     @NoArgsConstructor
     @AllArgsConstructor
     public static class ScheduledEvent {
+        private String uri;
         private String name;
         private String start_time;
         private String end_time;
@@ -47,6 +51,7 @@ public class WebhookPayload {
         private String userName;
     }
 
+    @JsonIgnore
     public String getInviteeEmail() {
         if (email != null) return email;
         if (scheduled_event != null && scheduled_event.getEventMemberships() != null && !scheduled_event.getEventMemberships().isEmpty()) {
@@ -55,6 +60,7 @@ public class WebhookPayload {
         return null;
     }
 
+    @JsonIgnore
     public String getMeetingLink() {
         if (scheduled_event != null && scheduled_event.getLocation() != null) {
             return scheduled_event.getLocation().getJoinUrl();
@@ -2,7 +2,6 @@ package com.verzel.challenge.dto.chat;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.verzel.challenge.dto.pipefy.Lead;
 import com.verzel.challenge.type.ActionAI;
 import lombok.AllArgsConstructor;
@@ -24,6 +23,32 @@ public class AIResponseBodyDTO {
 
     private List<Output> output;
 
+    private Usage usage;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Usage {
+        @JsonProperty("input_tokens")
+        private Long inputTokens;
+
+        @JsonProperty("output_tokens")
+        private Long outputTokens;
+
+        @JsonProperty("input_tokens_details")
+        private InputTokensDetails inputTokensDetails;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class InputTokensDetails {
+        @JsonProperty("cached_tokens")
+        private Long cachedTokens;
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -45,16 +70,6 @@ public class AIResponseBodyDTO {
 
         @JsonProperty("text")
         private String text;
-
-        public AssistantText getAssistantText(ObjectMapper mapper) {
-            if (text == null) return null;
-            try {
-                return mapper.readValue(text, AssistantText.class);
-            } catch (Exception e) {
-                System.err.println("Erro desserializando AssistantText: " + text);
-                throw new RuntimeException("Erro ao desserializar AssistantText", e);
-            }
-        }
     }
 
     @Data
@@ -66,63 +81,4 @@ public class AIResponseBodyDTO {
         private Lead lead;
         private ActionAI action;
     }
-
-    public AIResponseDTO getResponse() {
-        ObjectMapper mapper = new ObjectMapper();
-        return new AIResponseDTO(id, getAssistantMessage(mapper), getAssistantLead(mapper),getAssistantAction(mapper));
-    }
-
-    public String getAssistantMessage(ObjectMapper mapper) {
-        if (output == null || output.isEmpty()) return "";
-        StringBuilder sb = new StringBuilder();
-        for (Output o : output) {
-            if (o.getContent() != null) {
-                for (Content c : o.getContent()) {
-                    if ("output_text".equals(c.getType())) {
-                        AssistantText at = c.getAssistantText(mapper);
-                        if (at != null && at.getMensagem() != null) {
-                            sb.append(at.getMensagem());
-                        }
-                    }
-                }
-            }
-        }
-        return sb.toString();
-    }
-
-    public Lead getAssistantLead(ObjectMapper mapper) {
-        if (output == null || output.isEmpty()) return null;
-        for (Output o : output) {
-            if (o.getContent() != null) {
-                for (Content c : o.getContent()) {
-                    if ("output_text".equals(c.getType())) {
-                        AssistantText at = c.getAssistantText(mapper);
-                        if (at != null && at.getLead() != null) {
-                            return at.getLead();
-                        }
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
-    public ActionAI getAssistantAction(ObjectMapper mapper) {
-        if (output == null || output.isEmpty()) return null;
-        for (Output o : output) {
-            if (o.getContent() != null) {
-                for (Content c : o.getContent()) {
-                    if ("output_text".equals(c.getType())) {
-                        AssistantText at = c.getAssistantText(mapper);
-                        if (at != null && at.getAction() != null) {
-                            return at.getAction();
-                        }
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
-
-}
\ No newline at end of file
+}
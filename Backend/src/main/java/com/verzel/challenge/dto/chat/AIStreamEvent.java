@@ -0,0 +1,21 @@
+package com.verzel.challenge.dto.chat;
+
+/**
+ * Evento emitido durante o streaming da resposta da OpenAI.
+ * Ou carrega um trecho bruto ({@code delta}) do JSON gerado pelo assistente,
+ * ou a resposta completa ({@code response}) quando a geração termina.
+ */
+public record AIStreamEvent(String delta, AIResponseDTO response) {
+
+    public static AIStreamEvent delta(String delta) {
+        return new AIStreamEvent(delta, null);
+    }
+
+    public static AIStreamEvent completed(AIResponseDTO response) {
+        return new AIStreamEvent(null, response);
+    }
+
+    public boolean isCompleted() {
+        return response != null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.verzel.challenge.dto.chat;
+
+/**
+ * Evento enviado ao cliente pelo endpoint de streaming do chat.
+ * <ul>
+ *     <li>{@code delta}: trecho de texto do campo {@code mensagem} assim que gerado;</li>
+ *     <li>{@code done}: o {@link ResponseDTO} final, após o processamento da action;</li>
+ *     <li>{@code error}: mensagem de erro caso o turno falhe no meio do streaming.</li>
+ * </ul>
+ */
+public record ChatStreamEvent(String event, Object data) {
+
+    public static ChatStreamEvent delta(String text) {
+        return new ChatStreamEvent("delta", text);
+    }
+
+    public static ChatStreamEvent done(ResponseDTO response) {
+        return new ChatStreamEvent("done", response);
+    }
+
+    public static ChatStreamEvent error(String message) {
+        return new ChatStreamEvent("error", message);
+    }
+}
@@ -0,0 +1,41 @@
+package com.verzel.challenge.dto.chat;
+
+import com.verzel.challenge.service.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posição no histórico: a última mensagem já entregue, na ordem {@code (session_id, created_at, id)}.
+ * A próxima página começa logo antes dela. Vai para o cliente como um token opaco (Base64 URL-safe).
+ *
+ * @param sessionPk O {@code chat_tb.id} da sessão da mensagem.
+ * @param createdAt O {@code created_at} da mensagem.
+ * @param id        O {@code id} da mensagem, que desempata mensagens gravadas no mesmo instante.
+ */
+public record HistoryCursor(long sessionPk, LocalDateTime createdAt, long id) {
+    /**
+     * Posição antes da primeira página: maior que qualquer mensagem existente.
+     */
+    public static final HistoryCursor START = new HistoryCursor(Long.MAX_VALUE, LocalDateTime.of(9999, 12, 31, 0, 0), Long.MAX_VALUE);
+
+    public String encode() {
+        String raw = sessionPk + "_" + createdAt + "_" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token O cursor recebido do cliente; vazio ou {@code null} significa a primeira página.
+     * @throws InvalidCursorException Se o token não foi gerado por {@link #encode()}.
+     */
+    public static HistoryCursor decode(String token) {
+        if (token == null || token.isBlank()) return START;
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("_");
+            return new HistoryCursor(Long.parseLong(parts[0]), LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.verzel.challenge.dto.chat;
+
+import com.verzel.challenge.type.Sender;
+
+import java.time.LocalDateTime;
+
+public record HistoryMessageDTO(Long id, String sessionId, Sender sender, String content, LocalDateTime createdAt) {
+
+}
@@ -0,0 +1,13 @@
+package com.verzel.challenge.dto.chat;
+
+import java.util.List;
+
+/**
+ * Uma página do histórico, em ordem cronológica.
+ *
+ * @param messages   As mensagens da página, da mais antiga para a mais recente.
+ * @param nextCursor Cursor para buscar as mensagens anteriores a esta página, ou {@code null} se não houver mais.
+ */
+public record HistoryPageDTO(List<HistoryMessageDTO> messages, String nextCursor) {
+
+}
@@ -0,0 +1,31 @@
+package com.verzel.challenge.dto.pipefy;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AllCardsResponse {
+    public Data data;
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Data {
+        public AllCards allCards;
+
+        @JsonIgnoreProperties(ignoreUnknown = true)
+        public static class AllCards {
+            public PageInfo pageInfo;
+            public List<Edge> edges;
+
+            @JsonIgnoreProperties(ignoreUnknown = true)
+            public static class PageInfo {
+                public boolean hasNextPage;
+                public String endCursor;
+            }
+
+            @JsonIgnoreProperties(ignoreUnknown = true)
+            public static class Edge {
+                public Card node;
+            }
+        }
+    }
+}
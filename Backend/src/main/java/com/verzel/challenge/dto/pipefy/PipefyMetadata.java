@@ -0,0 +1,13 @@
+package com.verzel.challenge.dto.pipefy;
+
+import java.util.Map;
+
+/**
+ * Configuração do pipe lida do Pipefy e guardada no {@code MetadataCache}.
+ *
+ * @param pipeId O pipe de onde os dados vieram; a cópia em disco de outro pipe é descartada.
+ * @param phases Nome da fase → ID.
+ * @param fields Label do campo do formulário inicial → ID.
+ */
+public record PipefyMetadata(String pipeId, Map<String, String> phases, Map<String, String> fields) {
+}
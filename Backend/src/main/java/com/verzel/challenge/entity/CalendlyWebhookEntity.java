@@ -0,0 +1,46 @@
+package com.verzel.challenge.entity;
+
+import com.verzel.challenge.type.WebhookStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrega de webhook do Calendly, gravada antes da resposta ao Calendly e processada pelo
+ * {@code CalendlyWebhookDispatcher}. As linhas são inseridas só pelo
+ * {@code CalendlyWebhookRepository#insertIfAbsent}, que descarta as reentregas pelo {@code dedupeKey}.
+ */
+@Entity
+@Table(name = "calendly_webhook")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendlyWebhookEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "dedupe_key", nullable = false, length = 512)
+    private String dedupeKey;
+
+    // O CalendlyWebhookWrapper em JSON
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    private WebhookStatus status;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+}
@@ -2,8 +2,11 @@ package com.verzel.challenge.entity;
 
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -14,33 +17,55 @@ import java.util.List;
 @Entity
 @Table(name = "chat_tb")
 @EntityListeners(AuditingEntityListener.class)
-@Data
+@Getter
+@Setter
+@ToString
 @NoArgsConstructor
 @AllArgsConstructor
 public class ChatSessionEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_seq")
+    @SequenceGenerator(name = "chat_seq", sequenceName = "chat_tb_seq", allocationSize = 50)
     private Long id;
 
     private String sessionId;
 
     private String previousResponseId;
 
+    // Versão do prompt (openai.prompt-version) com que a cadeia do previousResponseId começou; nula em cadeias antigas
+    private String promptVersion;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
     @LastModifiedDate
     private LocalDateTime lastInteraction;
 
-    @OneToMany(mappedBy = "session", cascade = CascadeType.ALL)
+    // Só leitura: as mensagens são gravadas pelo MessageWriteBuffer e nunca carregadas no turno
+    @OneToMany(mappedBy = "session", fetch = FetchType.LAZY)
+    @ToString.Exclude
     private List<MessageEntity> messages;
 
-    @ManyToOne
+    // O turno busca o lead junto com a sessão (ChatSessionRepository.findBySessionId)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "lead_id")
+    @ToString.Exclude
     private LeadEntity lead;
 
     public ChatSessionEntity(String sessionId){
         this.sessionId = sessionId;
     }
 
-}
\ No newline at end of file
+    // Igualdade pela identidade do banco: não percorre as associações nem inicializa proxies
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        return id != null && id.equals(((ChatSessionEntity) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Hibernate.getClass(this).hashCode();
+    }
+}
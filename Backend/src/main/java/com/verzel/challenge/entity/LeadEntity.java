@@ -2,25 +2,36 @@ package com.verzel.challenge.entity;
 
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.time.LocalDateTime;
 
+// O update leva só as colunas alteradas: o chat e o webhook do Calendly gravam colunas diferentes do mesmo lead
 @Entity
+@DynamicUpdate
 @Table(name = "lead_tb")
 @EntityListeners(AuditingEntityListener.class)
-@Data
+@Getter
+@Setter
+@ToString
 @NoArgsConstructor
 @AllArgsConstructor
 public class LeadEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lead_seq")
+    @SequenceGenerator(name = "lead_seq", sequenceName = "lead_tb_seq", allocationSize = 50)
     private Long id;
 
+    // Só é preenchido pelo dispatcher do outbox (LeadRepository.updateCardId), nunca por um save do chat
+    @Column(updatable = false)
     private String cardId;
     private String name;
     private String email;
@@ -39,4 +50,16 @@ public class LeadEntity {
     private LocalDateTime createdAt;
     @LastModifiedDate
     private LocalDateTime updatedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        return id != null && id.equals(((LeadEntity) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Hibernate.getClass(this).hashCode();
+    }
 }
@@ -0,0 +1,59 @@
+package com.verzel.challenge.entity;
+
+import com.verzel.challenge.type.OutboxStatus;
+import com.verzel.challenge.type.PipefyOperation;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * Sincronização pendente com o Pipefy, gravada na mesma transação da alteração do {@link LeadEntity}.
+ * Os dados do card não ficam aqui: o dispatcher sempre envia o estado atual do lead.
+ */
+@Entity
+@Table(name = "pipefy_outbox")
+@EntityListeners(AuditingEntityListener.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipefyOutboxEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pipefy_outbox_seq")
+    @SequenceGenerator(name = "pipefy_outbox_seq", sequenceName = "pipefy_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "lead_id", nullable = false)
+    private Long leadId;
+
+    @Enumerated(EnumType.STRING)
+    private PipefyOperation operation;
+
+    // Dado que não está no lead, ex: o horário da reunião em UPDATE_MEETING ou os campos alterados em UPDATE_FIELDS (LeadField)
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @CreatedDate
+    private LocalDateTime createdAt;
+
+    public PipefyOutboxEntity(Long leadId, PipefyOperation operation, String payload) {
+        this.leadId = leadId;
+        this.operation = operation;
+        this.payload = payload;
+        this.nextAttemptAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,36 @@
+package com.verzel.challenge.health;
+
+import com.verzel.challenge.service.CalendlyService;
+import com.verzel.challenge.service.PipefyService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indica se os metadados do Pipefy (phases e fields) e do Calendly (event type) já foram carregados.
+ * <p>
+ * Faz parte do grupo {@code /actuator/health/readiness}: a instância só recebe tráfego do balanceador depois da
+ * primeira carga. O {@code /actuator/health/liveness} não depende dele, então um Pipefy ou Calendly fora do ar na
+ * inicialização não derruba a aplicação.
+ */
+@Component("externalMetadata")
+public class ExternalMetadataHealthIndicator implements HealthIndicator {
+    private final PipefyService pipefyService;
+    private final CalendlyService calendlyService;
+
+    public ExternalMetadataHealthIndicator(PipefyService pipefyService, CalendlyService calendlyService) {
+        this.pipefyService = pipefyService;
+        this.calendlyService = calendlyService;
+    }
+
+    @Override
+    public Health health() {
+        boolean pipefy = pipefyService.isReady();
+        boolean calendly = calendlyService.isReady();
+        Health.Builder health = pipefy && calendly ? Health.up() : Health.outOfService();
+        return health
+                .withDetail("pipefy", pipefy ? "loaded" : "loading")
+                .withDetail("calendly", calendly ? "loaded" : "loading")
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package com.verzel.challenge.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Um turno do chat, da chegada da mensagem à resposta. O {@code requestId} é o mesmo do header
+ * {@code X-Request-Id} e da linha de log do turno.
+ */
+@Name("com.verzel.challenge.ChatTurn")
+@Label("Turno do chat")
+@Category({"Challenge", "Chat"})
+@StackTrace(false)
+public class ChatTurnEvent extends Event {
+    @Label("Request ID")
+    String requestId;
+
+    @Label("Sessão")
+    @Description("Hash do session ID (JfrSession.fingerprint)")
+    String sessionId;
+
+    @Label("Modo")
+    String mode;
+
+    @Label("Action")
+    String action;
+
+    @Label("Resultado")
+    String outcome;
+
+    /**
+     * Inicia o evento, ou devolve {@code null} quando nenhuma gravação o coleta.
+     */
+    public static ChatTurnEvent start(String requestId, String sessionId, String mode) {
+        ChatTurnEvent event = new ChatTurnEvent();
+        if (!event.isEnabled()) return null;
+        event.requestId = requestId;
+        event.sessionId = JfrSession.fingerprint(sessionId);
+        event.mode = mode;
+        event.begin();
+        return event;
+    }
+
+    public void finish(String action, String outcome) {
+        this.action = action;
+        this.outcome = outcome;
+        commit();
+    }
+}
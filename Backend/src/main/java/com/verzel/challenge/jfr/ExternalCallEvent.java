@@ -0,0 +1,74 @@
+package com.verzel.challenge.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Uma chamada lógica a uma API externa (OpenAI, Pipefy ou Calendly), com as novas tentativas.
+ * Os tamanhos e o número de requisições HTTP são preenchidos pelo {@link PayloadSizeFilter}.
+ */
+@Name("com.verzel.challenge.ExternalCall")
+@Label("Chamada externa")
+@Category({"Challenge", "Chamadas externas"})
+@StackTrace(false)
+public class ExternalCallEvent extends Event {
+    @Label("Serviço")
+    String service;
+
+    @Label("Operação")
+    String operation;
+
+    @Label("Sessão")
+    @Description("Hash do session ID (JfrSession.fingerprint)")
+    String sessionId;
+
+    @Label("Resultado")
+    String outcome;
+
+    @Label("Requisições HTTP")
+    @Description("Tentativas e janelas consultadas dentro da mesma chamada")
+    int requests;
+
+    @Label("Bytes enviados")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Bytes recebidos")
+    @DataAmount
+    long responseBytes;
+
+    /**
+     * Inicia o evento, ou devolve {@code null} quando nenhuma gravação o coleta.
+     */
+    public static ExternalCallEvent start(String service, String operation, String sessionId) {
+        ExternalCallEvent event = new ExternalCallEvent();
+        if (!event.isEnabled()) return null;
+        event.service = service;
+        event.operation = operation;
+        event.sessionId = JfrSession.fingerprint(sessionId);
+        event.begin();
+        return event;
+    }
+
+    synchronized void request() {
+        requests++;
+    }
+
+    synchronized void sent(long bytes) {
+        requestBytes += bytes;
+    }
+
+    synchronized void received(long bytes) {
+        responseBytes += bytes;
+    }
+
+    public synchronized void finish(String outcome) {
+        this.outcome = outcome;
+        commit();
+    }
+}
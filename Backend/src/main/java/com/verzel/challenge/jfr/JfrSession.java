@@ -0,0 +1,85 @@
+package com.verzel.challenge.jfr;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Session ID do chat associado ao trabalho em andamento, para os eventos do JFR.
+ * <p>
+ * No modo bloqueante fica na thread do turno; nas cadeias reativas vai no {@link Context} do Reactor e é
+ * copiado para a thread de banco por quem executa as operações bloqueantes (ver {@link #call}).
+ * <p>
+ * O session ID é a credencial do histórico e do WebSocket da conversa, então nunca vai para logs ou gravações:
+ * eles recebem o {@link #fingerprint}.
+ */
+public final class JfrSession {
+    private static final String KEY = JfrSession.class.getName();
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private JfrSession() {
+    }
+
+    /**
+     * Os 12 primeiros dígitos hexadecimais do SHA-256 do session ID: identificam a sessão nos logs e no JFR sem
+     * permitir usá-la.
+     */
+    public static String fingerprint(String sessionId) {
+        if (sessionId == null) return null;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(sessionId.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * O session ID do contexto reativo ou, sem ele, o da thread atual.
+     */
+    public static String from(ContextView context) {
+        return context.getOrDefault(KEY, CURRENT.get());
+    }
+
+    public static Context context(String sessionId) {
+        return sessionId == null ? Context.empty() : Context.of(KEY, sessionId);
+    }
+
+    public static <T> T with(String sessionId, Supplier<T> work) {
+        String previous = CURRENT.get();
+        CURRENT.set(sessionId);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static <T> T call(String sessionId, Callable<T> work) throws Exception {
+        String previous = CURRENT.get();
+        CURRENT.set(sessionId);
+        try {
+            return work.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    private static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
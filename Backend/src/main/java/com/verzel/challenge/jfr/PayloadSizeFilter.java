@@ -0,0 +1,43 @@
+package com.verzel.challenge.jfr;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Conta as requisições HTTP e os bytes enviados e recebidos no {@link ExternalCallEvent} da chamada em andamento,
+ * que o {@code ExternalCallMetrics} coloca no contexto do Reactor. Fora de uma chamada medida, ou sem gravação
+ * do JFR, a requisição passa sem alteração.
+ */
+public class PayloadSizeFilter implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            ExternalCallEvent event = context.getOrDefault(ExternalCallEvent.class, null);
+            if (event == null) return next.exchange(request);
+
+            event.request();
+            ClientRequest counted = ClientRequest.from(request)
+                    .body((message, insertContext) -> request.body().insert(new ClientHttpRequestDecorator(message) {
+                        @Override
+                        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                            return super.writeWith(body instanceof Mono<? extends DataBuffer> mono
+                                    ? mono.doOnNext(buffer -> event.sent(buffer.readableByteCount()))
+                                    : Flux.from(body).doOnNext(buffer -> event.sent(buffer.readableByteCount())));
+                        }
+                    }, insertContext))
+                    .build();
+            return next.exchange(counted)
+                    .map(response -> response.mutate()
+                            .body(body -> body.doOnNext(buffer -> event.received(buffer.readableByteCount())))
+                            .build());
+        });
+    }
+}
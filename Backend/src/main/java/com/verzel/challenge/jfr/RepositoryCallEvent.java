@@ -0,0 +1,30 @@
+package com.verzel.challenge.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Uma chamada a um repositório do Spring Data, registrada pelo {@link RepositoryCallInterceptor}.
+ */
+@Name("com.verzel.challenge.RepositoryCall")
+@Label("Chamada ao repositório")
+@Category({"Challenge", "Banco de dados"})
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+    @Label("Repositório")
+    String repository;
+
+    @Label("Método")
+    String method;
+
+    @Label("Sessão")
+    @Description("Hash do session ID (JfrSession.fingerprint)")
+    String sessionId;
+
+    @Label("Sucesso")
+    boolean success;
+}
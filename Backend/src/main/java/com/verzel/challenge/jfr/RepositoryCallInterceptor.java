@@ -0,0 +1,34 @@
+package com.verzel.challenge.jfr;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Registra um {@link RepositoryCallEvent} para cada método chamado no repositório.
+ * Sem uma gravação coletando o evento, a chamada segue direto.
+ */
+public class RepositoryCallInterceptor implements MethodInterceptor {
+    private final String repository;
+
+    public RepositoryCallInterceptor(Class<?> repositoryInterface) {
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) return invocation.proceed();
+
+        event.begin();
+        try {
+            Object result = invocation.proceed();
+            event.success = true;
+            return result;
+        } finally {
+            event.repository = repository;
+            event.method = invocation.getMethod().getName();
+            event.sessionId = JfrSession.fingerprint(JfrSession.current());
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.verzel.challenge.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Uma mensagem enviada ao navegador pelo WebSocket (STOMP).
+ */
+@Name("com.verzel.challenge.WebSocketPush")
+@Label("Envio pelo WebSocket")
+@Category({"Challenge", "WebSocket"})
+@StackTrace(false)
+public class WebSocketPushEvent extends Event {
+    @Label("Destino")
+    String destination;
+
+    @Label("Sessão")
+    @Description("Hash do session ID (JfrSession.fingerprint)")
+    String sessionId;
+
+    @Label("Bytes do payload")
+    @DataAmount
+    long payloadBytes;
+
+    /**
+     * Inicia o evento, ou devolve {@code null} quando nenhuma gravação o coleta.
+     */
+    public static WebSocketPushEvent start(String destination, String sessionId) {
+        WebSocketPushEvent event = new WebSocketPushEvent();
+        if (!event.isEnabled()) return null;
+        String fingerprint = JfrSession.fingerprint(sessionId);
+        // O destino é /topic/{sessionId}
+        event.destination = sessionId == null ? destination : destination.replace(sessionId, fingerprint);
+        event.sessionId = fingerprint;
+        event.begin();
+        return event;
+    }
+
+    public void finish(long payloadBytes) {
+        this.payloadBytes = payloadBytes;
+        commit();
+    }
+}
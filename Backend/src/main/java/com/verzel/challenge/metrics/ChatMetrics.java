@@ -0,0 +1,97 @@
+package com.verzel.challenge.metrics;
+
+import com.verzel.challenge.type.ActionAI;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Métricas dos turnos do chat.
+ * <p>
+ * {@code chat.turns} mede o turno inteiro, da chegada da mensagem à resposta (incluindo a espera pelos turnos
+ * anteriores da mesma sessão), com as tags {@code mode} ({@code blocking}, {@code reactive}, {@code stream}) e
+ * {@code outcome}. {@code chat.turns.active} é o número de turnos em andamento e {@code chat.ai.actions} conta
+ * as actions devolvidas pela IA ({@code none} quando não há action).
+ * <p>
+ * Ao fim de cada turno a linha de log do {@link TurnTrace} é emitida com o mesmo {@code outcome}.
+ */
+@Component
+public class ChatMetrics {
+    private final MeterRegistry registry;
+    private final AtomicInteger activeTurns = new AtomicInteger();
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("chat.turns.active", activeTurns, AtomicInteger::get)
+                .description("Turnos de chat em andamento")
+                .register(registry);
+    }
+
+    public <T> T time(TurnTrace trace, Supplier<T> turn) {
+        activeTurns.incrementAndGet();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "ERROR";
+        try {
+            T result = turn.get();
+            outcome = "SUCCESS";
+            return result;
+        } finally {
+            finish(sample, trace, outcome);
+        }
+    }
+
+    public <T> Mono<T> time(TurnTrace trace, Mono<T> turn) {
+        return Mono.defer(() -> {
+            activeTurns.incrementAndGet();
+            Timer.Sample sample = Timer.start(registry);
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            return turn.doOnError(error::set)
+                    .doFinally(signal -> finish(sample, trace, signal, error.get()));
+        });
+    }
+
+    public <T> Flux<T> time(TurnTrace trace, Flux<T> turn) {
+        return Flux.defer(() -> {
+            activeTurns.incrementAndGet();
+            Timer.Sample sample = Timer.start(registry);
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            return turn.doOnError(error::set)
+                    .doFinally(signal -> finish(sample, trace, signal, error.get()));
+        });
+    }
+
+    public void action(ActionAI action) {
+        Counter.builder("chat.ai.actions")
+                .description("Actions devolvidas pela IA")
+                .tag("action", action == null ? "none" : action.name())
+                .register(registry)
+                .increment();
+    }
+
+    private void finish(Timer.Sample sample, TurnTrace trace, SignalType signal, Throwable error) {
+        finish(sample, trace, signal == SignalType.CANCEL ? "CANCELLED" : error == null ? "SUCCESS" : "ERROR");
+    }
+
+    private void finish(Timer.Sample sample, TurnTrace trace, String outcome) {
+        activeTurns.decrementAndGet();
+        sample.stop(timer(trace.getMode(), outcome));
+        System.out.println(trace.finish(outcome));
+    }
+
+    private Timer timer(String mode, String outcome) {
+        return Timer.builder("chat.turns")
+                .description("Turnos de chat, da chegada da mensagem à resposta")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
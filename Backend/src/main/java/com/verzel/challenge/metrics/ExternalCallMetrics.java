@@ -0,0 +1,117 @@
+package com.verzel.challenge.metrics;
+
+import com.verzel.challenge.jfr.ExternalCallEvent;
+import com.verzel.challenge.jfr.JfrSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Métricas das chamadas às APIs externas (OpenAI, Pipefy, Calendly).
+ * <p>
+ * Cada chamada vira uma amostra do timer {@code external.calls}, com as tags {@code service}, {@code operation}
+ * e {@code outcome} ({@code SUCCESS}, {@code CLIENT_ERROR}, {@code SERVER_ERROR}, {@code TIMEOUT},
+ * {@code IO_ERROR}, {@code ERROR} ou {@code CANCELLED}). O tempo inclui as novas tentativas, que são contadas
+ * à parte em {@code external.calls.retries}; os timeouts de cada tentativa vão para {@code external.calls.timeouts}.
+ * Com uma gravação do JFR ativa, cada chamada também gera um {@link ExternalCallEvent}.
+ */
+@Component
+public class ExternalCallMetrics {
+    private final MeterRegistry registry;
+
+    public ExternalCallMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Mede a chamada do momento da inscrição até o término do {@link Mono}.
+     */
+    public <T> Mono<T> time(String service, String operation, Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            Timer.Sample sample = Timer.start(registry);
+            ExternalCallEvent event = ExternalCallEvent.start(service, operation, JfrSession.from(context));
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            // Registra antes de o sinal seguir adiante, para quem recebe o resultado já ver a amostra
+            return call.doOnError(error::set)
+                    .doOnTerminate(() -> stop(sample, event, service, operation, outcome(SignalType.ON_COMPLETE, error.get())))
+                    .doOnCancel(() -> stop(sample, event, service, operation, outcome(SignalType.CANCEL, null)))
+                    .contextWrite(eventContext(event));
+        });
+    }
+
+    /**
+     * Mede a chamada em streaming do momento da inscrição até o último evento do {@link Flux}.
+     */
+    public <T> Flux<T> time(String service, String operation, Flux<T> call) {
+        return Flux.deferContextual(context -> {
+            Timer.Sample sample = Timer.start(registry);
+            ExternalCallEvent event = ExternalCallEvent.start(service, operation, JfrSession.from(context));
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            // Registra antes de o sinal seguir adiante, para quem recebe o resultado já ver a amostra
+            return call.doOnError(error::set)
+                    .doOnTerminate(() -> stop(sample, event, service, operation, outcome(SignalType.ON_COMPLETE, error.get())))
+                    .doOnCancel(() -> stop(sample, event, service, operation, outcome(SignalType.CANCEL, null)))
+                    .contextWrite(eventContext(event));
+        });
+    }
+
+    public void retry(String service, String operation) {
+        counter("external.calls.retries", service, operation).increment();
+    }
+
+    public void timeout(String service, String operation) {
+        counter("external.calls.timeouts", service, operation).increment();
+    }
+
+    private void stop(Timer.Sample sample, ExternalCallEvent event, String service, String operation, String outcome) {
+        sample.stop(timer(service, operation, outcome));
+        if (event != null) event.finish(outcome);
+    }
+
+    /**
+     * O evento do JFR vai no contexto para o {@link com.verzel.challenge.jfr.PayloadSizeFilter} contar os bytes.
+     */
+    private static Function<Context, Context> eventContext(ExternalCallEvent event) {
+        return context -> event == null ? context : context.put(ExternalCallEvent.class, event);
+    }
+
+    private Timer timer(String service, String operation, String outcome) {
+        return Timer.builder("external.calls")
+                .description("Chamadas às APIs externas, incluindo as novas tentativas")
+                .tag("service", service)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Counter counter(String name, String service, String operation) {
+        return Counter.builder(name)
+                .tag("service", service)
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    static String outcome(SignalType signal, Throwable error) {
+        if (signal == SignalType.CANCEL) return "CANCELLED";
+        if (error == null) return "SUCCESS";
+        if (Exceptions.isRetryExhausted(error) && error.getCause() != null) error = error.getCause();
+        if (error instanceof TimeoutException) return "TIMEOUT";
+        if (error instanceof WebClientResponseException response) {
+            return response.getStatusCode().is4xxClientError() ? "CLIENT_ERROR" : "SERVER_ERROR";
+        }
+        if (error instanceof WebClientRequestException) return "IO_ERROR";
+        return "ERROR";
+    }
+}
@@ -0,0 +1,142 @@
+package com.verzel.challenge.metrics;
+
+import com.verzel.challenge.jfr.ChatTurnEvent;
+import com.verzel.challenge.jfr.JfrSession;
+import com.verzel.challenge.type.ActionAI;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Tempos das etapas de um turno do chat.
+ * <p>
+ * As etapas são {@code queue} (espera pelos turnos anteriores da mesma sessão), {@code session} (carga da sessão),
+ * {@code llm} (OpenAI), {@code chain} (gravação do {@code previousResponseId}), {@code lead} (lead e outbox do
+ * Pipefy), {@code calendly} (busca de horários) e {@code store} (mensagens). O resultado vai para o header
+ * {@code Server-Timing}, que o devtools do navegador mostra na aba de rede, e para uma linha de log por turno
+ * identificada pelo {@code X-Request-Id}. Com uma gravação do JFR ativa, o turno também vira um {@link ChatTurnEvent}.
+ */
+public class TurnTrace {
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
+    private final String requestId;
+    private final String sessionId;
+    private final String mode;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final ChatTurnEvent event;
+    private volatile ActionAI action;
+
+    private TurnTrace(String requestId, String sessionId, String mode) {
+        this.requestId = requestId;
+        this.sessionId = sessionId;
+        this.mode = mode;
+        this.event = ChatTurnEvent.start(requestId, sessionId, mode);
+    }
+
+    /**
+     * Inicia o trace do turno. O {@code X-Request-Id} do cliente é reaproveitado quando é um identificador válido.
+     */
+    public static TurnTrace start(String mode, String requestId, String sessionId) {
+        if (requestId == null || !VALID_REQUEST_ID.matcher(requestId).matches()) {
+            requestId = UUID.randomUUID().toString();
+        }
+        return new TurnTrace(requestId, sessionId, mode);
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setAction(ActionAI action) {
+        this.action = action;
+    }
+
+    /**
+     * Marca o início do turno propriamente dito; o tempo desde a chegada da mensagem vira a etapa {@code queue}.
+     */
+    public void queued() {
+        record("queue", startNanos);
+    }
+
+    public <T> T time(String phase, Supplier<T> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            record(phase, start);
+        }
+    }
+
+    public void run(String phase, Runnable step) {
+        long start = System.nanoTime();
+        try {
+            step.run();
+        } finally {
+            record(phase, start);
+        }
+    }
+
+    public <T> Mono<T> time(String phase, Mono<T> step) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return step.doOnTerminate(() -> record(phase, start));
+        });
+    }
+
+    /**
+     * Soma à etapa o tempo decorrido desde {@code start} (um {@link System#nanoTime()}).
+     */
+    public synchronized void record(String phase, long start) {
+        phases.merge(phase, System.nanoTime() - start, Long::sum);
+    }
+
+    /**
+     * Valor do header {@code Server-Timing}, com as etapas na ordem em que aconteceram e o total até agora.
+     */
+    public synchronized String serverTiming() {
+        StringBuilder header = new StringBuilder();
+        phases.forEach((phase, nanos) -> header.append(phase).append(";dur=").append(millis(nanos)).append(", "));
+        if (action != null) header.append("action;desc=\"").append(action.name()).append("\", ");
+        return header.append("total;dur=").append(millis(System.nanoTime() - startNanos)).toString();
+    }
+
+    /**
+     * Encerra o turno: grava o evento do JFR e devolve a linha de log.
+     */
+    public String finish(String outcome) {
+        if (event != null) event.finish(action == null ? "none" : action.name(), outcome);
+        return logLine(outcome);
+    }
+
+    /**
+     * Linha de log do turno em formato chave=valor, com os tempos em milissegundos. A sessão aparece só como
+     * {@link JfrSession#fingerprint}, já que o session ID dá acesso à conversa.
+     */
+    public synchronized String logLine(String outcome) {
+        StringBuilder line = new StringBuilder("turn")
+                .append(" requestId=").append(requestId)
+                .append(" session=").append(JfrSession.fingerprint(sessionId))
+                .append(" mode=").append(mode)
+                .append(" outcome=").append(outcome)
+                .append(" action=").append(action == null ? "none" : action.name())
+                .append(" total_ms=").append(millis(System.nanoTime() - startNanos));
+        phases.forEach((phase, nanos) -> line.append(' ').append(phase).append("_ms=").append(millis(nanos)));
+        return line.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+}
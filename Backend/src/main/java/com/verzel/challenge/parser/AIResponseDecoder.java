@@ -0,0 +1,171 @@
+package com.verzel.challenge.parser;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.chat.AIResponseBodyDTO;
+import com.verzel.challenge.dto.chat.AIResponseBodyDTO.AssistantText;
+import com.verzel.challenge.dto.chat.AIResponseDTO;
+import com.verzel.challenge.dto.pipefy.Lead;
+import com.verzel.challenge.type.ActionAI;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Converte a resposta da Responses API no {@link AIResponseDTO} do chat.
+ * <p>
+ * O texto do assistente ({@code output_text}) é ele próprio um JSON ({@link AssistantText}); cada um é lido
+ * uma única vez, com o {@link ObjectMapper} da aplicação. A mensagem é a concatenação de todos os
+ * {@code output_text}, e o lead e a action são os primeiros não nulos.
+ * <p>
+ * Há dois caminhos: {@link #decode(AIResponseBodyDTO)} parte do DTO já desserializado pelo WebClient, e
+ * {@link #read(JsonParser)} lê o JSON da resposta token a token, sem montar o DTO nem a {@code String} do texto.
+ */
+@Component
+public class AIResponseDecoder {
+    private final ObjectMapper mapper;
+
+    public AIResponseDecoder(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * A resposta do chat e o consumo de tokens da chamada.
+     */
+    public record Result(AIResponseDTO response, AIResponseBodyDTO.Usage usage) {
+    }
+
+    public Result decode(AIResponseBodyDTO body) {
+        Accumulator accumulator = new Accumulator();
+        if (body.getOutput() != null) {
+            for (AIResponseBodyDTO.Output output : body.getOutput()) {
+                if (output.getContent() == null) continue;
+                for (AIResponseBodyDTO.Content content : output.getContent()) {
+                    if ("output_text".equals(content.getType()) && content.getText() != null) {
+                        accumulator.add(parseAssistantText(content.getText()));
+                    }
+                }
+            }
+        }
+        return new Result(accumulator.toResponse(body.getId()), body.getUsage());
+    }
+
+    public Result read(InputStream json) {
+        try (JsonParser parser = mapper.createParser(json)) {
+            parser.nextToken();
+            return read(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler resposta da OpenAI", e);
+        }
+    }
+
+    /**
+     * Lê o objeto {@code response} a partir do token atual ({@code START_OBJECT}) até o fim dele.
+     */
+    public Result read(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        Accumulator accumulator = new Accumulator();
+        String id = null;
+        AIResponseBodyDTO.Usage usage = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> id = parser.getValueAsString();
+                case "usage" -> usage = parser.currentToken() == JsonToken.VALUE_NULL ? null : mapper.readValue(parser, AIResponseBodyDTO.Usage.class);
+                case "output" -> readOutputs(parser, accumulator);
+                default -> parser.skipChildren();
+            }
+        }
+        return new Result(accumulator.toResponse(id), usage);
+    }
+
+    private void readOutputs(JsonParser parser, Accumulator accumulator) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("content".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readContent(parser, accumulator);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private void readContent(JsonParser parser, Accumulator accumulator) throws IOException {
+        String type = null;
+        String pendingText = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("type".equals(field)) {
+                type = parser.getValueAsString();
+            } else if ("text".equals(field) && parser.currentToken() == JsonToken.VALUE_STRING) {
+                if ("output_text".equals(type)) {
+                    // Lê o JSON do assistente direto do buffer do parser, sem criar a String do texto
+                    accumulator.add(parseAssistantText(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                } else {
+                    pendingText = parser.getText();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        // O "type" veio depois do "text"
+        if (pendingText != null && "output_text".equals(type)) {
+            accumulator.add(parseAssistantText(pendingText));
+        }
+    }
+
+    private AssistantText parseAssistantText(String text) {
+        try {
+            return mapper.readValue(text, AssistantText.class);
+        } catch (IOException e) {
+            System.err.println("Erro desserializando AssistantText: " + text);
+            throw new RuntimeException("Erro ao desserializar AssistantText", e);
+        }
+    }
+
+    private AssistantText parseAssistantText(char[] text, int offset, int length) {
+        try (JsonParser textParser = mapper.getFactory().createParser(text, offset, length)) {
+            return mapper.readValue(textParser, AssistantText.class);
+        } catch (IOException e) {
+            System.err.println("Erro desserializando AssistantText: " + new String(text, offset, length));
+            throw new RuntimeException("Erro ao desserializar AssistantText", e);
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.currentToken() != token) {
+            throw new IOException("Esperado " + token + " mas veio " + parser.currentToken());
+        }
+    }
+
+    private static class Accumulator {
+        private final StringBuilder message = new StringBuilder();
+        private Lead lead;
+        private ActionAI action;
+
+        void add(AssistantText text) {
+            if (text == null) return;
+            if (text.getMensagem() != null) message.append(text.getMensagem());
+            if (lead == null) lead = text.getLead();
+            if (action == null) action = text.getAction();
+        }
+
+        AIResponseDTO toResponse(String id) {
+            return new AIResponseDTO(id, message.toString(), lead, action);
+        }
+    }
+}
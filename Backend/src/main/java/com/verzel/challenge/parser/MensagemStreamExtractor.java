@@ -0,0 +1,135 @@
+package com.verzel.challenge.parser;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Leitor incremental do JSON gerado pelo assistente ({@code AssistantText}).
+ * <p>
+ * Recebe o texto em pedaços, na ordem em que chega do streaming da OpenAI, e devolve apenas os
+ * caracteres já decodificados do campo {@code mensagem} do objeto raiz. Os demais campos
+ * ({@code lead}, {@code action}) são ignorados aqui e tratados quando a resposta completa chega.
+ * <p>
+ * Não é thread-safe: use uma instância por resposta.
+ */
+public class MensagemStreamExtractor {
+    private static final String TARGET_KEY = "mensagem";
+
+    private final Deque<Character> containers = new ArrayDeque<>();
+    private final StringBuilder key = new StringBuilder();
+    private String lastKey;
+    private boolean expectingKey;
+    private boolean inString;
+    private boolean readingKey;
+    private boolean capturing;
+    private boolean escape;
+    private int unicodeDigits = -1;
+    private int unicodeValue;
+    private char pendingHighSurrogate;
+
+    /**
+     * Consome o próximo pedaço do JSON.
+     *
+     * @param chunk O trecho recebido do streaming.
+     * @return Os novos caracteres do campo {@code mensagem} presentes no trecho (pode ser vazio).
+     */
+    public String feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) return "";
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (inString) {
+                readString(c, out);
+            } else {
+                readStructure(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private void readStructure(char c) {
+        switch (c) {
+            case '{' -> {
+                containers.push('{');
+                expectingKey = true;
+            }
+            case '[' -> {
+                containers.push('[');
+                expectingKey = false;
+            }
+            case '}', ']' -> {
+                if (!containers.isEmpty()) containers.pop();
+                expectingKey = false;
+            }
+            case ',' -> expectingKey = !containers.isEmpty() && containers.peek() == '{';
+            case ':' -> expectingKey = false;
+            case '"' -> {
+                inString = true;
+                boolean atRoot = containers.size() == 1 && containers.peek() == '{';
+                readingKey = expectingKey;
+                capturing = atRoot && !expectingKey && TARGET_KEY.equals(lastKey);
+                if (readingKey) key.setLength(0);
+            }
+            default -> { }
+        }
+    }
+
+    private void readString(char c, StringBuilder out) {
+        if (unicodeDigits >= 0) {
+            unicodeValue = (unicodeValue << 4) | Character.digit(c, 16);
+            if (++unicodeDigits == 4) {
+                unicodeDigits = -1;
+                append((char) unicodeValue, out);
+            }
+            return;
+        }
+        if (escape) {
+            escape = false;
+            switch (c) {
+                case 'n' -> append('\n', out);
+                case 't' -> append('\t', out);
+                case 'r' -> append('\r', out);
+                case 'b' -> append('\b', out);
+                case 'f' -> append('\f', out);
+                case 'u' -> {
+                    unicodeDigits = 0;
+                    unicodeValue = 0;
+                }
+                default -> append(c, out);
+            }
+            return;
+        }
+        if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            inString = false;
+            if (readingKey) {
+                lastKey = containers.size() == 1 ? key.toString() : null;
+            } else if (capturing) {
+                lastKey = null;
+            }
+            readingKey = false;
+            capturing = false;
+        } else {
+            append(c, out);
+        }
+    }
+
+    private void append(char c, StringBuilder out) {
+        if (readingKey) {
+            key.append(c);
+            return;
+        }
+        if (!capturing) return;
+        // Segura o high surrogate até o próximo caractere para não quebrar um par entre dois deltas
+        if (pendingHighSurrogate != 0) {
+            out.append(pendingHighSurrogate);
+            pendingHighSurrogate = 0;
+        }
+        if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else {
+            out.append(c);
+        }
+    }
+}
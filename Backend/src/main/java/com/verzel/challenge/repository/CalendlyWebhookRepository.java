@@ -0,0 +1,43 @@
+package com.verzel.challenge.repository;
+
+import com.verzel.challenge.entity.CalendlyWebhookEntity;
+import com.verzel.challenge.type.WebhookStatus;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CalendlyWebhookRepository extends JpaRepository<CalendlyWebhookEntity, Long> {
+    /**
+     * Grava a entrega se ainda não existir uma com a mesma chave.
+     * @return 1 se a entrega é nova, 0 se é uma reentrega.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO calendly_webhook (dedupe_key, payload, status, attempts, next_attempt_at, created_at)
+            VALUES (:dedupeKey, :payload, 'PENDING', 0, :now, :now)
+            ON CONFLICT (dedupe_key) DO NOTHING""", nativeQuery = true)
+    int insertIfAbsent(@Param("dedupeKey") String dedupeKey, @Param("payload") String payload, @Param("now") LocalDateTime now);
+
+    List<CalendlyWebhookEntity> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(WebhookStatus status, LocalDateTime now, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from CalendlyWebhookEntity w where w.status = com.verzel.challenge.type.WebhookStatus.PROCESSED and w.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            update CalendlyWebhookEntity w set w.status = com.verzel.challenge.type.WebhookStatus.PENDING,
+            w.attempts = 0, w.nextAttemptAt = :now where w.status = com.verzel.challenge.type.WebhookStatus.FAILED""")
+    int requeueFailed(@Param("now") LocalDateTime now);
+}
@@ -1,13 +1,38 @@
 package com.verzel.challenge.repository;
 
 import com.verzel.challenge.entity.ChatSessionEntity;
+import com.verzel.challenge.entity.LeadEntity;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface ChatSessionRepository extends JpaRepository<ChatSessionEntity,Long> {
+    // Carrega a sessão e o lead em um único select; as mensagens nunca entram no turno
+    @EntityGraph(attributePaths = "lead")
     Optional<ChatSessionEntity> findBySessionId(String sessionId);
-    Optional<ChatSessionEntity> findFirstByLeadIdOrderByLastInteractionDesc(Long leadId);
+
+    @Query("select c.sessionId from ChatSessionEntity c where c.lead.id = :leadId order by c.lastInteraction desc limit 1")
+    Optional<String> findLatestSessionIdByLeadId(@Param("leadId") Long leadId);
+
+    // Update direto no fim do turno, sem o select do merge; o auditing não roda aqui, daí o lastInteraction explícito
+    @Transactional
+    @Modifying
+    @Query("update ChatSessionEntity c set c.previousResponseId = :previousResponseId, c.promptVersion = :promptVersion, c.lastInteraction = :now where c.id = :id")
+    int updateResponseChain(@Param("id") Long id, @Param("previousResponseId") String previousResponseId,
+                            @Param("promptVersion") String promptVersion, @Param("now") LocalDateTime now);
+
+    // Associa o lead à sessão sem o merge: a sessão do turno pode vir do cache, sem os demais campos.
+    // O flush antes do update grava o lead recém-criado na mesma transação (a chave estrangeira aponta para ele)
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update ChatSessionEntity c set c.lead = :lead where c.id = :id")
+    int updateLead(@Param("id") Long id, @Param("lead") LeadEntity lead);
 }
@@ -1,12 +1,23 @@
 package com.verzel.challenge.repository;
 
 import com.verzel.challenge.entity.LeadEntity;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface LeadRepository extends JpaRepository<LeadEntity,Long> {
-    Optional<LeadEntity> findByEmailIgnoreCase(String email);
+    // lower() explícito para usar o índice único lead_tb_email_lower_uk (o derivado geraria upper())
+    @Query("select l from LeadEntity l where lower(l.email) = lower(:email)")
+    Optional<LeadEntity> findByEmailIgnoreCase(@Param("email") String email);
+
+    @Transactional
+    @Modifying
+    @Query("update LeadEntity l set l.cardId = :cardId where l.id = :id")
+    int updateCardId(@Param("id") Long id, @Param("cardId") String cardId);
 }
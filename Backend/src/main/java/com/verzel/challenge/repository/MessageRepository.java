@@ -1,13 +1,61 @@
 package com.verzel.challenge.repository;
 
 import com.verzel.challenge.entity.MessageEntity;
-import jakarta.transaction.Transactional;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface MessageRepository extends JpaRepository<MessageEntity, Long> {
+
+    /**
+     * Linha do histórico, sem carregar a entidade nem a sessão.
+     */
+    interface HistoryRow {
+        Long getId();
+        Long getSessionPk();
+        String getSessionId();
+        String getSender();
+        String getContent();
+        LocalDateTime getCreatedAt();
+    }
+
+    // Keyset em (session_id, created_at, id), da mais recente para a mais antiga, sobre o índice message_tb_history_idx.
+    // O Stream precisa de uma transação aberta: com o autocommit desligado o driver lê as linhas por cursor, em lotes do fetch size.
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query(value = """
+            SELECT m.id, m.session_id AS sessionPk, c.session_id AS sessionId, m.sender, m.content, m.created_at AS createdAt
+            FROM message_tb m
+            JOIN chat_tb c ON c.id = m.session_id
+            WHERE c.session_id = :sessionId
+              AND (m.created_at, m.id) < (:createdAt, :id)
+            ORDER BY m.created_at DESC, m.id DESC
+            LIMIT :limit""", nativeQuery = true)
+    Stream<HistoryRow> streamSessionHistory(@Param("sessionId") String sessionId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") long id,
+                                            @Param("limit") int limit);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+    @Query(value = """
+            SELECT m.id, m.session_id AS sessionPk, c.session_id AS sessionId, m.sender, m.content, m.created_at AS createdAt
+            FROM message_tb m
+            JOIN chat_tb c ON c.id = m.session_id
+            WHERE c.lead_id = :leadId
+              AND (m.session_id, m.created_at, m.id) < (:sessionPk, :createdAt, :id)
+            ORDER BY m.session_id DESC, m.created_at DESC, m.id DESC
+            LIMIT :limit""", nativeQuery = true)
+    Stream<HistoryRow> streamLeadHistory(@Param("leadId") Long leadId,
+                                         @Param("sessionPk") long sessionPk,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") long id,
+                                         @Param("limit") int limit);
 }
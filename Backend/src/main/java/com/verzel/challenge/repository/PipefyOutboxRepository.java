@@ -0,0 +1,15 @@
+package com.verzel.challenge.repository;
+
+import com.verzel.challenge.entity.PipefyOutboxEntity;
+import com.verzel.challenge.type.OutboxStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PipefyOutboxRepository extends JpaRepository<PipefyOutboxEntity, Long> {
+    List<PipefyOutboxEntity> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(OutboxStatus status, LocalDateTime now, Limit limit);
+}
@@ -0,0 +1,114 @@
+package com.verzel.challenge.resilience;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limite de chamadas simultâneas para uma dependência externa.
+ * <p>
+ * Cada dependência (OpenAI, Pipefy, Calendly) tem o seu, então uma API lenta só consome as próprias
+ * permissões e não segura as threads de turnos que dependem apenas das outras. Quando não há
+ * permissão disponível dentro de {@code maxWait}, a chamada falha com {@link BulkheadFullException}.
+ * <p>
+ * Usa {@link Semaphore} em vez de {@code synchronized} para não prender (pin) virtual threads.
+ * <p>
+ * As chamadas bloqueantes usam {@link #call}; o modo reativo do chat usa {@link #mono} e {@link #flux}, que dividem
+ * as mesmas permissões.
+ */
+public class Bulkhead {
+    // Intervalo entre as tentativas de obter permissão no modo reativo, que não pode bloquear a thread esperando
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private final String name;
+    private final Semaphore permits;
+    private final Duration maxWait;
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Executa a chamada bloqueante dentro do limite de concorrência.
+     *
+     * @param call A chamada à dependência.
+     * @param <T> O tipo do retorno.
+     * @return O retorno da chamada.
+     * @throws BulkheadFullException se não houver permissão disponível dentro do tempo máximo de espera.
+     */
+    public <T> T call(Supplier<T> call) {
+        acquire();
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Variante de {@link #call(Supplier)} para chamadas sem retorno.
+     */
+    public void run(Runnable call) {
+        call(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Versão reativa do {@link #call(Supplier)}: a permissão é obtida na assinatura e devolvida quando o {@link Mono}
+     * termina, falha ou é cancelado. A espera não bloqueia a thread: a permissão é tentada de novo a cada
+     * {@code POLL_INTERVAL} até {@code maxWait}, sem a ordem de chegada do {@link #call}.
+     *
+     * @param call A chamada à dependência, ainda não assinada.
+     * @param <T> O tipo do retorno.
+     * @return Um {@link Mono} que falha com {@link BulkheadFullException} se não houver permissão dentro do tempo máximo.
+     */
+    public <T> Mono<T> mono(Mono<T> call) {
+        return Mono.usingWhen(acquireAsync(), permit -> call, permit -> Mono.fromRunnable(permits::release));
+    }
+
+    /**
+     * Variante de {@link #mono} para chamadas que emitem vários eventos (ex: streaming); a permissão fica presa até
+     * o {@link Flux} terminar.
+     */
+    public <T> Flux<T> flux(Flux<T> call) {
+        return Flux.usingWhen(acquireAsync(), permit -> call, permit -> Mono.fromRunnable(permits::release));
+    }
+
+    private Mono<Boolean> acquireAsync() {
+        return Mono.defer(() -> {
+            long deadline = System.nanoTime() + maxWait.toNanos();
+            return Mono.fromCallable(permits::tryAcquire)
+                    .filter(Boolean::booleanValue)
+                    .repeatWhenEmpty(attempts -> attempts.concatMap(attempt -> System.nanoTime() < deadline
+                            ? Mono.delay(POLL_INTERVAL)
+                            : Mono.error(new BulkheadFullException(name))));
+        });
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new BulkheadFullException(name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException(name);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
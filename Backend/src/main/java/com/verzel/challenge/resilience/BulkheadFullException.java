@@ -0,0 +1,7 @@
+package com.verzel.challenge.resilience;
+
+public class BulkheadFullException extends RuntimeException {
+    public BulkheadFullException(String dependency) {
+        super("Limite de chamadas simultâneas para " + dependency + " atingido, tente novamente em instantes");
+    }
+}
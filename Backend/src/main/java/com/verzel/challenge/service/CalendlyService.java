@@ -1,85 +1,235 @@
 package com.verzel.challenge.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.calendly.AvailableSlots;
+import com.verzel.challenge.dto.calendly.CalendlyMetadata;
 import com.verzel.challenge.dto.pipefy.Lead;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.resilience.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Cliente da API do Calendly.
+ * <p>
+ * A disponibilidade é do event type e igual para todos os leads, então fica em um cache compartilhado: é
+ * recarregada em segundo plano a cada {@code calendly.availability.refresh-interval-ms} e descartada a cada
+ * webhook do Calendly (um horário acabou de ser agendado). O turno que oferece horários lê da memória e só
+ * aplica a URL personalizada do lead; só espera pela API quando o cache está vazio, e nesse caso todos os
+ * turnos simultâneos esperam pela mesma busca. Se as recargas falharem por mais de
+ * {@code calendly.availability.max-age-ms}, a disponibilidade antiga deixa de ser oferecida.
+ * <p>
+ * Cada busca cobre os próximos {@code calendly.availability.horizon-days} dias em janelas de 7 dias (o máximo
+ * aceito pela API), todas consultadas ao mesmo tempo.
+ * <p>
+ * As URIs da conta e do event type são buscadas em segundo plano na inicialização, com novas tentativas até o
+ * Calendly responder, e de novo a cada {@code metadata.refresh-interval-ms}. Até a primeira busca (ou a cópia do
+ * {@link MetadataCache}) não há horários para oferecer.
+ */
 @Service
 public class CalendlyService {
+    private static final String METADATA_CACHE_NAME = "calendly";
 
     @Value("${calendly.token}")
     private String calendlyToken;
     @Value("${calendly.callback}")
     private String calendlyCallback;
-    private String organizationUri;
-    private String userUri;
-    private String eventTypeUri;
+    @Value("${calendly.base-url}")
+    private String calendlyBaseUrl;
+    @Value("${calendly.availability.max-age-ms}")
+    private long availabilityMaxAgeMs;
+    @Value("${calendly.availability.horizon-days}")
+    private int availabilityHorizonDays;
+    private volatile String organizationUri;
+    private volatile String userUri;
+    private volatile String eventTypeUri;
+    private final Sinks.Empty<Void> readySink = Sinks.empty();
+    private Disposable bootstrap;
+    private final AtomicBoolean staleWhileLoading = new AtomicBoolean();
     private WebClient webClient;
+    private AsyncLoadingCache<String, AvailableSlots> availability;
+    private final Bulkhead bulkhead;
+
+    private final ObjectMapper mapper;
+    private final WebClient.Builder webClientBuilder;
+    private final ExternalCallMetrics externalCallMetrics;
+    private final MeterRegistry meterRegistry;
+    private final MetadataCache metadataCache;
+
+    public CalendlyService(@Qualifier("calendlyBulkhead") Bulkhead bulkhead, ObjectMapper mapper, WebClient.Builder webClientBuilder,
+                           ExternalCallMetrics externalCallMetrics, MeterRegistry meterRegistry, MetadataCache metadataCache) {
+        this.bulkhead = bulkhead;
+        this.metadataCache = metadataCache;
+        this.externalCallMetrics = externalCallMetrics;
+        this.meterRegistry = meterRegistry;
+        this.mapper = mapper;
+        this.webClientBuilder = webClientBuilder;
+    }
 
     @PostConstruct
     public void init() {
-        this.webClient = WebClient.builder()
-                .baseUrl("https://api.calendly.com")
+        this.webClient = webClientBuilder
+                .baseUrl(calendlyBaseUrl)
                 .defaultHeader("Authorization", "Bearer " + calendlyToken)
                 .build();
+        this.availability = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(availabilityMaxAgeMs))
+                .recordStats()
+                .buildAsync((eventType, executor) -> fetchAvailability().toFuture());
+        CaffeineCacheMetrics.monitor(meterRegistry, availability.synchronous(), "calendly.availability");
+
+        metadataCache.read(METADATA_CACHE_NAME, CalendlyMetadata.class)
+                .filter(cached -> calendlyBaseUrl.equals(cached.baseUrl()))
+                .ifPresent(cached -> {
+                    apply(cached);
+                    System.out.println("URIs do Calendly carregadas do cache local; atualizando em segundo plano");
+                });
+        this.bootstrap = loadMetadata()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(2))
+                        .maxBackoff(Duration.ofMinutes(1))
+                        .doBeforeRetry(signal -> System.err.println(
+                                "Erro ao carregar as URIs do Calendly, tentando de novo: " + signal.failure().getMessage())))
+                .flatMap(metadata -> createWebhook(calendlyCallback))
+                .subscribe(created -> availability.get(eventTypeUri));
+    }
 
-        getUris();
-        getEventTypeUri();
-        createWebhook(calendlyCallback);
+    @PreDestroy
+    public void shutdown() {
+        if (bootstrap != null) bootstrap.dispose();
+    }
+
+    /**
+     * {@code true} depois que as URIs do usuário, da organização e do event type foram carregadas, do Calendly ou do
+     * cache local. Antes disso não há horários para oferecer.
+     */
+    public boolean isReady() {
+        return eventTypeUri != null;
+    }
+
+    /**
+     * Completa quando {@link #isReady()} passa a ser {@code true}.
+     */
+    public Mono<Void> ready() {
+        return readySink.asMono();
+    }
+
+    /**
+     * Busca de novo as URIs, para que a troca do event type chegue sem restart. Se a busca falhar, as URIs atuais
+     * continuam valendo até a próxima.
+     */
+    @Scheduled(fixedDelayString = "${metadata.refresh-interval-ms}", initialDelayString = "${metadata.refresh-interval-ms}")
+    public void refreshMetadata() {
+        if (bootstrap != null && !bootstrap.isDisposed()) return; // a busca inicial ainda está tentando
+        loadMetadata().subscribe(
+                metadata -> {},
+                e -> System.err.println("Erro ao atualizar as URIs do Calendly: " + e.getMessage()));
     }
 
     // Funções de Configuração do Calendly
-    private void createWebhook(String callbackUrl) {
+    /**
+     * Busca o usuário e a organização e, com o usuário, o event type. As URIs anteriores continuam em uso até a
+     * busca terminar; se ela falhar, não mudam.
+     */
+    Mono<CalendlyMetadata> loadMetadata() {
+        return getUris()
+                .flatMap(uris -> getEventTypeUri(uris.userUri())
+                        .map(eventType -> new CalendlyMetadata(calendlyBaseUrl, uris.userUri(), uris.organizationUri(), eventType)))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(metadata -> {
+                    metadataCache.write(METADATA_CACHE_NAME, metadata);
+                    apply(metadata);
+                    System.out.println("Event type do Calendly carregado: " + metadata.eventTypeUri());
+                });
+    }
+
+    private void apply(CalendlyMetadata metadata) {
+        this.userUri = metadata.userUri();
+        this.organizationUri = metadata.organizationUri();
+        this.eventTypeUri = metadata.eventTypeUri();
+        readySink.tryEmitEmpty();
+    }
+
+    /**
+     * Registra o webhook de agendamentos. Um webhook já existente (409) ou qualquer outro erro não impedem o resto:
+     * o erro é só registrado no log.
+     */
+    private Mono<Boolean> createWebhook(String callbackUrl) {
         Map<String, Object> body = Map.of(
                 "url", callbackUrl,
                 "events", List.of("invitee.created"),
                 "organization", this.organizationUri,
                 "scope", "organization"
         );
-        try {
-            webClient.post()
-                    .uri("/webhook_subscriptions")
-                    .header("Authorization", "Bearer " + calendlyToken)
-                    .header("Content-Type", "application/json")
-                    .bodyValue(body)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-        } catch (WebClientResponseException e) {
-            if (e.getStatusCode().value() == 409) {
-                System.out.println("Webhook do Calendly já existe, ignorando...");
-            }
-        }
+        return webClient.post()
+                .uri("/webhook_subscriptions")
+                .header("Authorization", "Bearer " + calendlyToken)
+                .header("Content-Type", "application/json")
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(String.class)
+                .thenReturn(true)
+                .onErrorResume(e -> {
+                    if (e instanceof WebClientResponseException response && response.getStatusCode().value() == 409) {
+                        System.out.println("Webhook do Calendly já existe, ignorando...");
+                    } else {
+                        System.err.println("Erro ao criar o webhook do Calendly: " + e.getMessage());
+                    }
+                    return Mono.just(false);
+                });
     }
-    private void getUris() {
-        String response = webClient.get()
+
+    /**
+     * @return Um {@link Mono} com a URI do usuário e a da organização, ainda sem o event type.
+     */
+    private Mono<CalendlyMetadata> getUris() {
+        return webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/users/me").build())
                 .header("Authorization", "Bearer " + calendlyToken)
                 .retrieve()
                 .bodyToMono(String.class)
-                .block();
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(response);
-            this.userUri = root.path("resource").path("uri").asText();
-            this.organizationUri = root.path("resource").path("current_organization").asText();
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao extrair userUri do Calendly", e);
-        }
+                .timeout(Duration.ofSeconds(10))
+                .map(response -> {
+                    try {
+                        JsonNode root = mapper.readTree(response);
+                        return new CalendlyMetadata(calendlyBaseUrl,
+                                root.path("resource").path("uri").asText(),
+                                root.path("resource").path("current_organization").asText(), null);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Erro ao extrair userUri do Calendly", e);
+                    }
+                });
     }
-    private void getEventTypeUri() {
-        String response = webClient.get()
+
+    private Mono<String> getEventTypeUri(String userUri) {
+        return webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/event_types")
                         .queryParam("user", userUri)
@@ -87,58 +237,164 @@ public class CalendlyService {
                 .header("Authorization", "Bearer " + calendlyToken)
                 .retrieve()
                 .bodyToMono(String.class)
-                .block();
-
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(response);
-            JsonNode collection = root.path("collection");
-            if (collection.isArray() && !collection.isEmpty()) {
-                this.eventTypeUri = collection.get(0).path("uri").asText();
-            } else {
-                throw new RuntimeException("Nenhum EventType encontrado para o usuário.");
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Erro ao extrair eventTypeUri do Calendly", e);
-        }
+                .timeout(Duration.ofSeconds(10))
+                .map(response -> {
+                    JsonNode collection;
+                    try {
+                        collection = mapper.readTree(response).path("collection");
+                    } catch (Exception e) {
+                        throw new RuntimeException("Erro ao extrair eventTypeUri do Calendly", e);
+                    }
+                    if (collection.isArray() && !collection.isEmpty()) {
+                        return collection.get(0).path("uri").asText();
+                    }
+                    throw new RuntimeException("Nenhum EventType encontrado para o usuário.");
+                });
     }
 
 
     /**
      * Busca por horários de reunião disponíveis no Calendly.
-     * Este método consulta a API do Calendly para encontrar horários disponíveis,
-     * começando a partir do dia seguinte. Caso não encontre pelo menos dois horários,
-     * ele avança a busca semanalmente até encontrá-los.
-     * Retorna uma lista aleatória de até 3 horários, com a URL de agendamento
-     * modificada para pré-preencher o nome e o e-mail do lead.
+     * Os horários vêm do cache de disponibilidade (ver a descrição da classe).
+     * Retorna até 3 horários sorteados das primeiras semanas com pelo menos dois horários (ver
+     * {@link #earliestSlots}), com a URL de agendamento modificada para pré-preencher o nome e o e-mail do lead.
      * @param lead O lead para o qual os horários serão agendados, contendo nome e e-mail.
-     * @return Uma lista de até 3 horários disponíveis, com a URL de agendamento personalizada.
+     * @return Até 3 horários disponíveis, com a URL de agendamento personalizada, ou um resultado vazio
+     *         se não houver horários dentro do horizonte de busca.
      */
-    public List<Map<String, Object>> getAvailableSlots(Lead lead) {
-        int offset = 0;
-        List<Map<String, Object>> slots = Collections.emptyList();
-
-        while (slots.size() < 2) {
-            OffsetDateTime start = OffsetDateTime.now(ZoneOffset.UTC).plusDays(1 + offset);
-            OffsetDateTime end = start.plusDays(6);
-
-            Map response = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/event_type_available_times")
-                            .queryParam("event_type", eventTypeUri)
-                            .queryParam("start_time", start)
-                            .queryParam("end_time", end)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .block();
-            List<Map<String, Object>> allSlots = (List<Map<String, Object>>) response.get("collection");
-            if (allSlots != null) {
-                slots = allSlots;
+    public AvailableSlots getAvailableSlots(Lead lead) {
+        return bulkhead.call(() -> availableSlots(lead).block());
+    }
+
+    /**
+     * Versão não bloqueante do {@link #getAvailableSlots}.
+     *
+     * @param lead O lead para o qual os horários serão agendados, contendo nome e e-mail.
+     * @return Um {@link Mono} com até 3 horários disponíveis, com a URL de agendamento personalizada.
+     */
+    public Mono<AvailableSlots> getAvailableSlotsAsync(Lead lead) {
+        return bulkhead.mono(availableSlots(lead));
+    }
+
+    private Mono<AvailableSlots> availableSlots(Lead lead) {
+        if (eventTypeUri == null) return Mono.error(new IllegalStateException("Event type do Calendly ainda não carregado"));
+        return Mono.fromFuture(() -> availability.get(eventTypeUri))
+                .map(found -> new AvailableSlots(personalizeSlots(earliestSlots(found), lead), found.searchedUntil()));
+    }
+
+    /**
+     * Recarrega a disponibilidade em segundo plano. Enquanto a busca não termina, os turnos continuam
+     * recebendo a disponibilidade anterior.
+     */
+    @Scheduled(fixedDelayString = "${calendly.availability.refresh-interval-ms}",
+            initialDelayString = "${calendly.availability.refresh-interval-ms}")
+    public void refreshAvailability() {
+        if (eventTypeUri == null) return;
+        availability.synchronous().refresh(eventTypeUri);
+    }
+
+    /**
+     * Descarta a disponibilidade em cache e já inicia uma nova busca, para que um horário recém-agendado
+     * não seja oferecido de novo. Os turnos que chegarem antes do fim da busca esperam por ela.
+     * <p>
+     * Webhooks que chegam durante uma busca não começam outra cada um: a busca em andamento pode ter começado antes
+     * do agendamento, então ela é marcada como desatualizada e repetida uma única vez quando terminar. Uma rajada de
+     * agendamentos custa no máximo duas buscas.
+     */
+    public void invalidateAvailability() {
+        String eventType = eventTypeUri;
+        if (eventType == null) return;
+        CompletableFuture<AvailableSlots> current = availability.getIfPresent(eventType);
+        if (current != null && !current.isDone()) {
+            if (staleWhileLoading.compareAndSet(false, true)) {
+                current.whenComplete((slots, error) -> {
+                    staleWhileLoading.set(false);
+                    reloadAvailability(eventType);
+                });
             }
-            offset++;
+            return;
         }
+        reloadAvailability(eventType);
+    }
+
+    private void reloadAvailability(String eventType) {
+        availability.synchronous().invalidate(eventType);
+        availability.get(eventType);
+    }
+
+    /**
+     * Consulta a API do Calendly do dia seguinte até o fim do horizonte, com uma requisição por janela de 7 dias.
+     * As janelas são consultadas em paralelo, então a busca demora o tempo da janela mais lenta. Se alguma falhar,
+     * a busca inteira falha e o cache continua com a disponibilidade anterior.
+     */
+    private Mono<AvailableSlots> fetchAvailability() {
+        OffsetDateTime from = OffsetDateTime.now(ZoneOffset.UTC).plusDays(1);
+        OffsetDateTime until = from.plusDays(availabilityHorizonDays);
+        int windows = Math.max(1, (availabilityHorizonDays + 6) / 7);
+
+        Mono<AvailableSlots> search = Flux.range(0, windows)
+                .flatMap(window -> {
+                    OffsetDateTime start = from.plusDays(7L * window);
+                    OffsetDateTime end = start.plusDays(7).isBefore(until) ? start.plusDays(7) : until;
+                    return findSlotsBetween(start, end);
+                }, windows)
+                .collectList()
+                .map(results -> mergeSlots(results, until));
+        return externalCallMetrics.time("calendly", "getAvailableSlots", search);
+    }
+
+    private Mono<List<Map<String, Object>>> findSlotsBetween(OffsetDateTime start, OffsetDateTime end) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/event_type_available_times")
+                        .queryParam("event_type", eventTypeUri)
+                        .queryParam("start_time", start)
+                        .queryParam("end_time", end)
+                        .build())
+                .retrieve()
+                .bodyToMono(Map.class)
+                .map(response -> {
+                    List<Map<String, Object>> slots = (List<Map<String, Object>>) response.get("collection");
+                    return slots == null ? List.<Map<String, Object>>of() : slots;
+                });
+    }
+
+    /**
+     * Junta os horários das janelas em ordem cronológica, descartando os repetidos nas bordas das janelas.
+     */
+    static AvailableSlots mergeSlots(List<List<Map<String, Object>>> windows, OffsetDateTime searchedUntil) {
+        Map<OffsetDateTime, Map<String, Object>> byStart = windows.stream()
+                .flatMap(List::stream)
+                .filter(slot -> slot.get("start_time") instanceof String)
+                .collect(Collectors.toMap(slot -> OffsetDateTime.parse((String) slot.get("start_time")), Function.identity(),
+                        (first, repeated) -> first, TreeMap::new));
+        if (byStart.isEmpty()) return AvailableSlots.none(searchedUntil);
+        return new AvailableSlots(List.copyOf(byStart.values()), searchedUntil);
+    }
+
+    /**
+     * Os horários das primeiras janelas de 7 dias que, juntas, têm pelo menos dois horários, como na busca semana a
+     * semana: o lead recebe as opções mais próximas, não horários sorteados do horizonte inteiro. Os horários que já
+     * passaram desde a busca ficam de fora.
+     */
+    List<Map<String, Object>> earliestSlots(AvailableSlots found) {
+        OffsetDateTime from = found.searchedUntil().minusDays(availabilityHorizonDays);
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        List<Map<String, Object>> earliest = new ArrayList<>();
+        long currentWindow = -1;
+        for (Map<String, Object> slot : found.slots()) {
+            OffsetDateTime start = OffsetDateTime.parse((String) slot.get("start_time"));
+            if (start.isBefore(now)) continue;
+            long window = Math.max(0, Duration.between(from, start).toDays() / 7);
+            if (window != currentWindow && earliest.size() >= 2) break;
+            currentWindow = window;
+            earliest.add(slot);
+        }
+        return earliest;
+    }
 
+    List<Map<String, Object>> personalizeSlots(List<Map<String, Object>> allSlots, Lead lead) {
+        List<Map<String, Object>> slots = new ArrayList<>(allSlots);
         Collections.shuffle(slots);
         return slots.stream().limit(3).map(slot -> {
             // Adiciono os Dados do Usuário pra ele só ter que clicar em Schedule
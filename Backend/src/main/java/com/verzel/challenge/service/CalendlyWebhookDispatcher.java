@@ -0,0 +1,141 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.calendly.CalendlyWebhookWrapper;
+import com.verzel.challenge.entity.CalendlyWebhookEntity;
+import com.verzel.challenge.repository.CalendlyWebhookRepository;
+import com.verzel.challenge.type.WebhookStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Processa os webhooks gravados pelo {@link CalendlyWebhookService} em um pool de {@code calendly.webhook.workers}
+ * threads, fora das threads que atendem o Calendly. O poll tem scheduler próprio ({@code calendlyWebhookScheduler}),
+ * para não esperar atrás do outbox do Pipefy ou da retenção.
+ * <p>
+ * Os webhooks do mesmo invitee são processados em ordem, na mesma thread. Em caso de erro a entrega volta para a
+ * fila com backoff exponencial até {@code calendly.webhook.max-attempts}, quando fica como
+ * {@link WebhookStatus#FAILED} (dead letter) até ser devolvida à fila pelo {@code POST /admin/calendly/webhooks/requeue}.
+ * Entregas processadas ficam guardadas por {@code calendly.webhook.retention-hours} para que as reentregas do
+ * Calendly sejam descartadas.
+ * <p>
+ * Pensado para rodar em uma única instância da aplicação.
+ */
+@Component
+public class CalendlyWebhookDispatcher {
+    private final CalendlyWebhookRepository webhookRepository;
+    private final ChatService chatService;
+    private final ObjectMapper mapper;
+    private final ExecutorService workers;
+
+    @Value("${calendly.webhook.batch-size}")
+    private int batchSize;
+    @Value("${calendly.webhook.max-attempts}")
+    private int maxAttempts;
+    @Value("${calendly.webhook.backoff-base-ms}")
+    private long backoffBaseMs;
+    @Value("${calendly.webhook.backoff-max-ms}")
+    private long backoffMaxMs;
+    @Value("${calendly.webhook.retention-hours}")
+    private long retentionHours;
+
+    public CalendlyWebhookDispatcher(CalendlyWebhookRepository webhookRepository, ChatService chatService, ObjectMapper mapper,
+                                     @Value("${calendly.webhook.workers}") int workers) {
+        this.webhookRepository = webhookRepository;
+        this.chatService = chatService;
+        this.mapper = mapper;
+        this.workers = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("calendly-webhook-", 0).factory());
+    }
+
+    @Scheduled(fixedDelayString = "${calendly.webhook.poll-interval-ms}", scheduler = "calendlyWebhookScheduler")
+    public void dispatch() throws InterruptedException {
+        List<CalendlyWebhookEntity> batch = webhookRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                WebhookStatus.PENDING, LocalDateTime.now(), Limit.of(batchSize));
+        if (batch.isEmpty()) return;
+
+        Map<String, List<ParsedWebhook>> byInvitee = new LinkedHashMap<>();
+        for (CalendlyWebhookEntity entry : batch) {
+            try {
+                CalendlyWebhookWrapper webhook = mapper.readValue(entry.getPayload(), CalendlyWebhookWrapper.class);
+                if (webhook.getPayload() == null) {
+                    deadLetter(entry, "Webhook sem payload");
+                    continue;
+                }
+                String invitee = String.valueOf(webhook.getPayload().getInviteeEmail()).toLowerCase();
+                byInvitee.computeIfAbsent(invitee, key -> new ArrayList<>()).add(new ParsedWebhook(entry, webhook));
+            } catch (JsonProcessingException e) {
+                deadLetter(entry, e.getMessage());
+            }
+        }
+
+        // Espera o lote terminar antes do próximo poll, para que nenhuma entrega seja processada duas vezes ao mesmo tempo
+        List<Callable<Void>> tasks = byInvitee.values().stream()
+                .map(webhooks -> (Callable<Void>) () -> {
+                    webhooks.forEach(this::process);
+                    return null;
+                })
+                .toList();
+        workers.invokeAll(tasks);
+    }
+
+    @Scheduled(fixedDelayString = "${calendly.webhook.cleanup-interval-ms}")
+    public void deleteProcessed() {
+        webhookRepository.deleteProcessedBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void process(ParsedWebhook parsed) {
+        CalendlyWebhookEntity entry = parsed.entry();
+        try {
+            chatService.scheduleMeeting(parsed.webhook().getPayload());
+            entry.setStatus(WebhookStatus.PROCESSED);
+            entry.setProcessedAt(LocalDateTime.now());
+            entry.setLastError(null);
+            webhookRepository.save(entry);
+        } catch (Exception e) {
+            System.err.println("Erro ao processar webhook " + entry.getId() + " do Calendly: " + e.getMessage());
+            reschedule(entry, e);
+        }
+    }
+
+    private void reschedule(CalendlyWebhookEntity entry, Exception error) {
+        int attempts = entry.getAttempts() + 1;
+        entry.setAttempts(attempts);
+        entry.setLastError(error.getMessage());
+        if (attempts >= maxAttempts) {
+            entry.setStatus(WebhookStatus.FAILED);
+        } else {
+            long delay = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 20));
+            entry.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+        }
+        webhookRepository.save(entry);
+    }
+
+    private void deadLetter(CalendlyWebhookEntity entry, String error) {
+        System.err.println("Webhook " + entry.getId() + " do Calendly descartado: " + error);
+        entry.setStatus(WebhookStatus.FAILED);
+        entry.setLastError(error);
+        webhookRepository.save(entry);
+    }
+
+    private record ParsedWebhook(CalendlyWebhookEntity entry, CalendlyWebhookWrapper webhook) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.calendly.CalendlyWebhookWrapper;
+import com.verzel.challenge.dto.calendly.WebhookPayload;
+import com.verzel.challenge.repository.CalendlyWebhookRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Recebe os webhooks do Calendly: a entrega é gravada no {@code calendly_webhook} e o processamento
+ * (lead, outbox do Pipefy e mensagem no chat) fica para o {@link CalendlyWebhookDispatcher}, então a resposta
+ * ao Calendly só espera por um INSERT.
+ */
+@Service
+public class CalendlyWebhookService {
+    private final CalendlyWebhookRepository webhookRepository;
+    private final ObjectMapper mapper;
+
+    public CalendlyWebhookService(CalendlyWebhookRepository webhookRepository, ObjectMapper mapper) {
+        this.webhookRepository = webhookRepository;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Grava a entrega para processamento.
+     * @param webhook O corpo do webhook.
+     * @return {@code true} se a entrega é nova, {@code false} se é uma reentrega de um webhook já recebido.
+     */
+    public boolean accept(CalendlyWebhookWrapper webhook) {
+        String payload;
+        try {
+            payload = mapper.writeValueAsString(webhook);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Erro ao serializar o webhook do Calendly", e);
+        }
+        return webhookRepository.insertIfAbsent(dedupeKey(webhook, payload), payload, LocalDateTime.now()) == 1;
+    }
+
+    /**
+     * Devolve os webhooks que esgotaram as tentativas para a fila.
+     * @return Quantos webhooks voltaram para a fila.
+     */
+    public int requeueFailed() {
+        return webhookRepository.requeueFailed(LocalDateTime.now());
+    }
+
+    /**
+     * Chave da entrega: o evento e a URI do invitee, que é única por agendamento. Sem ela, a URI do evento
+     * agendado e o e-mail; sem nenhuma das duas, o hash do corpo.
+     */
+    static String dedupeKey(CalendlyWebhookWrapper webhook, String payload) {
+        WebhookPayload data = webhook.getPayload();
+        String identity = null;
+        if (data != null && data.getUri() != null) {
+            identity = data.getUri();
+        } else if (data != null && data.getScheduled_event() != null && data.getScheduled_event().getUri() != null) {
+            identity = data.getScheduled_event().getUri() + "#" + data.getInviteeEmail();
+        }
+        if (identity == null) {
+            identity = "md5:" + DigestUtils.md5DigestAsHex(payload.getBytes(StandardCharsets.UTF_8));
+        }
+        return webhook.getEvent() + "|" + identity;
+    }
+}
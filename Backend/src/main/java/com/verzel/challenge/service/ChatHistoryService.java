@@ -0,0 +1,90 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.dto.chat.HistoryCursor;
+import com.verzel.challenge.dto.chat.HistoryMessageDTO;
+import com.verzel.challenge.dto.chat.HistoryPageDTO;
+import com.verzel.challenge.repository.MessageRepository;
+import com.verzel.challenge.repository.MessageRepository.HistoryRow;
+import com.verzel.challenge.type.Sender;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Leitura do histórico de conversas do {@code message_tb}.
+ * <p>
+ * A paginação é por keyset: o cursor guarda a última mensagem entregue e a página seguinte começa
+ * logo antes dela pelo índice, sem OFFSET, então o custo de uma página não depende de quantas
+ * mensagens a conversa tem nem de qual página é. As páginas andam da mais recente para a mais antiga.
+ */
+@Service
+public class ChatHistoryService {
+    private final MessageRepository messageRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public ChatHistoryService(MessageRepository messageRepository,
+                              @Value("${chat.history.page-size}") int defaultPageSize,
+                              @Value("${chat.history.max-page-size}") int maxPageSize) {
+        this.messageRepository = messageRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Página do histórico de uma sessão de chat.
+     *
+     * @param sessionId O ID da sessão (cookie).
+     * @param cursor    O {@code nextCursor} da página anterior, ou {@code null} para as mensagens mais recentes.
+     * @param limit     Quantidade de mensagens da página, ou {@code null} para o padrão.
+     */
+    @Transactional(readOnly = true)
+    public HistoryPageDTO getSessionHistory(String sessionId, String cursor, Integer limit) {
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        int size = pageSize(limit);
+        try (Stream<HistoryRow> rows = messageRepository.streamSessionHistory(sessionId, after.createdAt(), after.id(), size + 1)) {
+            return toPage(rows, size);
+        }
+    }
+
+    /**
+     * Página do histórico de todas as sessões de um lead, da sessão mais recente para a mais antiga.
+     */
+    @Transactional(readOnly = true)
+    public HistoryPageDTO getLeadHistory(Long leadId, String cursor, Integer limit) {
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        int size = pageSize(limit);
+        try (Stream<HistoryRow> rows = messageRepository.streamLeadHistory(leadId, after.sessionPk(), after.createdAt(), after.id(), size + 1)) {
+            return toPage(rows, size);
+        }
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) return defaultPageSize;
+        return Math.min(limit, maxPageSize);
+    }
+
+    /**
+     * Lê até {@code size + 1} linhas: a linha extra só indica que existe outra página.
+     */
+    private HistoryPageDTO toPage(Stream<HistoryRow> rows, int size) {
+        List<HistoryMessageDTO> messages = new ArrayList<>(size);
+        HistoryCursor last = null;
+        boolean hasMore = false;
+        for (HistoryRow row : (Iterable<HistoryRow>) rows::iterator) {
+            if (messages.size() == size) {
+                hasMore = true;
+                break;
+            }
+            messages.add(new HistoryMessageDTO(row.getId(), row.getSessionId(), Sender.valueOf(row.getSender()), row.getContent(), row.getCreatedAt()));
+            last = new HistoryCursor(row.getSessionPk(), row.getCreatedAt(), row.getId());
+        }
+        Collections.reverse(messages);
+        return new HistoryPageDTO(messages, hasMore ? last.encode() : null);
+    }
+}
@@ -0,0 +1,250 @@
+package com.verzel.challenge.service;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Retenção das conversas: o {@code message_tb} é particionado por mês de {@code created_at} e as sessões
+ * anônimas expiram com o cookie (30 minutos), mas as linhas ficavam para sempre.
+ * <p>
+ * Diariamente o job:
+ * <ol>
+ *     <li>cria as partições do mês atual e dos próximos {@code months-ahead} meses;</li>
+ *     <li>para cada mês inteiro mais antigo que {@code max-age-days}, grava as mensagens que expiram em um
+ *     CSV compactado em {@code archive-dir}, copia as mensagens que ficam (sessões com lead ou com interação
+ *     recente) para a partição arquivada do mês ({@code message_tb_a<ano>m<mês>}, só se alguma ficar) e, em uma
+ *     transação curta, desanexa a partição original, derruba com um {@code DROP TABLE}, sem DELETE linha a linha,
+ *     e anexa a arquivada no lugar dela;</li>
+ *     <li>nas partições arquivadas, arquiva e apaga as mensagens das sessões que deixaram de ser mantidas (sem lead
+ *     e sem interação desde o corte). Elas só guardam as mensagens mantidas, então o DELETE é pequeno;</li>
+ *     <li>arquiva e apaga as sessões sem lead e sem interação desde o corte que não têm mais mensagens.</li>
+ * </ol>
+ * O arquivo é gravado antes de qualquer remoção; se algo falhar, a próxima execução refaz o mês.
+ * O {@code DETACH PARTITION} bloqueia o {@code message_tb} por um instante, por isso o horário padrão é de madrugada.
+ * <p>
+ * O {@code message_tb} não tem partição padrão: uma mensagem de um mês sem partição não é gravada. Por isso a
+ * criação das partições falha com exceção em vez de só registrar o erro; na inicialização, a aplicação não sobe.
+ */
+@Component
+public class ChatRetentionService {
+    private static final String PARTITION_PREFIX = "message_tb_y";
+    private static final String ARCHIVED_PARTITION_PREFIX = "message_tb_a";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy'm'MM");
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final int DELETE_BATCH_SIZE = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${chat.retention.max-age-days}")
+    private long maxAgeDays;
+    @Value("${chat.retention.archive-dir}")
+    private Path archiveDir;
+    @Value("${chat.retention.months-ahead}")
+    private int monthsAhead;
+
+    public ChatRetentionService(JdbcTemplate jdbcTemplate, DataSource dataSource, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createUpcomingPartitions() {
+        ensurePartitions(YearMonth.now());
+    }
+
+    @Scheduled(cron = "${chat.retention.cron}", scheduler = "chatRetentionScheduler")
+    public void run() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            ensurePartitions(YearMonth.from(now));
+            applyRetention(now);
+        } catch (Exception e) {
+            System.err.println("Erro na retenção das conversas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cria as partições de {@code from} até {@code from + months-ahead}, se ainda não existirem.
+     */
+    public void ensurePartitions(YearMonth from) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(from.plusMonths(i));
+        }
+    }
+
+    /**
+     * Arquiva e remove tudo o que ficou mais velho que {@code max-age-days} em relação a {@code now}.
+     */
+    public void applyRetention(LocalDateTime now) {
+        LocalDateTime cutoff = now.minusDays(maxAgeDays).truncatedTo(ChronoUnit.SECONDS);
+        for (YearMonth month : archivedPartitions()) {
+            pruneArchivedPartition(month, now, cutoff);
+        }
+        for (YearMonth month : partitions()) {
+            if (!month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                archivePartition(month, cutoff);
+            }
+        }
+        purgeAnonymousSessions(now, cutoff);
+    }
+
+    /**
+     * Os meses que têm partição própria, do mais antigo para o mais recente.
+     */
+    public List<YearMonth> partitions() {
+        return partitions(PARTITION_PREFIX);
+    }
+
+    /**
+     * Os meses já arquivados, cuja partição guarda só as mensagens mantidas, do mais antigo para o mais recente.
+     */
+    public List<YearMonth> archivedPartitions() {
+        return partitions(ARCHIVED_PARTITION_PREFIX);
+    }
+
+    private List<YearMonth> partitions(String prefix) {
+        return jdbcTemplate.queryForList("""
+                        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'message_tb'::regclass AND c.relname LIKE ?
+                        ORDER BY c.relname""", String.class, prefix + "%")
+                .stream()
+                .map(name -> YearMonth.parse(name.substring(prefix.length()), PARTITION_SUFFIX))
+                .toList();
+    }
+
+    private void createPartition(YearMonth month) {
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF message_tb"
+                    + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Não foi possível criar a partição " + partitionName(month)
+                    + "; as mensagens desse mês não podem ser gravadas", e);
+        }
+    }
+
+    private void archivePartition(YearMonth month, LocalDateTime cutoff) {
+        String partition = partitionName(month);
+        String target = archivedPartitionName(month);
+        String bounds = "'" + month.atDay(1) + "' AND created_at < '" + month.plusMonths(1).atDay(1) + "'";
+
+        long archived = archive(partition + ".csv.gz", "SELECT m.* FROM " + partition + " m WHERE NOT " + retained(cutoff));
+        // A arquivada é montada e preenchida antes do DETACH, com a partição ainda anexada: a cópia não segura o lock
+        // do message_tb. Uma sobra de execução que falhou nunca foi anexada (a partição do mês ainda existe)
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + target);
+        jdbcTemplate.execute("CREATE TABLE " + target + " (LIKE message_tb INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int kept = jdbcTemplate.update("INSERT INTO " + target + " SELECT m.* FROM " + partition + " m WHERE " + retained(cutoff));
+        if (kept == 0) {
+            jdbcTemplate.execute("DROP TABLE " + target);
+        } else {
+            // Com o CHECK equivalente ao intervalo, o ATTACH não precisa varrer a tabela para validá-la
+            jdbcTemplate.execute("ALTER TABLE " + target + " ADD CONSTRAINT " + target + "_range CHECK (created_at >= " + bounds + ")");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE message_tb DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            if (kept > 0) {
+                jdbcTemplate.execute("ALTER TABLE message_tb ATTACH PARTITION " + target
+                        + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            }
+        });
+        if (kept > 0) jdbcTemplate.execute("ALTER TABLE " + target + " DROP CONSTRAINT " + target + "_range");
+        System.out.println("Partição " + partition + " arquivada em " + target + ": " + archived + " mensagens arquivadas, " + kept + " mantidas");
+    }
+
+    private void pruneArchivedPartition(YearMonth month, LocalDateTime now, LocalDateTime cutoff) {
+        String partition = archivedPartitionName(month);
+        String expired = "FROM " + partition + " m WHERE NOT " + retained(cutoff);
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) " + expired, Integer.class);
+        if (count == null || count == 0) return;
+
+        archive(partition + "_" + now.format(ARCHIVE_TIMESTAMP) + ".csv.gz", "SELECT m.* " + expired);
+        int deleted = jdbcTemplate.update("DELETE " + expired);
+        System.out.println(deleted + " mensagens expiradas arquivadas e removidas de " + partition);
+    }
+
+    /**
+     * As mensagens que ficam: as de sessões com lead ou com interação desde o corte.
+     */
+    private static String retained(LocalDateTime cutoff) {
+        return "EXISTS (SELECT 1 FROM chat_tb c WHERE c.id = m.session_id"
+                + " AND (c.lead_id IS NOT NULL OR c.last_interaction >= " + timestamp(cutoff) + "))";
+    }
+
+    private void purgeAnonymousSessions(LocalDateTime now, LocalDateTime cutoff) {
+        String expired = "FROM chat_tb c WHERE c.lead_id IS NULL AND c.last_interaction < " + timestamp(cutoff)
+                + " AND NOT EXISTS (SELECT 1 FROM message_tb m WHERE m.session_id = c.id)";
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) " + expired, Integer.class);
+        if (count == null || count == 0) return;
+
+        archive("chat_tb_" + now.format(ARCHIVE_TIMESTAMP) + ".csv.gz", "SELECT c.* " + expired);
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM chat_tb WHERE id IN (SELECT c.id " + expired + " LIMIT " + DELETE_BATCH_SIZE + ")");
+        } while (deleted == DELETE_BATCH_SIZE);
+        System.out.println(count + " sessões anônimas arquivadas e removidas");
+    }
+
+    /**
+     * Grava o resultado da consulta em um CSV gzip via {@code COPY ... TO STDOUT}, linha a linha, sem
+     * carregar o resultado em memória. O arquivo só aparece com o nome final depois de completo.
+     *
+     * @return A quantidade de linhas gravadas.
+     */
+    private long archive(String fileName, String query) {
+        Path target = archiveDir.resolve(fileName);
+        Path partial = archiveDir.resolve(fileName + ".partial");
+        try {
+            Files.createDirectories(archiveDir);
+            long rows;
+            try (Connection connection = dataSource.getConnection();
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial))) {
+                rows = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyOut("COPY (" + query + ") TO STDOUT WITH (FORMAT csv, HEADER)", out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar o arquivo " + target, e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Erro ao exportar para " + target, e);
+        }
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private static String archivedPartitionName(YearMonth month) {
+        return ARCHIVED_PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    private static String timestamp(LocalDateTime value) {
+        return "timestamp '" + value + "'";
+    }
+}
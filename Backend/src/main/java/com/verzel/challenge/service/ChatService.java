@@ -1,71 +1,173 @@
 package com.verzel.challenge.service;
 
+import com.verzel.challenge.dto.calendly.AvailableSlots;
 import com.verzel.challenge.dto.calendly.WebhookPayload;
 import com.verzel.challenge.dto.chat.AIResponseDTO;
+import com.verzel.challenge.dto.chat.ChatStreamEvent;
 import com.verzel.challenge.dto.chat.MessageDTO;
 import com.verzel.challenge.dto.chat.ResponseDTO;
 import com.verzel.challenge.dto.pipefy.Lead;
 import com.verzel.challenge.entity.ChatSessionEntity;
 import com.verzel.challenge.entity.LeadEntity;
 import com.verzel.challenge.entity.MessageEntity;
+import com.verzel.challenge.jfr.JfrSession;
+import com.verzel.challenge.jfr.WebSocketPushEvent;
 import com.verzel.challenge.mapper.LeadMapper;
+import com.verzel.challenge.metrics.ChatMetrics;
+import com.verzel.challenge.metrics.TurnTrace;
+import com.verzel.challenge.parser.MensagemStreamExtractor;
 import com.verzel.challenge.repository.ChatSessionRepository;
 import com.verzel.challenge.repository.LeadRepository;
-import com.verzel.challenge.repository.MessageRepository;
 import com.verzel.challenge.type.ActionAI;
+import com.verzel.challenge.type.LeadField;
+import com.verzel.challenge.type.PipefyOperation;
 import com.verzel.challenge.type.ResponseAction;
 import com.verzel.challenge.type.Sender;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.Map;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 public class ChatService {
+    private static final String NO_AVAILABILITY_MESSAGE =
+            "No momento não há horários disponíveis na agenda. Nosso time vai entrar em contato pelo seu e-mail para combinar a reunião.";
+
     private final OpenAIService openAIService;
-    private final PipefyService pipefyService;
+    private final PipefyOutboxService pipefyOutboxService;
     private final CalendlyService calendlyService;
     private final ChatSessionRepository chatSessionRepository;
     private final LeadRepository leadRepository;
-    private final MessageRepository messageRepository;
+    private final MessageWriteBuffer messageWriteBuffer;
     private final SimpMessagingTemplate messagingTemplate;
+    private final Scheduler databaseScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionTurnSerializer turnSerializer;
+    private final ChatSessionCache chatSessionCache;
+    private final ChatMetrics chatMetrics;
 
-    public ChatService(OpenAIService openAIService, PipefyService pipefyService, CalendlyService calendlyService, ChatSessionRepository chatSessionRepository, LeadRepository leadRepository, MessageRepository messageRepository, SimpMessagingTemplate messagingTemplate) {
+    public ChatService(OpenAIService openAIService, PipefyOutboxService pipefyOutboxService, CalendlyService calendlyService, ChatSessionRepository chatSessionRepository, LeadRepository leadRepository, MessageWriteBuffer messageWriteBuffer, SimpMessagingTemplate messagingTemplate, Scheduler databaseScheduler, TransactionTemplate transactionTemplate, SessionTurnSerializer turnSerializer, ChatSessionCache chatSessionCache, ChatMetrics chatMetrics) {
         this.openAIService = openAIService;
-        this.pipefyService = pipefyService;
+        this.pipefyOutboxService = pipefyOutboxService;
         this.calendlyService = calendlyService;
         this.chatSessionRepository = chatSessionRepository;
         this.leadRepository = leadRepository;
-        this.messageRepository = messageRepository;
+        this.messageWriteBuffer = messageWriteBuffer;
         this.messagingTemplate = messagingTemplate;
+        this.databaseScheduler = databaseScheduler;
+        this.transactionTemplate = transactionTemplate;
+        this.turnSerializer = turnSerializer;
+        this.chatSessionCache = chatSessionCache;
+        this.chatMetrics = chatMetrics;
     }
 
     /**
      * Processa a mensagem recebida do usuário, interage com a IA e executa as ações necessárias.
+     * Turnos da mesma sessão são executados um de cada vez, na ordem de chegada.
      *
      * @param userMessage A mensagem enviada pelo usuário.
      * @param sessionId   O ID da sessão de chat atual.
+     * @param trace       O {@link TurnTrace} que recebe o tempo de cada etapa do turno.
      * @return Um {@link ResponseDTO} contendo a resposta para o cliente.
      */
-    public ResponseDTO handleMessage(MessageDTO userMessage, String sessionId){
-        ChatSessionEntity chat = getChatBySessionId(sessionId);
-        Lead lead = LeadMapper.toLead(chat.getLead());
+    public ResponseDTO handleMessage(MessageDTO userMessage, String sessionId, TurnTrace trace){
+        return chatMetrics.time(trace, () -> turnSerializer.runInOrder(sessionId, () -> JfrSession.with(sessionId, () -> {
+            trace.queued();
+            ChatSessionEntity chat = trace.time("session", () -> getChatBySessionId(sessionId));
+            Lead lead = LeadMapper.toLead(chat.getLead());
 
-        AIResponseDTO aiResponse = openAIService.askAssistant(chat.getPreviousResponseId(),userMessage.message(), lead);
-        ResponseDTO response = handleAIAction(aiResponse,chat);
-        storeMessages(chat,userMessage,aiResponse.getMensagem());
+            AIResponseDTO aiResponse = trace.time("llm", () -> openAIService.askAssistant(chat.getPreviousResponseId(), chat.getPromptVersion(), userMessage.message(), lead));
+            ResponseDTO response = handleAIAction(aiResponse,chat,trace);
+            trace.run("store", () -> storeMessages(chat,userMessage,aiResponse.getMensagem()));
 
-        return response;
+            return response;
+        })));
     };
 
+    /**
+     * Versão reativa do {@link #handleMessage}: as chamadas à OpenAI e ao Calendly não bloqueiam,
+     * e o acesso ao banco roda no {@code databaseScheduler}, fora das threads do event loop.
+     * Os bulkheads das duas valem aqui também, sem bloquear enquanto esperam por permissão.
+     *
+     * @param userMessage A mensagem enviada pelo usuário.
+     * @param sessionId   O ID da sessão de chat atual.
+     * @param trace       O {@link TurnTrace} que recebe o tempo de cada etapa do turno.
+     * @return Um {@link Mono} com o {@link ResponseDTO} para o cliente.
+     */
+    public Mono<ResponseDTO> handleMessageReactive(MessageDTO userMessage, String sessionId, TurnTrace trace) {
+        return chatMetrics.time(trace, turnSerializer.runInOrderAsync(sessionId, () -> Mono.fromRunnable(trace::queued)
+                .then(trace.time("session", onDatabase(() -> getChatBySessionId(sessionId))))
+                .flatMap(chat -> trace.time("llm", openAIService
+                                .askAssistantAsync(chat.getPreviousResponseId(), chat.getPromptVersion(), userMessage.message(), LeadMapper.toLead(chat.getLead())))
+                        .flatMap(aiResponse -> handleAIActionReactive(aiResponse, chat, trace)
+                                .flatMap(response -> trace.time("store", onDatabase(() -> {
+                                    storeMessages(chat, userMessage, aiResponse.getMensagem());
+                                    return response;
+                                })))))
+                .contextWrite(JfrSession.context(sessionId))));
+    }
+
+    /**
+     * Versão em streaming do {@link #handleMessage}: repassa o texto do campo {@code mensagem}
+     * conforme a OpenAI o gera e, quando o objeto da IA termina, executa a action e armazena as mensagens.
+     *
+     * @param userMessage A mensagem enviada pelo usuário.
+     * @param sessionId   O ID da sessão de chat atual.
+     * @param trace       O {@link TurnTrace} do turno. No streaming os headers saem antes do fim do turno, então os
+     *                    tempos vão só para o log; {@code first_token} é o tempo até o primeiro texto da IA.
+     * @return Um {@link Flux} de {@link ChatStreamEvent}: deltas de texto seguidos de um evento final com o {@link ResponseDTO}.
+     */
+    public Flux<ChatStreamEvent> streamMessage(MessageDTO userMessage, String sessionId, TurnTrace trace) {
+        return chatMetrics.time(trace, turnSerializer.enqueue(sessionId, () -> Mono.fromRunnable(trace::queued)
+                .then(trace.time("session", onDatabase(() -> getChatBySessionId(sessionId))))
+                .flatMapMany(chat -> {
+                    MensagemStreamExtractor extractor = new MensagemStreamExtractor();
+                    Lead lead = LeadMapper.toLead(chat.getLead());
+                    long llmStart = System.nanoTime();
+                    AtomicBoolean firstToken = new AtomicBoolean(true);
+                    return openAIService.streamAssistant(chat.getPreviousResponseId(), chat.getPromptVersion(), userMessage.message(), lead)
+                            .concatMap(event -> {
+                                if (!event.isCompleted()) {
+                                    String text = extractor.feed(event.delta());
+                                    if (text.isEmpty()) return Mono.<ChatStreamEvent>empty();
+                                    if (firstToken.getAndSet(false)) trace.record("first_token", llmStart);
+                                    return Mono.just(ChatStreamEvent.delta(text));
+                                }
+                                trace.record("llm", llmStart);
+                                // A action envolve banco e Calendly, então sai da thread do WebClient
+                                return Mono.fromCallable(() -> JfrSession.call(sessionId, () -> {
+                                    AIResponseDTO aiResponse = event.response();
+                                    ResponseDTO response = handleAIAction(aiResponse, chat, trace);
+                                    trace.run("store", () -> storeMessages(chat, userMessage, aiResponse.getMensagem()));
+                                    return ChatStreamEvent.done(response);
+                                })).subscribeOn(Schedulers.boundedElastic());
+                            });
+                })
+                .contextWrite(JfrSession.context(sessionId))))
+                .onErrorResume(e -> Mono.just(ChatStreamEvent.error(e.getMessage())));
+    }
+
     /**
      * Manipula o webhook de agendamento de reunião (ex: do Calendly).
-     * Atualiza o lead com o link da reunião no banco de dados e no Pipefy,
-     * e notifica o usuário via WebSocket, se aplicável.
+     * Atualiza o lead com o link da reunião no banco de dados, agenda a atualização do card no Pipefy
+     * via outbox e notifica o usuário via WebSocket, se aplicável.
+     * Chamado pelo {@link CalendlyWebhookDispatcher}, que refaz a chamada em caso de erro.
      * @param payload O payload recebido do webhook com os detalhes do agendamento.
      */
     public void scheduleMeeting(WebhookPayload payload){
@@ -76,25 +178,39 @@ public class ChatService {
         boolean differentMeetingLink = !Objects.equals(lead.getMeetingLink(), meetingLink);
 
         lead.setMeetingLink(meetingLink);
-        leadRepository.save(lead);
-        pipefyService.updateCardMeetingFields(
-                lead.getCardId(),
-                meetingLink,
-                payload.getScheduled_event().getStart_time()
-        );
-
-        ChatSessionEntity lastChat = chatSessionRepository
-                .findFirstByLeadIdOrderByLastInteractionDesc(lead.getId())
-                .orElse(null);
-
-        if (lastChat != null && differentMeetingLink) {
+        transactionTemplate.executeWithoutResult(status -> {
+            leadRepository.save(lead);
+            pipefyOutboxService.enqueue(lead.getId(), PipefyOperation.UPDATE_MEETING, payload.getScheduled_event().getStart_time());
+        });
+
+        String lastSessionId = chatSessionRepository.findLatestSessionIdByLeadId(lead.getId()).orElse(null);
+
+        if (lastSessionId != null && differentMeetingLink) {
             ResponseDTO response = new ResponseDTO(
                     ResponseAction.talk,
                     "Aqui está o link da nossa reunião " + meetingLink + " , aguardamos você lá!",
                     ""
             );
-            messagingTemplate.convertAndSend("/topic/" + lastChat.getSessionId(), response);
+            push(lastSessionId, response);
+        }
+    }
+
+    /**
+     * Envia a resposta ao navegador pelo WebSocket, registrando o tamanho do payload no JFR.
+     */
+    private void push(String sessionId, ResponseDTO response) {
+        String destination = "/topic/" + sessionId;
+        WebSocketPushEvent event = WebSocketPushEvent.start(destination, sessionId);
+        if (event == null) {
+            messagingTemplate.convertAndSend(destination, response);
+            return;
         }
+        AtomicLong payloadBytes = new AtomicLong();
+        messagingTemplate.convertAndSend(destination, response, message -> {
+            if (message.getPayload() instanceof byte[] payload) payloadBytes.set(payload.length);
+            return message;
+        });
+        event.finish(payloadBytes.get());
     }
 
     /**
@@ -102,22 +218,25 @@ public class ChatService {
      *
      * @param response A resposta da IA, contendo a ação a ser executada.
      * @param chat     A entidade da sessão de chat atual.
+     * @param trace    O {@link TurnTrace} do turno.
      * @return Um {@link ResponseDTO} formatado de acordo com a ação da IA.
      */
-    private ResponseDTO handleAIAction(AIResponseDTO response, ChatSessionEntity chat) {
-        chat.setPreviousResponseId(response.getId());
-        chatSessionRepository.save(chat);
+    private ResponseDTO handleAIAction(AIResponseDTO response, ChatSessionEntity chat, TurnTrace trace) {
+        trace.run("chain", () -> savePreviousResponseId(chat, response.getId()));
+        chatMetrics.action(response.getAction());
+        trace.setAction(response.getAction());
 
         if (response.getAction() == null) return new ResponseDTO(ResponseAction.talk, response.getMensagem(), "");
 
         switch (response.getAction()) {
             case ActionAI.registrarLead -> {
-                createOrUpdateLead(response, chat);
+                trace.run("lead", () -> createOrUpdateLead(response, chat));
                 return new ResponseDTO(ResponseAction.talk, response.getMensagem(), "");
             }
             case ActionAI.oferecerHorarios -> {
-                createOrUpdateLead(response,chat);
-                return new ResponseDTO(ResponseAction.offer, response.getMensagem(), calendlyService.getAvailableSlots(response.getLead()));
+                trace.run("lead", () -> createOrUpdateLead(response,chat));
+                AvailableSlots slots = trace.time("calendly", () -> calendlyService.getAvailableSlots(response.getLead()));
+                return offerResponse(response, slots);
             }
             default -> {
                 return new ResponseDTO(ResponseAction.talk, response.getMensagem(), "");
@@ -126,32 +245,100 @@ public class ChatService {
 
     }
 
+    /**
+     * Versão reativa do {@link #handleAIAction}.
+     */
+    private Mono<ResponseDTO> handleAIActionReactive(AIResponseDTO response, ChatSessionEntity chat, TurnTrace trace) {
+        Mono<Void> saveChat = trace.time("chain", onDatabase(() -> savePreviousResponseId(chat, response.getId()))).then();
+        chatMetrics.action(response.getAction());
+        trace.setAction(response.getAction());
+
+        if (response.getAction() == null) {
+            return saveChat.thenReturn(new ResponseDTO(ResponseAction.talk, response.getMensagem(), ""));
+        }
+
+        return switch (response.getAction()) {
+            case ActionAI.registrarLead -> saveChat
+                    .then(trace.time("lead", createOrUpdateLeadReactive(response, chat)))
+                    .thenReturn(new ResponseDTO(ResponseAction.talk, response.getMensagem(), ""));
+            case ActionAI.oferecerHorarios -> saveChat
+                    .then(trace.time("lead", createOrUpdateLeadReactive(response, chat)))
+                    .then(trace.time("calendly", calendlyService.getAvailableSlotsAsync(response.getLead())))
+                    .map(slots -> offerResponse(response, slots));
+            default -> saveChat.thenReturn(new ResponseDTO(ResponseAction.talk, response.getMensagem(), ""));
+        };
+    }
+
+    /**
+     * Resposta da ação {@code oferecerHorarios}. Sem horários dentro do horizonte de busca, o lead é avisado de que
+     * o time vai entrar em contato em vez de receber uma oferta vazia.
+     */
+    private ResponseDTO offerResponse(AIResponseDTO response, AvailableSlots slots) {
+        if (slots.isEmpty()) {
+            return new ResponseDTO(ResponseAction.talk, response.getMensagem() + "\n\n" + NO_AVAILABILITY_MESSAGE, "");
+        }
+        return new ResponseDTO(ResponseAction.offer, response.getMensagem(), slots.slots());
+    }
+
+    /**
+     * Versão reativa do {@link #createOrUpdateLead}. O Pipefy já saiu do caminho (outbox),
+     * então só resta a transação no banco.
+     */
+    private Mono<Void> createOrUpdateLeadReactive(AIResponseDTO response, ChatSessionEntity chat) {
+        return onDatabase(() -> {
+            createOrUpdateLead(response, chat);
+            return chat;
+        }).then();
+    }
+
+    /**
+     * Executa uma operação bloqueante de banco no {@code databaseScheduler}.
+     */
+    private <T> Mono<T> onDatabase(Callable<T> operation) {
+        // O session ID do contexto acompanha a operação até a thread de banco (eventos do JFR)
+        return Mono.deferContextual(context -> Mono.fromCallable(() -> JfrSession.call(JfrSession.from(context), operation)))
+                .subscribeOn(databaseScheduler);
+    }
+
     /**
     * Cria um novo lead ou atualiza um existente com base na resposta da IA.
-    * Sincroniza as informações com o banco de dados local e com o Pipefy.
+    * As alterações no banco e os registros no outbox do Pipefy são gravados na mesma transação;
+    * a sincronização com o Pipefy acontece depois, no {@link PipefyOutboxDispatcher}.
     *
     * @param response A resposta da IA contendo os dados do lead.
     * @param chat     A entidade da sessão de chat para associar ao lead.
     */
     private void createOrUpdateLead(AIResponseDTO response, ChatSessionEntity chat) {
-        LeadEntity databaseLead = chat.getLead();
-        Lead assistantLead = response.getLead();
-
-        // Criação de novo lead se não existir e tiver email
-        if (databaseLead == null && assistantLead.getEmail() != null) {
-            databaseLead = criarOuRecuperarLead(assistantLead.getEmail());
-            associarLeadAoChat(chat, databaseLead);
+        try {
+            doCreateOrUpdateLead(response, chat);
+        } catch (RuntimeException e) {
+            // O cache pode ter recebido a associação com um lead que sofreu rollback
+            chatSessionCache.evict(chat.getSessionId());
+            throw e;
         }
+    }
 
-        // Atualização do lead existente
-        if (databaseLead != null) {
-            atualizarDadosDoLead(databaseLead, assistantLead);
-        }
+    private void doCreateOrUpdateLead(AIResponseDTO response, ChatSessionEntity chat) {
+        transactionTemplate.executeWithoutResult(status -> {
+            LeadEntity databaseLead = chat.getLead();
+            Lead assistantLead = response.getLead();
+
+            // Criação de novo lead se não existir e tiver email
+            if (databaseLead == null && assistantLead.getEmail() != null) {
+                databaseLead = criarOuRecuperarLead(assistantLead.getEmail());
+                associarLeadAoChat(chat, databaseLead);
+            }
+
+            // Atualização do lead existente
+            if (databaseLead != null) {
+                atualizarDadosDoLead(databaseLead, assistantLead);
+            }
+        });
     }
 
     /**
     * Cria um novo lead ou recupera um existente pelo email.
-    * Se o lead não existir, cria um card no Pipefy.
+    * Se o lead não existir, agenda a criação do card no Pipefy.
     */
     private LeadEntity criarOuRecuperarLead(String email) {
         return leadRepository.findByEmailIgnoreCase(email)
@@ -159,13 +346,12 @@ public class ChatService {
     }
 
     /**
-    * Cria um novo lead no banco e no Pipefy.
+    * Cria um novo lead no banco e agenda a criação do card no Pipefy.
     */
     private LeadEntity criarNovoLeadComCard(String email) {
-        LeadEntity newLead = new LeadEntity(email);
-        String cardId = pipefyService.createCardWithEmail(email);
-        newLead.setCardId(cardId);
-        return leadRepository.save(newLead);
+        LeadEntity newLead = leadRepository.save(new LeadEntity(email));
+        pipefyOutboxService.enqueue(newLead.getId(), PipefyOperation.CREATE_CARD, null);
+        return newLead;
     }
 
     /**
@@ -173,29 +359,58 @@ public class ChatService {
     */
     private void associarLeadAoChat(ChatSessionEntity chat, LeadEntity lead) {
         chat.setLead(lead);
-        chatSessionRepository.save(chat);
+        saveChat(chat);
     }
 
     /**
-    * Atualiza os dados do lead no banco e no Pipefy.
+    * Atualiza os dados do lead no banco e agenda a atualização do card no Pipefy, só com os campos alterados.
+    * Se a IA repetiu os dados que o lead já tem, nada é gravado. A gravação parte do lead gerenciado pela transação,
+    * e não da cópia lida no início do turno: com o {@code @DynamicUpdate} só as colunas alteradas vão no update,
+    * então o que mudou durante o turno (ex: o {@code meeting_link} gravado pelo webhook) não é sobrescrito.
     */
     private void atualizarDadosDoLead(LeadEntity databaseLead, Lead assistantLead) {
-        databaseLead.setName(assistantLead.getNome());
-        databaseLead.setEmail(assistantLead.getEmail());
-        databaseLead.setCompany(assistantLead.getEmpresa());
-        databaseLead.setNecessity(assistantLead.getNecessidade());
-        databaseLead.setInterested(assistantLead.getInteresse());
-        
-        pipefyService.updateCardFields(
-            databaseLead.getCardId(),
-            assistantLead.getNome(),
-            assistantLead.getEmail(),
-            assistantLead.getEmpresa(),
-            assistantLead.getNecessidade(),
-            assistantLead.getInteresse()
-        );
-        
-        leadRepository.save(databaseLead);
+        boolean emailDisponivel = emailDisponivel(databaseLead, assistantLead.getEmail());
+        EnumSet<LeadField> changed = alterarDados(databaseLead, assistantLead, emailDisponivel);
+        if (changed.isEmpty()) return;
+
+        LeadEntity managedLead = leadRepository.findById(databaseLead.getId())
+                .orElseThrow(() -> new EntityNotFoundException("Lead " + databaseLead.getId() + " não encontrado"));
+        if (managedLead != databaseLead) {
+            // Lead lido fora da transação: as alterações valem contra o estado atual do banco
+            changed = alterarDados(managedLead, assistantLead, emailDisponivel);
+            if (changed.isEmpty()) return;
+        }
+
+        leadRepository.save(managedLead);
+        pipefyOutboxService.enqueue(managedLead.getId(), PipefyOperation.UPDATE_FIELDS, LeadField.format(changed));
+    }
+
+    private static EnumSet<LeadField> alterarDados(LeadEntity lead, Lead assistantLead, boolean emailDisponivel) {
+        EnumSet<LeadField> changed = EnumSet.noneOf(LeadField.class);
+        alterar(changed, LeadField.NAME, lead.getName(), assistantLead.getNome(), lead::setName);
+        if (emailDisponivel) {
+            alterar(changed, LeadField.EMAIL, lead.getEmail(), assistantLead.getEmail(), lead::setEmail);
+        }
+        alterar(changed, LeadField.COMPANY, lead.getCompany(), assistantLead.getEmpresa(), lead::setCompany);
+        alterar(changed, LeadField.NECESSITY, lead.getNecessity(), assistantLead.getNecessidade(), lead::setNecessity);
+        alterar(changed, LeadField.INTERESTED, lead.getInterested(), assistantLead.getInteresse(), lead::setInterested);
+        return changed;
+    }
+
+    private static <T> void alterar(Set<LeadField> changed, LeadField field, T current, T value, Consumer<T> setter) {
+        if (Objects.equals(current, value)) return;
+        setter.accept(value);
+        changed.add(field);
+    }
+
+    /**
+    * O e-mail é único por lead: uma troca para um e-mail que já pertence a outro lead é ignorada.
+    */
+    private boolean emailDisponivel(LeadEntity databaseLead, String email) {
+        if (email == null || email.equalsIgnoreCase(databaseLead.getEmail())) return true;
+        return leadRepository.findByEmailIgnoreCase(email)
+                .map(other -> other.getId().equals(databaseLead.getId()))
+                .orElse(true);
     }
 
     /**
@@ -206,29 +421,72 @@ public class ChatService {
      * @param assistantMessage A resposta gerada pelo assistente.
      */
     private void storeMessages(ChatSessionEntity chat, MessageDTO userMessage,String assistantMessage){
-        messageRepository.save(new MessageEntity(Sender.USER, userMessage.message(),chat));
-        messageRepository.save(new MessageEntity(Sender.ASSISTANT,assistantMessage,chat));
+        messageWriteBuffer.store(List.of(
+                new MessageEntity(Sender.USER, userMessage.message(),chat),
+                new MessageEntity(Sender.ASSISTANT,assistantMessage,chat)
+        ));
     }
 
     /**
      * Recupera uma sessão de chat existente pelo ID da sessão ou cria uma nova se não existir.
+     * Consulta primeiro o {@link ChatSessionCache}; em caso de hit, só o lead é lido do banco, pela chave primária,
+     * para o turno nunca trabalhar com uma cópia antiga dele.
      *
      * @param sessionId O ID da sessão a ser buscada ou criada.
      * @return A entidade {@link ChatSessionEntity} correspondente.
      */
     private ChatSessionEntity getChatBySessionId(String sessionId){
+        ChatSessionCache.Entry cached = chatSessionCache.get(sessionId);
+        if (cached != null) return toChat(cached);
+
         ChatSessionEntity chat;
         Optional<ChatSessionEntity> chatSession = chatSessionRepository.findBySessionId(sessionId);
         if(chatSession.isEmpty()){
-            chat = new ChatSessionEntity(sessionId);
-            chat = chatSessionRepository.save(chat);
+            chat = chatSessionRepository.save(new ChatSessionEntity(sessionId));
         } else {
             chat = chatSession.get();
         }
+        chatSessionCache.put(chat);
         return chat;
     }
 
+    /**
+     * Monta a sessão do turno a partir do cache. A entidade fica destacada e é usada só como referência
+     * (mensagens, updates diretos), nunca salva com merge.
+     */
+    private ChatSessionEntity toChat(ChatSessionCache.Entry cached) {
+        ChatSessionEntity chat = new ChatSessionEntity(cached.sessionId());
+        chat.setId(cached.id());
+        chat.setPreviousResponseId(cached.previousResponseId());
+        chat.setPromptVersion(cached.promptVersion());
+        if (cached.leadId() != null) {
+            chat.setLead(leadRepository.findById(cached.leadId()).orElse(null));
+        }
+        return chat;
+    }
 
+    /**
+     * Grava a associação da sessão com o lead e atualiza o {@link ChatSessionCache} (write-through).
+     */
+    private ChatSessionEntity saveChat(ChatSessionEntity chat) {
+        chatSessionRepository.updateLead(chat.getId(), chat.getLead());
+        chatSessionCache.put(chat);
+        return chat;
+    }
 
+    /**
+     * Grava o {@code previousResponseId} do turno com um update direto (sem o select do merge).
+     * Uma cadeia nova (sem resposta anterior) começa com a versão atual do prompt.
+     */
+    private ChatSessionEntity savePreviousResponseId(ChatSessionEntity chat, String previousResponseId) {
+        LocalDateTime now = LocalDateTime.now();
+        String promptVersion = chat.getPreviousResponseId() == null ? openAIService.getPromptVersion() : chat.getPromptVersion();
+        chatSessionRepository.updateResponseChain(chat.getId(), previousResponseId, promptVersion, now);
+        chat.setPreviousResponseId(previousResponseId);
+        chat.setPromptVersion(promptVersion);
+        chat.setLastInteraction(now);
+        chatSessionCache.put(chat);
+        return chat;
+    }
 
 }
@@ -0,0 +1,60 @@
+package com.verzel.challenge.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.verzel.challenge.entity.ChatSessionEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cache em memória das sessões de chat, por {@code sessionId}.
+ * <p>
+ * Evita a consulta da sessão ao banco no início de cada turno só para ler o {@code previousResponseId}.
+ * Guarda só os IDs e o estado da cadeia ({@link Entry}), nunca o lead: o lead muda fora do turno (webhook do
+ * Calendly, outra sessão do mesmo lead) e é sempre lido do banco pelo {@link ChatService}.
+ * É limitado por tamanho e por TTL; o TTL padrão acompanha o {@code Max-Age} de 30 minutos do cookie da
+ * sessão, depois disso o navegador deixa de enviar a sessão. O {@link ChatService} grava no cache
+ * sempre que salva a sessão (write-through). As métricas ficam em {@code /actuator/metrics/cache.gets},
+ * {@code cache.evictions} etc, com a tag {@code cache=chat.sessions}.
+ */
+@Component
+public class ChatSessionCache {
+    private final Cache<String, Entry> cache;
+
+    /**
+     * O que o turno precisa da sessão, além do lead.
+     */
+    public record Entry(Long id, String sessionId, Long leadId, String previousResponseId, String promptVersion) {
+        static Entry of(ChatSessionEntity session) {
+            Long leadId = session.getLead() == null ? null : session.getLead().getId();
+            return new Entry(session.getId(), session.getSessionId(), leadId, session.getPreviousResponseId(), session.getPromptVersion());
+        }
+    }
+
+    public ChatSessionCache(@Value("${chat.session-cache.max-size}") long maxSize,
+                            @Value("${chat.session-cache.ttl-minutes}") long ttlMinutes,
+                            MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "chat.sessions");
+    }
+
+    public Entry get(String sessionId) {
+        return cache.getIfPresent(sessionId);
+    }
+
+    public void put(ChatSessionEntity session) {
+        cache.put(session.getSessionId(), Entry.of(session));
+    }
+
+    public void evict(String sessionId) {
+        cache.invalidate(sessionId);
+    }
+}
@@ -0,0 +1,118 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.dto.admin.RecordingStatusDTO;
+import jakarta.persistence.EntityNotFoundException;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Gravação do JDK Flight Recorder controlada pelos endpoints {@code /admin/jfr}.
+ * <p>
+ * A gravação guarda os últimos {@code jfr.max-age-minutes} em disco, junto com os eventos do pacote {@code jfr}
+ * (turnos, chamadas externas, repositórios e WebSocket). Um dump grava esse período em {@code jfr.dump-dir}
+ * para ser aberto no JDK Mission Control, onde os turnos lentos aparecem ao lado de GC, locks e threads.
+ */
+@Service
+public class FlightRecordingService {
+    private static final String RECORDING_NAME = "challenge";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS");
+
+    @Value("${jfr.dump-dir}")
+    private Path dumpDir;
+    @Value("${jfr.settings}")
+    private String settings;
+    @Value("${jfr.max-age-minutes}")
+    private long maxAgeMinutes;
+    @Value("${jfr.start-on-boot}")
+    private boolean startOnBoot;
+
+    private Recording recording;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnBoot() {
+        if (startOnBoot) start();
+    }
+
+    public synchronized RecordingStatusDTO status() {
+        return status(null);
+    }
+
+    /**
+     * Inicia a gravação; se já houver uma em andamento, só devolve o estado dela.
+     */
+    public synchronized RecordingStatusDTO start() {
+        if (recording == null) {
+            Recording newRecording = new Recording(configuration());
+            newRecording.setName(RECORDING_NAME);
+            newRecording.setToDisk(true);
+            newRecording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+            newRecording.start();
+            recording = newRecording;
+        }
+        return status(null);
+    }
+
+    /**
+     * Grava em disco o que a gravação tem até agora, sem interrompê-la.
+     */
+    public synchronized RecordingStatusDTO dump() {
+        return status(dumpTo(requireRecording()));
+    }
+
+    /**
+     * Encerra a gravação e grava o conteúdo final em disco.
+     */
+    public synchronized RecordingStatusDTO stop() {
+        Recording current = requireRecording();
+        current.stop();
+        Path file = dumpTo(current);
+        current.close();
+        recording = null;
+        return status(file);
+    }
+
+    private Recording requireRecording() {
+        if (recording == null) throw new EntityNotFoundException("Nenhuma gravação do JFR em andamento");
+        return recording;
+    }
+
+    private Path dumpTo(Recording current) {
+        try {
+            Files.createDirectories(dumpDir);
+            Path file = dumpDir.resolve(RECORDING_NAME + "-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr").toAbsolutePath();
+            current.dump(file);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar o dump do JFR", e);
+        }
+    }
+
+    private Configuration configuration() {
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Configuração do JFR inválida: " + settings, e);
+        }
+    }
+
+    private RecordingStatusDTO status(Path file) {
+        return new RecordingStatusDTO(
+                recording != null,
+                settings,
+                recording == null ? null : recording.getStartTime(),
+                file == null ? null : file.toString());
+    }
+}
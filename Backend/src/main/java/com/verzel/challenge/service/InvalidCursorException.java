@@ -0,0 +1,7 @@
+package com.verzel.challenge.service;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,191 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.entity.MessageEntity;
+import com.verzel.challenge.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grava as mensagens do chat no {@code message_tb}.
+ * <p>
+ * Em {@code chat.messages.durability=sync} as mensagens do turno são gravadas na hora, em um único
+ * batch JDBC. Em {@code async} elas entram em um buffer em memória e uma thread dedicada grava os turnos
+ * de várias sessões juntos, em lotes multi-row, quando o lote enche ({@code batch-size}) ou quando o
+ * primeiro turno do lote espera {@code flush-interval-ms}. Nesse modo, uma queda do processo perde no
+ * máximo o conteúdo do buffer. Se o buffer estiver cheio, o turno é gravado de forma síncrona.
+ * <p>
+ * Um lote que falha {@code MAX_FLUSH_ATTEMPTS} vezes não é descartado: fica retido e a thread volta a tentar
+ * com backoff. Enquanto houver lote retido, os turnos deixam de entrar no buffer e são gravados de forma
+ * síncrona, depois do lote retido e do que ainda estava no buffer, para manter a ordem das mensagens. Com o
+ * banco fora do ar o turno falha como no modo {@code sync}, em vez de acumular mensagens em memória.
+ */
+@Component
+public class MessageWriteBuffer {
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+    private static final long MAX_RETRY_BACKOFF_MS = 30_000;
+
+    private final MessageRepository messageRepository;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<List<MessageEntity>> buffer;
+    private final Object writeLock = new Object();
+    // Lote que esgotou as tentativas; só muda com o writeLock
+    private volatile List<MessageEntity> held;
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessageWriteBuffer(MessageRepository messageRepository,
+                              @Value("${chat.messages.durability}") String durability,
+                              @Value("${chat.messages.batch-size}") int batchSize,
+                              @Value("${chat.messages.flush-interval-ms}") long flushIntervalMs,
+                              @Value("${chat.messages.buffer-capacity}") int bufferCapacity) {
+        this.messageRepository = messageRepository;
+        this.async = "async".equalsIgnoreCase(durability);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) return;
+        running = true;
+        flusher = Thread.ofPlatform().name("message-write-behind").daemon().start(this::flushLoop);
+    }
+
+    /**
+     * Grava as mensagens de um turno, de forma síncrona ou via buffer, conforme a durabilidade configurada.
+     *
+     * @param messages As mensagens do turno (usuário e assistente), na ordem em que devem ser gravadas.
+     */
+    public void store(List<MessageEntity> messages) {
+        if (async && held != null) {
+            synchronized (writeLock) {
+                flushHeld();
+                messageRepository.saveAll(messages);
+            }
+        } else if (!async || !buffer.offer(messages)) {
+            messageRepository.saveAll(messages);
+        }
+    }
+
+    private void flushLoop() {
+        long backoffMs = flushIntervalMs;
+        while (running || !buffer.isEmpty() || held != null) {
+            try {
+                if (held != null) {
+                    boolean flushed;
+                    synchronized (writeLock) {
+                        flushed = retryHeld();
+                    }
+                    if (flushed) {
+                        backoffMs = flushIntervalMs;
+                    } else if (!running) {
+                        discardHeld();
+                    } else {
+                        Thread.sleep(backoffMs);
+                        backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+                    }
+                    continue;
+                }
+                List<MessageEntity> first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                List<MessageEntity> batch = new ArrayList<>(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    List<MessageEntity> next = remaining > 0 && running ? buffer.poll(remaining, TimeUnit.NANOSECONDS) : buffer.poll();
+                    if (next == null) break;
+                    batch.addAll(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // O shutdown interrompe a espera; o loop continua até esvaziar o buffer
+            }
+        }
+    }
+
+    private void flush(List<MessageEntity> batch) {
+        for (int attempt = 1; attempt <= MAX_FLUSH_ATTEMPTS; attempt++) {
+            try {
+                messageRepository.saveAll(batch);
+                return;
+            } catch (Exception e) {
+                System.err.println("Erro ao gravar lote de mensagens (tentativa " + attempt + "): " + e.getMessage());
+                resetIds(batch);
+            }
+        }
+        System.err.println(batch.size() + " mensagens retidas após " + MAX_FLUSH_ATTEMPTS + " tentativas; turnos gravados de forma síncrona até o banco voltar");
+        synchronized (writeLock) {
+            held = batch;
+        }
+    }
+
+    /**
+     * Grava o lote retido seguido dos turnos que estavam no buffer. Chamado com o {@code writeLock}; se falhar,
+     * tudo continua retido e a exceção sobe.
+     */
+    private void flushHeld() {
+        if (held == null) return;
+        List<List<MessageEntity>> queued = new ArrayList<>();
+        buffer.drainTo(queued);
+        queued.forEach(held::addAll);
+        try {
+            messageRepository.saveAll(held);
+            held = null;
+        } catch (RuntimeException e) {
+            resetIds(held);
+            throw e;
+        }
+    }
+
+    private boolean retryHeld() {
+        // Um turno síncrono pode ter gravado o lote retido enquanto a thread esperava o backoff
+        if (held == null) return true;
+        try {
+            flushHeld();
+            System.out.println("Mensagens retidas gravadas; gravação em lotes retomada");
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao gravar " + held.size() + " mensagens retidas: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void discardHeld() {
+        synchronized (writeLock) {
+            if (held == null) return;
+            System.err.println(held.size() + " mensagens retidas descartadas no desligamento: o banco não voltou a tempo");
+            held = null;
+        }
+    }
+
+    private static void resetIds(List<MessageEntity> batch) {
+        // O rollback não desfaz os IDs já atribuídos; sem eles as mensagens voltam a ser tratadas como novas
+        batch.forEach(message -> message.setId(null));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) return;
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Quantidade de turnos aguardando gravação no buffer, sem contar o lote retido.
+     */
+    public int pending() {
+        return buffer.size();
+    }
+}
@@ -0,0 +1,55 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Cópia em disco dos metadados das integrações (phases e fields do Pipefy, URIs do Calendly), em
+ * {@code metadata.cache-dir}, um arquivo JSON por integração.
+ * <p>
+ * Num restart a aplicação começa com a última cópia enquanto os metadados são buscados de novo em segundo plano.
+ * Um arquivo ausente ou ilegível é ignorado: os metadados só ficam disponíveis depois da primeira busca.
+ */
+@Component
+public class MetadataCache {
+    private final ObjectMapper mapper;
+    private final Path dir;
+
+    public MetadataCache(ObjectMapper mapper, @Value("${metadata.cache-dir}") Path dir) {
+        this.mapper = mapper;
+        this.dir = dir;
+    }
+
+    public <T> Optional<T> read(String name, Class<T> type) {
+        Path file = dir.resolve(name + ".json");
+        if (!Files.isRegularFile(file)) return Optional.empty();
+        try {
+            return Optional.ofNullable(mapper.readValue(file.toFile(), type));
+        } catch (IOException e) {
+            System.err.println("Erro ao ler os metadados em cache de " + file + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Grava em um arquivo temporário e troca pelo definitivo, para um restart no meio da escrita não ler um JSON
+     * pela metade.
+     */
+    public void write(String name, Object value) {
+        try {
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(name + ".json.tmp");
+            mapper.writeValue(tmp.toFile(), value);
+            Files.move(tmp, dir.resolve(name + ".json"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar os metadados de " + name + " em " + dir + ": " + e.getMessage());
+        }
+    }
+}
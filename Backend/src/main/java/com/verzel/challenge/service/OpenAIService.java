@@ -1,28 +1,101 @@
 package com.verzel.challenge.service;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.verzel.challenge.dto.chat.AIResponseBodyDTO;
 import com.verzel.challenge.dto.chat.AIResponseDTO;
+import com.verzel.challenge.dto.chat.AIStreamEvent;
 import com.verzel.challenge.dto.pipefy.Lead;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.parser.AIResponseDecoder;
+import com.verzel.challenge.resilience.Bulkhead;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Cliente da Responses API da OpenAI.
+ * <p>
+ * O prompt do sistema é um arquivo versionado ({@code prompts/<openai.prompt-version>.txt}), lido uma vez na
+ * inicialização e enviado sempre byte a byte igual, para que o prompt caching automático da OpenAI reaproveite
+ * o prefixo. Tudo o que muda por usuário (o estado do lead) vai depois, como um item curto do {@code input}.
+ * <p>
+ * As {@code instructions} da Responses API não são herdadas via {@code previous_response_id}; os itens do
+ * {@code input} são. Por isso o prompt entra como o primeiro item da cadeia e não é reenviado nos turnos
+ * seguintes. Cadeias iniciadas com outra versão do prompt recebem o prompt atual em {@code instructions}.
+ * <p>
+ * A resposta é convertida pelo {@link AIResponseDecoder}. Com {@code openai.response-decoder=streaming} o corpo
+ * é lido direto dos buffers da rede pelo parser de tokens, sem a {@code String} intermediária nem o {@link AIResponseBodyDTO}.
+ */
 @Service
 public class OpenAIService {
     private final WebClient webClient;
+    private final ObjectMapper mapper;
+    private final AIResponseDecoder decoder;
+    private final boolean streamingDecoder;
+    private final ExternalCallMetrics externalCallMetrics;
 
-    public OpenAIService(@Value("${openai.token}") String openAIToken) {
-        this.webClient = WebClient.builder()
-                .baseUrl("https://api.openai.com/v1/responses")
+    private final Bulkhead bulkhead;
+    private final String promptVersion;
+    private final String systemPrompt;
+    private final Counter inputTokens;
+    private final Counter cachedTokens;
+    private final Counter outputTokens;
+
+    public OpenAIService(@Value("${openai.token}") String openAIToken,
+                         @Value("${openai.base-url}") String baseUrl,
+                         @Value("${openai.prompt-version}") String promptVersion,
+                         @Value("${openai.response-decoder}") String responseDecoder,
+                         @Qualifier("openAIBulkhead") Bulkhead bulkhead,
+                         MeterRegistry meterRegistry,
+                         ObjectMapper mapper,
+                         AIResponseDecoder decoder,
+                         WebClient.Builder webClientBuilder,
+                         ExternalCallMetrics externalCallMetrics) {
+        this.bulkhead = bulkhead;
+        this.externalCallMetrics = externalCallMetrics;
+        this.mapper = mapper;
+        this.decoder = decoder;
+        this.streamingDecoder = "streaming".equalsIgnoreCase(responseDecoder);
+        this.promptVersion = promptVersion;
+        this.systemPrompt = loadPrompt(promptVersion);
+        this.inputTokens = tokenCounter(meterRegistry, "input");
+        this.cachedTokens = tokenCounter(meterRegistry, "cached");
+        this.outputTokens = tokenCounter(meterRegistry, "output");
+        this.webClient = webClientBuilder
+                .baseUrl(baseUrl)
                 .defaultHeader("Authorization", "Bearer " + openAIToken)
                 .build();
     }
 
+    /**
+     * A versão do prompt que uma nova cadeia de respostas recebe; o chat guarda esse valor junto com o {@code previousResponseId}.
+     */
+    public String getPromptVersion() {
+        return promptVersion;
+    }
+
     /**
      * Envia uma pergunta para o assistente da OpenAI e retorna a resposta estruturada.
      * <p>
@@ -30,225 +103,166 @@ public class OpenAIService {
      * o fluxo de conversa obrigatório e as regras de negócio. Ele gerencia o contexto da conversa
      * usando o {@code previousResponseId}.
      * @param previousResponseId O ID da resposta anterior da IA, para manter o contexto da conversa. Pode ser nulo.
+     * @param chainPromptVersion A versão do prompt com que a cadeia do {@code previousResponseId} começou. Pode ser nula.
      * @param question A pergunta/mensagem atual do usuário.
      * @param lead O objeto {@link Lead} com os dados atuais do potencial cliente.
      * @return Um {@link AIResponseDTO} contendo a mensagem para o usuário, os dados do lead atualizados pela IA e a ação recomendada.
      */
-    public AIResponseDTO askAssistant(String previousResponseId,String question, Lead lead){
-        String leadJson = buildJson(lead);
-        String systemPrompt = """
-                Você é um SDR (Sales Development Representative) da **Atlas**, uma empresa que oferece um **CRM especializado em gestão de fornecedores**.
-                  A Atlas ajuda médias e grandes empresas a:
-                  - Centralizar o cadastro e documentação de fornecedores;
-                  - Automatizar fluxos de aprovação e compliance (ex: onboarding, homologação, renovação);
-                  - Controlar contratos, prazos e indicadores de desempenho (KPIs);
-                  - Reduzir riscos e custos com fornecedores não conformes;
-                  - Garantir mais transparência e rastreabilidade em todo o ciclo de relacionamento com fornecedores.
-                  Nosso CRM é usado por áreas de **compras, compliance, supply chain e jurídico**, e se diferencia por ser simples de implementar, altamente personalizável e pensado especificamente para **gestão de fornecedores**, não apenas como um CRM genérico.
-                  Seu papel é representar a Atlas de forma natural e consultiva, entender se o lead enfrenta desafios com gestão de fornecedores e, se fizer sentido, **qualificar e agendar uma conversa com nosso time comercial**.
-                
-                
-                            === ESTADO ATUAL DO LEAD ===
-                            %s
-                
-                            === SEU OBJETIVO ===
-                            Qualificar o lead e agendar uma conversa com nosso time comercial. Para isso você precisa coletar 5 informações na ordem:
-                            1. Nome
-                            2. Email \s
-                            3. Empresa
-                            4. Necessidade (problema/desafio com gestão de fornecedores)
-                            5. Interesse em conversar com o time
-                
-                            === COMO CONDUZIR ===
-                
-                            **Seja natural e consultivo, mas objetivo.** Você não está apenas batendo papo - está qualificando um lead.\s
-                
-                            **FLUXO DA CONVERSA:**
-                
-                            📍 **Início (nome = null):**
-                            - Cumprimente e apresente-se como SDR da Atlas
-                            - Explique brevemente: "Ajudamos empresas a gerenciar fornecedores com nosso CRM"
-                            - Pergunte o nome de forma amigável
-                            - Exemplo: "Oi! Sou da Atlas, ajudamos empresas a ter melhor controle de fornecedores com nosso CRM. Com quem estou falando?"
-                
-                            📍 **Após ter nome (email = null):**
-                            - Agradeça pelo nome de forma breve
-                            - Pergunte o email diretamente mas de forma natural
-                            - Varie as formas: "Qual seu email?", "Me passa seu email?", "Pode me passar seu email para registro?"
-                            - NÃO invente desculpas como "vou enviar materiais" - seja direto
-                            - action = null (ainda não tem email)
-                            - action = "registrarLead" (se tiver coletado o email)
-                
-                            📍 **Após ter nome e email (empresa = null):**
-                            - Pergunte a empresa de forma consultiva
-                            - Varie: "Legal! De qual empresa você é?", "Você trabalha em qual empresa?", "Qual sua empresa?"
-                            - action = "registrarLead" (coletou email)
-                
-                            📍 **Após ter nome, email e empresa (necessidade = null):**
-                            - AQUI é onde você faz rapport e qualifica!
-                            - Explore o problema do cliente com gestão de fornecedores
-                            - Perguntas abertas: "Como vocês gerenciam fornecedores hoje?", "Quais os principais desafios?", "O que mais te incomoda nesse processo?"
-                            - Mostre interesse genuíno na dor dele
-                            - Conecte sutilmente com a solução: "Entendi... muitos clientes nossos tinham esse mesmo problema"
-                            - action = "registrarLead" (coletou empresa)
-                
-                            📍 **Após ter nome, email, empresa e necessidade (interesse = null):**
-                            - Faça uma micro apresentação da solução conectada ao problema dele
-                            - Exemplo: "Nosso CRM resolve exatamente isso, centralizando todos os dados de fornecedores e automatizando aprovações"
-                            - Pergunte sobre o interesse: "Faz sentido pra vocês? Quer conversar com nosso time pra ver como podemos ajudar?"
-                            - Se SIM: interesse=true, action="oferecerHorarios"
-                            - Se NÃO: interesse=false, action="registrarLead", agradeça educadamente
-                            - action = "registrarLead" (coletou necessidade)
-                
-                            📍 **Após oferecerHorarios (meetingLink != null):**
-                            - Confirme o agendamento: "Perfeito! Vou conectar você com nosso time"
-                            - Continue disponível para dúvidas
-                            - SÓ ofereça horários novamente se ele EXPLICITAMENTE pedir reagendamento
-                            - action = null (apenas conversando)
-                            
-                            📍 **Após meetingLink != null:**
-                            - action = null (apenas conversando)                            
-                            - Pode mencionar que já tem a Reunião agendada com o nosso Time
-                            - Continue disponível para dúvidas
-                            - SÓ ofereça horários novamente se ele EXPLICITAMENTE pedir reagendamento
-                
-                            === REGRAS DE ACTION (MUITO IMPORTANTE!) ===
-                
-                            **action = null:**
-                            - Quando ainda NÃO tem email (só coletando nome)
-                            - Quando já ofereceu horários e está conversando
-                            - Quando meetingLink != null
-                            - Quando não coletou nenhum dado novo nesta mensagem
-                
-                            **action = "registrarLead":**
-                            - SEMPRE que coletar ou atualizar qualquer informação E já tem email
-                            - Exemplos:
-                              * Coletou email agora → action="registrarLead"
-                              * Coletou empresa agora → action="registrarLead" \s
-                              * Coletou necessidade agora → action="registrarLead"
-                              * Atualizou interesse para false → action="registrarLead"
-                            - **DISPARE TODA VEZ que captar um dado novo!**
-                
-                            **action = "oferecerHorarios":**
-                            - APENAS quando TODAS as 5 infos estão completas (nome, email, empresa, necessidade, interesse=true)
-                            - E é a primeira vez (meetingLink=null) OU usuário pediu explicitamente para reagendar
-                            - Pergunte se pode agendar a conversa
-                            - Deve ser disparado APENAS quando TODAS as 5 informações estão completas:
-                              (nome ≠ null, email ≠ null, empresa ≠ null, necessidade ≠ null, interesse = true)
-                            - E é a primeira vez (meetingLink = null) OU o lead pediu explicitamente reagendamento.
-                            - ⚠️ Importante:
-                              * Isso deve acontecer independentemente da ordem em que os dados foram coletados.
-                              * Mesmo que o email, ou qualquer outro campo seja o último dado informado, se todos os outros campos já existirem e o interesse for true → dispare `action = "oferecerHorarios"`.
-                            - Exemplo:
-                              - Se o lead já disse que quer conversar, mas só faltava o email, e agora informou o email → `action = "oferecerHorarios"`.
-             
-     
-                            === ATUALIZANDO O LEAD ===
-                
-                            - Extraia as informações das mensagens do usuário
-                            - Se ele disser "Meu nome é João" → nome: "João"
-                            - Se ele disser "joao@empresa.com" → email: "joao@empresa.com"
-                            - Se ele disser "Trabalho na TechCorp" → empresa: "TechCorp"
-                            - Se ele explicar problemas → necessidade: "resumo do problema dele"
-                            - Mantenha null nos campos que ainda não foram coletados
-                            - NÃO invente dados!
-                
-                            === TOM DE VOZ ===
-                
-                            ✅ **FAÇA:**
-                            - Seja amigável mas profissional
-                            - Varie suas expressões (não repita frases)
-                            - Demonstre interesse genuíno nos problemas do cliente
-                            - Seja objetivo - você tem um propósito claro
-                            - Use linguagem natural do Brasil
-                
-                            ❌ **NÃO FAÇA:**
-                            - Usar frases robóticas repetidas: "Prazer em conhecê-lo", "Obrigado, agora..."
-                            - Criar falsas promessas (enviar materiais, etc)
-                            - Mencionar horários específicos (14h, 15h, etc)
-                            - Inventar informações
-                            - Pular etapas
-                            - Esquecer de disparar registrarLead quando coletar dados
-                
-                            === EXEMPLOS DE CONVERSA NATURAL ===
-                
-                            **Exemplo 1:**
-                            User: "Oi"
-                            AI: "Oi! Sou da Atlas, ajudamos empresas a gerenciar melhor seus fornecedores com nosso CRM. Como você se chama?"
-                
-                            **Exemplo 2:**
-                            User: "Meu nome é Carlos"
-                            AI: "Prazer, Carlos! Qual seu email?"
-                            (action: null, pois ainda não tem email)
-                
-                            **Exemplo 3:**
-                            User: "carlos@tech.com"
-                            AI: "Perfeito! E você trabalha em qual empresa?"
-                            (action: "registrarLead", coletou o email)
-                
-                            **Exemplo 4:**
-                            User: "TechSolutions"
-                            AI: "Legal! E como vocês lidam com gestão de fornecedores hoje na TechSolutions?"
-                            (action: "registrarLead", coletou a empresa)
-                
-                            **Exemplo 5:**
-                            User: "A gente usa planilhas, mas é muito bagunçado"
-                            AI: "Entendo, planilhas podem ser bem complicadas mesmo quando tem muitos fornecedores. Nosso CRM centraliza tudo isso e automatiza o processo. Faz sentido pra vocês? Quer conversar com nosso time pra ver como podemos ajudar?"
-                            (action: "registrarLead", coletou a necessidade)
-                            
-                            === VALIDAÇÃO DE EMAIL (OBRIGATÓRIO) ===
-                
-                            - Sempre verifique se o email informado é válido ANTES de salvar ou disparar action="registrarLead".
-                            - Um email é considerado válido apenas se:
-                              * Contém o caractere "@" e
-                              * Contém um domínio após o "@", com ao menos um ponto (ex: .com, .br, .org).
-                            - Se o email for inválido (ex: "joao", "joao@", "joao@empresa", "empresa.com"):
-                              * NÃO atualize o campo email
-                              * NÃO dispare action="registrarLead"
-                              * Responda de forma natural pedindo um email válido
-                              * Exemplo:
-                                - "Acho que faltou alguma coisa no seu email 😅 pode me passar ele completo?"
-                            - Apenas quando o email for válido → atualize `lead.email` e dispare `action="registrarLead"`.
-                
-                            === FORMATO DE RESPOSTA (OBRIGATÓRIO) ===
-                
-                            {
-                              "mensagem": "sua resposta natural aqui",
-                              "lead": {
-                                "nome": "string ou null",
-                                "email": "string ou null",
-                                "empresa": "string ou null",
-                                "necessidade": "string ou null",
-                                "interesse": true/false/null
-                              },
-                              "action": "registrarLead" ou "oferecerHorarios" ou null
+    public AIResponseDTO askAssistant(String previousResponseId, String chainPromptVersion, String question, Lead lead){
+        return bulkhead.call(() -> requestAssistant(previousResponseId, chainPromptVersion, question, lead).block());
+    }
+
+    /**
+     * Versão não bloqueante do {@link #askAssistant}, usada pelo modo reativo do chat.
+     *
+     * @param previousResponseId O ID da resposta anterior da IA. Pode ser nulo.
+     * @param chainPromptVersion A versão do prompt da cadeia do {@code previousResponseId}. Pode ser nula.
+     * @param question A pergunta/mensagem atual do usuário.
+     * @param lead O objeto {@link Lead} com os dados atuais do potencial cliente.
+     * @return Um {@link Mono} com o {@link AIResponseDTO} da resposta.
+     */
+    public Mono<AIResponseDTO> askAssistantAsync(String previousResponseId, String chainPromptVersion, String question, Lead lead) {
+        return bulkhead.mono(requestAssistant(previousResponseId, chainPromptVersion, question, lead));
+    }
+
+    /**
+     * A requisição à Responses API, sem o bulkhead; quem chama decide como esperar pela permissão.
+     */
+    Mono<AIResponseDTO> requestAssistant(String previousResponseId, String chainPromptVersion, String question, Lead lead) {
+        String bodyJson = buildRequestJson(previousResponseId, chainPromptVersion, question, lead, false);
+        WebClient.ResponseSpec response = webClient.post()
+                .uri("/responses")
+                .header("Content-Type", "application/json")
+                .bodyValue(bodyJson)
+                .retrieve();
+        Mono<AIResponseDecoder.Result> result = streamingDecoder
+                ? DataBufferUtils.join(response.bodyToFlux(DataBuffer.class))
+                        .map(buffer -> {
+                            try {
+                                return decoder.read(buffer.asInputStream());
+                            } finally {
+                                DataBufferUtils.release(buffer);
                             }
-                            
-                            **CRÍTICO:**
-                            - COLETE TODOS OS DADOS nome, email, empresa e necessidade ANTES de verificar o Interesse
-                            - SEMPRE que meetingLink != null a action deve ser retornada = null
-                            - SEMPRE use aspas duplas (") no JSON
-                            - SEMPRE dispare action="registrarLead" quando coletar um dado novo (e já tiver email)
-                            - NUNCA mencione meetingLink na conversa (é apenas controle interno)
-                            - Atualize APENAS os campos que você realmente identificou na mensagem""".formatted(leadJson);
+                        })
+                : response.bodyToMono(AIResponseBodyDTO.class).map(decoder::decode);
+        return externalCallMetrics.time("openai", "responses", result
+                .doOnNext(decoded -> recordUsage(decoded.usage()))
+                .map(AIResponseDecoder.Result::response));
+    }
+
+    /**
+     * Versão em streaming do {@link #askAssistant}: envia a mesma requisição com {@code stream: true}
+     * e repassa os eventos da Responses API conforme o modelo gera o texto.
+     * <p>
+     * Cada delta de {@code output_text} vira um {@link AIStreamEvent#delta(String)} com o trecho bruto do JSON
+     * do assistente; quando a resposta termina, é emitido um único {@link AIStreamEvent#completed(AIResponseDTO)}
+     * com o objeto completo (mensagem, lead e action).
+     * @param previousResponseId O ID da resposta anterior da IA. Pode ser nulo.
+     * @param chainPromptVersion A versão do prompt da cadeia do {@code previousResponseId}. Pode ser nula.
+     * @param question A pergunta/mensagem atual do usuário.
+     * @param lead O objeto {@link Lead} com os dados atuais do potencial cliente.
+     * @return Um {@link Flux} com os deltas de texto seguidos do evento de conclusão.
+     */
+    public Flux<AIStreamEvent> streamAssistant(String previousResponseId, String chainPromptVersion, String question, Lead lead) {
+        String bodyJson = buildRequestJson(previousResponseId, chainPromptVersion, question, lead, true);
+        return bulkhead.flux(externalCallMetrics.time("openai", "responses.stream", webClient.post()
+                .uri("/responses")
+                .header("Content-Type", "application/json")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(bodyJson)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .filter(sse -> sse.data() != null)
+                .handle((sse, sink) -> {
+                    String data = sse.data();
+                    // A linha "event:" do SSE já traz o tipo; só lê o campo "type" do JSON quando ela não vem
+                    String type = sse.event() != null ? sse.event() : readField(data, "type");
+                    switch (type) {
+                        case "response.output_text.delta" -> sink.next(AIStreamEvent.delta(readField(data, "delta")));
+                        case "response.completed" -> {
+                            AIResponseDecoder.Result result = readCompleted(data);
+                            recordUsage(result.usage());
+                            sink.next(AIStreamEvent.completed(result.response()));
+                            sink.complete();
+                        }
+                        case "response.failed", "error" -> sink.error(new IllegalStateException("Erro no streaming da OpenAI: " + data));
+                        default -> { }
+                    }
+                })));
+    }
+
+    /**
+     * O corpo da requisição ({@link #buildRequestBody}) já serializado, como é enviado para a OpenAI.
+     */
+    String buildRequestJson(String previousResponseId, String chainPromptVersion, String question, Lead lead, boolean stream) {
+        return buildJson(buildRequestBody(previousResponseId, chainPromptVersion, question, lead, stream));
+    }
 
+    /**
+     * Monta o corpo da requisição para a Responses API.
+     * <p>
+     * O início do contexto é sempre o mesmo para todos os usuários (o prompt), seguido do estado do lead e da pergunta.
+     *
+     * @param previousResponseId O ID da resposta anterior da IA. Pode ser nulo.
+     * @param chainPromptVersion A versão do prompt da cadeia do {@code previousResponseId}. Pode ser nula.
+     * @param question A pergunta/mensagem atual do usuário.
+     * @param lead O lead atual, enviado como um item do input.
+     * @param stream Se a resposta deve ser enviada em streaming.
+     * @return O corpo da requisição como {@link Map}.
+     */
+    Map<String, Object> buildRequestBody(String previousResponseId, String chainPromptVersion, String question, Lead lead, boolean stream) {
         Map<String, Object> body = new HashMap<>();
         body.put("model", "gpt-4o-mini");
-        body.put("input", question);
-        body.put("instructions", systemPrompt);
+        body.put("prompt_cache_key", promptVersion);
 
-        if(previousResponseId!=null){
-            body.put("previous_response_id",previousResponseId);
+        List<Map<String, String>> input = new ArrayList<>(3);
+        if (previousResponseId == null) {
+            input.add(inputMessage("developer", systemPrompt));
+        } else {
+            body.put("previous_response_id", previousResponseId);
+            if (!promptVersion.equals(chainPromptVersion)) {
+                body.put("instructions", systemPrompt);
+            }
         }
+        input.add(inputMessage("developer", "ESTADO ATUAL DO LEAD:\n" + buildJson(lead)));
+        input.add(inputMessage("user", question));
+        body.put("input", input);
 
-        String bodyJson = buildJson(body);
-        AIResponseBodyDTO response = webClient.post()
-                .header("Content-Type", "application/json")
-                .bodyValue(bodyJson)
-                .retrieve()
-                .bodyToMono(AIResponseBodyDTO.class)
-                .block();
-        return response.getResponse();
+        if (stream) {
+            body.put("stream", true);
+        }
+        return body;
+    }
+
+    private static Map<String, String> inputMessage(String role, String content) {
+        return Map.of("role", role, "content", content);
+    }
+
+    private static String loadPrompt(String version) {
+        try {
+            return new ClassPathResource("prompts/" + version + ".txt").getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Prompt " + version + " não encontrado", e);
+        }
+    }
+
+    private static Counter tokenCounter(MeterRegistry registry, String type) {
+        return Counter.builder("openai.tokens")
+                .description("Tokens consumidos na Responses API; type=cached é a parte do input servida pelo prompt caching")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    /**
+     * Contabiliza o {@code usage} da resposta: a razão {@code cached / input} mostra quanto do prompt veio do cache.
+     */
+    void recordUsage(AIResponseBodyDTO.Usage usage) {
+        if (usage == null) return;
+        if (usage.getInputTokens() != null) inputTokens.increment(usage.getInputTokens());
+        if (usage.getOutputTokens() != null) outputTokens.increment(usage.getOutputTokens());
+        if (usage.getInputTokensDetails() != null && usage.getInputTokensDetails().getCachedTokens() != null) {
+            cachedTokens.increment(usage.getInputTokensDetails().getCachedTokens());
+        }
     }
 
     /**
@@ -260,11 +274,47 @@ public class OpenAIService {
      * @throws RuntimeException se ocorrer um erro durante a serialização.
      */
     private <T> String buildJson(T value) {
-        ObjectMapper mapper = new ObjectMapper();
         try {
             return mapper.writeValueAsString(value);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Erro ao converter objeto para JSON", e);
         }
     }
+
+    /**
+     * Lê um campo texto de primeiro nível do evento, parando assim que o encontra.
+     */
+    private String readField(String json, String name) {
+        try (JsonParser parser = mapper.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return "";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (name.equals(field)) return parser.getValueAsString("");
+                parser.skipChildren();
+            }
+            return "";
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler evento de streaming da OpenAI", e);
+        }
+    }
+
+    /**
+     * Decodifica o objeto {@code response} do evento {@code response.completed}.
+     */
+    private AIResponseDecoder.Result readCompleted(String json) {
+        try (JsonParser parser = mapper.createParser(json)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if ("response".equals(field)) return decoder.read(parser);
+                    parser.skipChildren();
+                }
+            }
+            throw new IllegalStateException("Evento response.completed sem o campo response: " + json);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler resposta final do streaming da OpenAI", e);
+        }
+    }
 }
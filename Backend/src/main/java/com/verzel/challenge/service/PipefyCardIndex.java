@@ -0,0 +1,39 @@
+package com.verzel.challenge.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice local e-mail → ID do card no Pipefy, preenchido pela importação dos cards do pipe
+ * ({@link PipefyService#importCardIndexAsync}) e a cada card encontrado ou criado.
+ * <p>
+ * Um e-mail no índice já tem card, e a criação do card dispensa a busca ({@code findCards}) no Pipefy. A ausência
+ * no índice não prova nada: cards criados por outra instância ou fora da aplicação depois da importação só
+ * entram nele quando são encontrados pela busca.
+ */
+@Component
+public class PipefyCardIndex {
+    private final Map<String, String> cardIdsByEmail = new ConcurrentHashMap<>();
+
+    public Optional<String> find(String email) {
+        if (email == null) return Optional.empty();
+        return Optional.ofNullable(cardIdsByEmail.get(key(email)));
+    }
+
+    public void put(String email, String cardId) {
+        if (email == null || email.isBlank() || cardId == null || cardId.isBlank()) return;
+        cardIdsByEmail.put(key(email), cardId);
+    }
+
+    public int size() {
+        return cardIdsByEmail.size();
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,236 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.entity.LeadEntity;
+import com.verzel.challenge.entity.PipefyOutboxEntity;
+import com.verzel.challenge.repository.LeadRepository;
+import com.verzel.challenge.repository.PipefyOutboxRepository;
+import com.verzel.challenge.type.LeadField;
+import com.verzel.challenge.type.OutboxStatus;
+import com.verzel.challenge.type.PipefyOperation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Drena o {@code pipefy_outbox} em lotes e aplica as alterações no Pipefy fora do caminho do chat.
+ * <p>
+ * As entradas do lote são agrupadas por lead: a criação do card vem primeiro (se o lead ainda não tem
+ * {@code cardId}), e várias atualizações pendentes do mesmo lead viram uma única atualização, só dos campos
+ * alterados, com o estado mais recente do {@link LeadEntity}. As atualizações de todos os leads do lote vão juntas em um documento
+ * GraphQL com aliases (até {@code pipefy.outbox.max-updates-per-request} por requisição), e o resultado de cada
+ * alias decide o destino das entradas do seu lead. Em caso de erro as entradas voltam para a fila com backoff
+ * exponencial até {@code pipefy.outbox.max-attempts}, quando ficam como {@link OutboxStatus#FAILED}. Enquanto o
+ * {@link PipefyService} não carregou a configuração do pipe, nada é enviado.
+ * <p>
+ * Pensado para rodar em uma única instância da aplicação.
+ */
+@Component
+public class PipefyOutboxDispatcher {
+    private final PipefyOutboxRepository outboxRepository;
+    private final LeadRepository leadRepository;
+    private final PipefyService pipefyService;
+
+    @Value("${pipefy.outbox.batch-size}")
+    private int batchSize;
+    @Value("${pipefy.outbox.max-attempts}")
+    private int maxAttempts;
+    @Value("${pipefy.outbox.backoff-base-ms}")
+    private long backoffBaseMs;
+    @Value("${pipefy.outbox.backoff-max-ms}")
+    private long backoffMaxMs;
+    @Value("${pipefy.outbox.max-updates-per-request}")
+    private int maxUpdatesPerRequest;
+
+    public PipefyOutboxDispatcher(PipefyOutboxRepository outboxRepository, LeadRepository leadRepository, PipefyService pipefyService) {
+        this.outboxRepository = outboxRepository;
+        this.leadRepository = leadRepository;
+        this.pipefyService = pipefyService;
+    }
+
+    @Scheduled(fixedDelayString = "${pipefy.outbox.poll-interval-ms}", scheduler = "pipefyOutboxScheduler")
+    public void dispatch() {
+        // Sem as phases e os fields do pipe as mutations sairiam sem IDs; as entradas esperam na fila sem gastar tentativas
+        if (!pipefyService.isReady()) return;
+        List<PipefyOutboxEntity> batch = outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                OutboxStatus.PENDING, LocalDateTime.now(), Limit.of(batchSize));
+        if (batch.isEmpty()) return;
+
+        Map<Long, List<PipefyOutboxEntity>> byLead = batch.stream()
+                .collect(Collectors.groupingBy(PipefyOutboxEntity::getLeadId, LinkedHashMap::new, Collectors.toList()));
+
+        List<LeadUpdates> pending = new ArrayList<>();
+        int pendingUpdates = 0;
+        for (Map.Entry<Long, List<PipefyOutboxEntity>> lead : byLead.entrySet()) {
+            LeadUpdates updates = prepareLead(lead.getKey(), lead.getValue());
+            if (updates == null) continue;
+            if (pendingUpdates + updates.selections().size() > maxUpdatesPerRequest && !pending.isEmpty()) {
+                sendUpdates(pending);
+                pending = new ArrayList<>();
+                pendingUpdates = 0;
+            }
+            pending.add(updates);
+            pendingUpdates += updates.selections().size();
+        }
+        if (!pending.isEmpty()) sendUpdates(pending);
+    }
+
+    /**
+     * Cria o card se preciso e monta as atualizações do lead.
+     * @return As atualizações a enviar, ou {@code null} se as entradas já foram resolvidas (ou reagendadas).
+     */
+    private LeadUpdates prepareLead(Long leadId, List<PipefyOutboxEntity> entries) {
+        try {
+            LeadEntity lead = leadRepository.findById(leadId).orElse(null);
+            List<String> selections = lead == null ? List.of() : leadSelections(lead, entries);
+            if (selections.isEmpty()) {
+                outboxRepository.deleteAll(entries);
+                return null;
+            }
+            return new LeadUpdates(leadId, entries, selections);
+        } catch (Exception e) {
+            System.err.println("Erro ao sincronizar lead " + leadId + " com o Pipefy: " + e.getMessage());
+            reschedule(entries, e);
+            return null;
+        }
+    }
+
+    private List<String> leadSelections(LeadEntity lead, List<PipefyOutboxEntity> entries) {
+        String cardId = lead.getCardId();
+        if (cardId == null) {
+            cardId = pipefyService.createCardWithEmail(lead.getEmail());
+            leadRepository.updateCardId(lead.getId(), cardId);
+        }
+
+        PipefyOutboxEntity lastFields = latest(entries, PipefyOperation.UPDATE_FIELDS);
+        PipefyOutboxEntity lastMeeting = latest(entries, PipefyOperation.UPDATE_MEETING);
+
+        // Respeita a ordem em que as alterações aconteceram: um "interesse = false" depois do agendamento limpa a reunião
+        boolean meetingFirst = lastMeeting != null && lastFields != null && lastMeeting.getId() < lastFields.getId();
+        List<String> selections = new ArrayList<>();
+        if (meetingFirst) selections.add(meetingSelection(cardId, lead, lastMeeting));
+        if (lastFields != null) selections.addAll(fieldsSelections(cardId, lead, changedFields(entries)));
+        if (lastMeeting != null && !meetingFirst) selections.add(meetingSelection(cardId, lead, lastMeeting));
+        return selections;
+    }
+
+    private List<String> fieldsSelections(String cardId, LeadEntity lead, Set<LeadField> changed) {
+        return pipefyService.cardFieldsUpdates(
+                cardId,
+                lead.getName(),
+                lead.getEmail(),
+                lead.getCompany(),
+                lead.getNecessity(),
+                lead.getInterested(),
+                changed
+        );
+    }
+
+    /**
+     * Os campos alterados em qualquer uma das entradas {@code UPDATE_FIELDS}; os valores vêm do estado atual do lead.
+     */
+    private Set<LeadField> changedFields(List<PipefyOutboxEntity> entries) {
+        EnumSet<LeadField> changed = EnumSet.noneOf(LeadField.class);
+        entries.stream()
+                .filter(entry -> entry.getOperation() == PipefyOperation.UPDATE_FIELDS)
+                .forEach(entry -> changed.addAll(LeadField.parse(entry.getPayload())));
+        return changed;
+    }
+
+    private String meetingSelection(String cardId, LeadEntity lead, PipefyOutboxEntity entry) {
+        return pipefyService.cardMeetingUpdate(cardId, lead.getMeetingLink(), entry.getPayload());
+    }
+
+    /**
+     * Envia as atualizações dos leads em uma requisição; cada lead só sai da fila se todos os seus aliases deram certo.
+     * <p>
+     * Se a requisição inteira falhar por um motivo que não seja de rede (ex: o Pipefy rejeitou o documento), cada lead
+     * é reenviado sozinho, para que um lead problemático não segure a sincronização dos outros. Falhas de rede valem
+     * para todos e reagendam o lote.
+     */
+    private void sendUpdates(List<LeadUpdates> leads) {
+        Map<String, String> updatesByAlias = new LinkedHashMap<>();
+        for (LeadUpdates lead : leads) {
+            for (int i = 0; i < lead.selections().size(); i++) {
+                updatesByAlias.put(lead.alias(i), lead.selections().get(i));
+            }
+        }
+
+        Map<String, Boolean> results;
+        try {
+            results = pipefyService.updateFieldsValues(updatesByAlias);
+        } catch (Exception e) {
+            System.err.println("Erro ao sincronizar " + leads.size() + " leads com o Pipefy: " + e.getMessage());
+            if (leads.size() > 1 && !isNetworkError(e)) {
+                leads.forEach(lead -> sendUpdates(List.of(lead)));
+            } else {
+                leads.forEach(lead -> reschedule(lead.entries(), e));
+            }
+            return;
+        }
+
+        List<PipefyOutboxEntity> done = new ArrayList<>();
+        for (LeadUpdates lead : leads) {
+            boolean success = true;
+            for (int i = 0; i < lead.selections().size(); i++) {
+                success &= Boolean.TRUE.equals(results.get(lead.alias(i)));
+            }
+            if (success) {
+                done.addAll(lead.entries());
+            } else {
+                System.err.println("Pipefy não confirmou a atualização do lead " + lead.leadId());
+                reschedule(lead.entries(), new IllegalStateException("updateFieldsValues sem sucesso"));
+            }
+        }
+        outboxRepository.deleteAll(done);
+    }
+
+    private static boolean isNetworkError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientRequestException || cause instanceof TimeoutException || cause instanceof IOException) return true;
+        }
+        return false;
+    }
+
+    private PipefyOutboxEntity latest(List<PipefyOutboxEntity> entries, PipefyOperation operation) {
+        return entries.stream()
+                .filter(entry -> entry.getOperation() == operation)
+                .max(Comparator.comparing(PipefyOutboxEntity::getId))
+                .orElse(null);
+    }
+
+    private void reschedule(List<PipefyOutboxEntity> entries, Exception error) {
+        for (PipefyOutboxEntity entry : entries) {
+            int attempts = entry.getAttempts() + 1;
+            entry.setAttempts(attempts);
+            entry.setLastError(error.getMessage());
+            if (attempts >= maxAttempts) {
+                entry.setStatus(OutboxStatus.FAILED);
+            } else {
+                long delay = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 20));
+                entry.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+            }
+        }
+        outboxRepository.saveAll(entries);
+    }
+
+    private record LeadUpdates(Long leadId, List<PipefyOutboxEntity> entries, List<String> selections) {
+        String alias(int index) {
+            return "lead" + leadId + "_" + index;
+        }
+    }
+}
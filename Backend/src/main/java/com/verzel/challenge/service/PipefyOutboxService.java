@@ -0,0 +1,31 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.entity.PipefyOutboxEntity;
+import com.verzel.challenge.repository.PipefyOutboxRepository;
+import com.verzel.challenge.type.PipefyOperation;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class PipefyOutboxService {
+    private final PipefyOutboxRepository outboxRepository;
+
+    public PipefyOutboxService(PipefyOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    /**
+     * Registra uma sincronização pendente com o Pipefy para o lead.
+     * <p>
+     * Precisa ser chamado dentro da transação que alterou o lead, para que a alteração e o registro
+     * no outbox sejam gravados (ou descartados) juntos.
+     * @param leadId O ID do lead alterado.
+     * @param operation A operação a ser feita no Pipefy.
+     * @param payload Dado extra da operação que não está no lead. Pode ser nulo.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Long leadId, PipefyOperation operation, String payload) {
+        outboxRepository.save(new PipefyOutboxEntity(leadId, operation, payload));
+    }
+}
@@ -4,19 +4,36 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.verzel.challenge.dto.pipefy.*;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.resilience.Bulkhead;
+import com.verzel.challenge.type.LeadField;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
 import java.io.IOException;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class PipefyService {
+    private static final String METADATA_CACHE_NAME = "pipefy";
+    private static final Pattern OPERATION = Pattern.compile("(?:query|mutation)\\s*\\{\\s*(?:\\w+\\s*:\\s*)?(\\w+)");
 
     @Value("${pipefy.token}")
     private String pipefyToken;
@@ -24,18 +41,144 @@ public class PipefyService {
     @Value("${pipefy.pipe.id}")
     private String pipefyPipeId;
 
+    @Value("${pipefy.base-url}")
+    private String pipefyBaseUrl;
+
+    @Value("${pipefy.card-index.import-on-startup}")
+    private boolean importCardIndexOnStartup;
+
     private WebClient webClient;
-    private Map<String, String> phaseMap = new HashMap<>();
-    private Map<String, String> fieldMap = new HashMap<>();
+    private volatile Map<String, String> phaseMap = Map.of();
+    private volatile Map<String, String> fieldMap = Map.of();
+    private volatile boolean ready;
+    private final Sinks.Empty<Void> readySink = Sinks.empty();
+    private Disposable bootstrap;
+    private final Bulkhead bulkhead;
+
+    private final ObjectMapper mapper;
+    private final WebClient.Builder webClientBuilder;
+    private final ExternalCallMetrics externalCallMetrics;
+    private final PipefyCardIndex cardIndex;
+    private final MetadataCache metadataCache;
+
+    public PipefyService(@Qualifier("pipefyBulkhead") Bulkhead bulkhead, ObjectMapper mapper, WebClient.Builder webClientBuilder,
+                         ExternalCallMetrics externalCallMetrics, PipefyCardIndex cardIndex, MetadataCache metadataCache) {
+        this.bulkhead = bulkhead;
+        this.cardIndex = cardIndex;
+        this.metadataCache = metadataCache;
+        this.externalCallMetrics = externalCallMetrics;
+        this.mapper = mapper;
+        this.webClientBuilder = webClientBuilder;
+    }
 
     @PostConstruct
     public void init() {
-        this.webClient = WebClient.builder()
-                .baseUrl("https://api.pipefy.com/graphql")
+        this.webClient = webClientBuilder
+                .baseUrl(pipefyBaseUrl)
                 .defaultHeader("Authorization", "Bearer " + pipefyToken)
                 .build();
-        loadPhases();
-        loadFields();
+
+        metadataCache.read(METADATA_CACHE_NAME, PipefyMetadata.class)
+                .filter(cached -> pipefyPipeId.equals(cached.pipeId()))
+                .ifPresent(cached -> {
+                    apply(cached);
+                    System.out.println("Phases e fields do Pipefy carregados do cache local; atualizando em segundo plano");
+                });
+        this.bootstrap = loadMetadata()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(2))
+                        .maxBackoff(Duration.ofMinutes(1))
+                        .doBeforeRetry(signal -> System.err.println(
+                                "Erro ao carregar phases e fields do Pipefy, tentando de novo: " + signal.failure().getMessage())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (bootstrap != null) bootstrap.dispose();
+    }
+
+    /**
+     * {@code true} depois que as phases e os fields foram carregados, do Pipefy ou do cache local. Antes disso as
+     * chamadas que dependem deles falham.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Completa quando {@link #isReady()} passa a ser {@code true}.
+     */
+    public Mono<Void> ready() {
+        return readySink.asMono();
+    }
+
+    /**
+     * Busca de novo as phases e os fields, para que mudanças no pipe cheguem sem restart. Se a busca falhar, os
+     * mapas atuais continuam valendo até a próxima.
+     */
+    @Scheduled(fixedDelayString = "${metadata.refresh-interval-ms}", initialDelayString = "${metadata.refresh-interval-ms}")
+    public void refreshMetadata() {
+        if (bootstrap != null && !bootstrap.isDisposed()) return; // a busca inicial ainda está tentando
+        loadMetadata().subscribe(
+                metadata -> {},
+                e -> System.err.println("Erro ao atualizar phases e fields do Pipefy: " + e.getMessage()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void importCardIndexOnStartup() {
+        if (!importCardIndexOnStartup) return;
+        importCardIndexAsync().subscribe(
+                count -> System.out.println("Índice de cards do Pipefy importado: " + count + " cards"),
+                e -> System.err.println("Erro ao importar o índice de cards do Pipefy: " + e.getMessage()));
+    }
+
+    /**
+     * Versão bloqueante do {@link #importCardIndexAsync}.
+     */
+    public int importCardIndex() {
+        return importCardIndexAsync().blockOptional().orElse(0);
+    }
+
+    /**
+     * Importa o e-mail e o ID de todos os cards do pipe para o {@link PipefyCardIndex}, página por página. A criação
+     * de card para um e-mail importado dispensa a busca no Pipefy.
+     *
+     * @return Um {@link Mono} com o número de cards importados.
+     */
+    public Mono<Integer> importCardIndexAsync() {
+        return importCardPage(null, 0);
+    }
+
+    private Mono<Integer> importCardPage(String cursor, int imported) {
+        String query = String.format("""
+            query {
+              allCards(pipeId: %s, first: 50%s) {
+                pageInfo { hasNextPage endCursor }
+                edges { node { id fields { name value } } }
+              }
+            }
+        """, pipefyPipeId, cursor == null ? "" : ", after: \"" + cursor + "\"");
+
+        return performRequestAsync(query, AllCardsResponse.class).flatMap(response -> {
+            if (response.data == null || response.data.allCards == null) {
+                return Mono.error(new IllegalStateException("Resposta do allCards sem dados"));
+            }
+            AllCardsResponse.Data.AllCards page = response.data.allCards;
+            int count = imported;
+            for (AllCardsResponse.Data.AllCards.Edge edge : page.edges == null ? List.<AllCardsResponse.Data.AllCards.Edge>of() : page.edges) {
+                if (edge.node == null || edge.node.fields == null) continue;
+                for (Card.Field field : edge.node.fields) {
+                    if (LeadField.EMAIL.getPipefyLabel().equalsIgnoreCase(field.name)) {
+                        cardIndex.put(field.value, edge.node.id);
+                        count++;
+                    }
+                }
+            }
+            if (page.pageInfo != null && page.pageInfo.hasNextPage) {
+                return importCardPage(page.pageInfo.endCursor, count);
+            }
+            return Mono.just(count);
+        });
     }
 
     /**
@@ -47,21 +190,68 @@ public class PipefyService {
      * @return O objeto de resposta desserializado.
      */
     public <T> T performRequest(String query, Class<T> responseType) {
-        return webClient.post()
+        return bulkhead.call(() -> performRequestAsync(query, responseType).block());
+    }
+
+    /**
+     * Versão não bloqueante do {@link #performRequest}, com o mesmo timeout e política de retry.
+     * A chamada é medida em {@code external.calls} com a operação GraphQL (ex: {@code findCards}) como tag.
+     *
+     * @param query A string da query ou mutation GraphQL a ser executada.
+     * @param responseType A classe do DTO esperado como resposta.
+     * @param <T> O tipo do DTO de resposta.
+     * @return Um {@link Mono} com o objeto de resposta desserializado.
+     */
+    public <T> Mono<T> performRequestAsync(String query, Class<T> responseType) {
+        String operation = operationName(query);
+        return externalCallMetrics.time("pipefy", operation, webClient.post()
+                .uri("/graphql")
                 .bodyValue(Map.of("query", query))
                 .retrieve()
                 .bodyToMono(responseType)
                 .timeout(Duration.ofSeconds(10))
+                .doOnError(TimeoutException.class, e -> externalCallMetrics.timeout("pipefy", operation))
                 .retryWhen(
                         Retry.backoff(3, Duration.ofSeconds(2))
                                 .maxBackoff(Duration.ofSeconds(10))
                                 .filter(throwable -> throwable instanceof WebClientRequestException || throwable instanceof IOException)
-                )
-                .block();
+                                .doBeforeRetry(signal -> externalCallMetrics.retry("pipefy", operation))
+                ));
+    }
+
+    /**
+     * O primeiro campo da query ou mutation, ignorando o alias (ex: {@code findCards}).
+     */
+    static String operationName(String query) {
+        Matcher matcher = OPERATION.matcher(query);
+        return matcher.find() ? matcher.group(1) : "unknown";
     }
 
     // Funções de Configuração do Pipefy
-    private void loadPhases() {
+    /**
+     * Busca as phases e os fields do pipe ao mesmo tempo e troca os mapas de uma vez. Os mapas anteriores continuam
+     * em uso até a busca terminar; se ela falhar, não mudam.
+     */
+    Mono<PipefyMetadata> loadMetadata() {
+        return Mono.zip(loadPhases(), loadFields())
+                .map(loaded -> new PipefyMetadata(pipefyPipeId, loaded.getT1(), loaded.getT2()))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(metadata -> {
+                    metadataCache.write(METADATA_CACHE_NAME, metadata);
+                    apply(metadata);
+                    System.out.println("Phases carregadas: " + metadata.phases());
+                    System.out.println("Fields carregados: " + metadata.fields());
+                });
+    }
+
+    private void apply(PipefyMetadata metadata) {
+        this.phaseMap = Map.copyOf(metadata.phases());
+        this.fieldMap = Map.copyOf(metadata.fields());
+        this.ready = true;
+        readySink.tryEmitEmpty();
+    }
+
+    private Mono<Map<String, String>> loadPhases() {
         String query = String.format("""
             query {
               pipe(id: %s) {
@@ -73,19 +263,20 @@ public class PipefyService {
             }
         """, pipefyPipeId);
 
-        try {
-            PhaseResponse response = performRequest(query,PhaseResponse.class);
-            if (response != null && response.data != null && response.data.pipe != null) {
-                for (PhaseResponse.Phase p : response.data.pipe.phases) {
-                    phaseMap.put(p.name, p.id);
-                }
+        return performRequestAsync(query, PhaseResponse.class).handle((response, sink) -> {
+            if (response.data == null || response.data.pipe == null || response.data.pipe.phases == null) {
+                sink.error(new IllegalStateException("Phases do pipe " + pipefyPipeId + " não encontradas"));
+                return;
             }
-            System.out.println("Phases carregadas: " + phaseMap);
-        } catch (Exception e) {
-            System.err.println("Erro ao carregar phases: " + e.getMessage());
-        }
+            Map<String, String> phases = new HashMap<>();
+            for (PhaseResponse.Phase p : response.data.pipe.phases) {
+                phases.put(p.name, p.id);
+            }
+            sink.next(phases);
+        });
     }
-    private void loadFields() {
+
+    private Mono<Map<String, String>> loadFields() {
         String query = String.format("""
             query {
               pipe(id: %s) {
@@ -97,34 +288,43 @@ public class PipefyService {
             }
         """, pipefyPipeId);
 
-        try {
-            FieldResponse response = performRequest(query,FieldResponse.class);
-            if (response != null && response.data != null && response.data.pipe != null) {
-                for (PipefyField f : response.data.pipe.startFormFields) {
-                    fieldMap.put(f.label, f.id);
-                }
+        return performRequestAsync(query, FieldResponse.class).handle((response, sink) -> {
+            if (response.data == null || response.data.pipe == null || response.data.pipe.startFormFields == null) {
+                sink.error(new IllegalStateException("Fields do pipe " + pipefyPipeId + " não encontrados"));
+                return;
             }
-            System.out.println("Fields carregados: " + fieldMap);
-        } catch (Exception e) {
-            System.err.println("Erro ao carregar fields: " + e.getMessage());
-        }
+            Map<String, String> fields = new HashMap<>();
+            for (PipefyField f : response.data.pipe.startFormFields) {
+                fields.put(f.label, f.id);
+            }
+            sink.next(fields);
+        });
     }
 
     /**
      * Cria um card no Pipefy com o e-mail do lead.
      * <p>
      * Este método é idempotente. Se um card com o e-mail fornecido já existir, ele retorna o ID do card existente.
-     * Caso contrário, cria um novo card na fase "Pré-Vendas".
+     * Caso contrário, cria um novo card na fase "Pré-Vendas". O card existente é procurado primeiro no
+     * {@link PipefyCardIndex}; um e-mail fora do índice é sempre buscado no Pipefy antes da criação, porque o card
+     * pode ter sido criado depois da importação (por outra instância ou fora da aplicação).
      * @param email O e-mail do lead para criar o card.
      * @return O ID do card do Pipefy, seja ele novo ou existente.
      * @throws IllegalStateException se a fase "Pré-Vendas" não for encontrada na configuração do pipe.
      */
     public String createCardWithEmail(String email) {
-        String phaseId = phaseMap.get("Pré-Vendas");
-        if (phaseId == null) throw new IllegalStateException("Fase 'Pré-Vendas' não encontrada.");
+        return bulkhead.call(() -> createCardWithEmailAsync(email).block());
+    }
 
-        Optional<Card> alreadyExists = this.getCardByEmail(email);
-        if(alreadyExists.isPresent()) return alreadyExists.get().id;
+    /**
+     * Versão não bloqueante do {@link #createCardWithEmail}.
+     */
+    public Mono<String> createCardWithEmailAsync(String email) {
+        Optional<String> indexed = cardIndex.find(email);
+        if (indexed.isPresent()) return Mono.just(indexed.get());
+
+        String phaseId = phaseMap.get("Pré-Vendas");
+        if (phaseId == null) return Mono.error(new IllegalStateException("Fase 'Pré-Vendas' não encontrada."));
 
         String emailId = fieldMap.get("E-mail");
 
@@ -135,17 +335,23 @@ public class PipefyService {
                 phase_id: %s,
                 title: "Lead capturado via API",
                 fields_attributes: [
-                  { field_id: "%s", field_value: "%s" }
+                  { field_id: "%s", field_value: %s }
                 ]
               }) {
                 card { id title }
               }
             }
         """, pipefyPipeId, phaseId,
-                emailId, email);
-        String response = performRequest(mutation,String.class);
+                emailId, literal(email));
+
+        return getCardByEmailAsync(email).map(card -> card.id)
+                .switchIfEmpty(Mono.defer(() -> performRequestAsync(mutation, String.class)
+                        .map(this::extractCreatedCardId)))
+                .doOnNext(cardId -> cardIndex.put(email, cardId));
+    }
+
+    private String extractCreatedCardId(String response) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
             JsonNode root = mapper.readTree(response);
             return root.path("data").path("createCard").path("card").path("id").asText();
         } catch (JsonProcessingException e) {
@@ -166,12 +372,106 @@ public class PipefyService {
      * @return {@code true} se a atualização for bem-sucedida, {@code false} caso contrário.
      */
     public boolean updateCardFields(String cardId, String nome, String email, String company, String necessidade, Boolean interesse) {
-        String nomeId = fieldMap.get("Nome");
-        String emailId = fieldMap.get("E-mail");
-        String companyId = fieldMap.get("Empresa");
-        String necessidadeId = fieldMap.get("Necessidade");
-        String interesseId = fieldMap.get("Interessado");
+        return Boolean.TRUE.equals(bulkhead.call(() -> updateCardFieldsAsync(cardId, nome, email, company, necessidade, interesse).block()));
+    }
+
+    /**
+     * Versão não bloqueante do {@link #updateCardFields}. A limpeza da reunião e os dados do lead vão no mesmo documento.
+     */
+    public Mono<Boolean> updateCardFieldsAsync(String cardId, String nome, String email, String company, String necessidade, Boolean interesse) {
+        Map<String, String> updates = new LinkedHashMap<>();
+        List<String> selections = cardFieldsUpdates(cardId, nome, email, company, necessidade, interesse, EnumSet.allOf(LeadField.class));
+        for (int i = 0; i < selections.size(); i++) {
+            updates.put("update" + i, selections.get(i));
+        }
+        return updateFieldsValuesAsync(updates)
+                .map(results -> results.values().stream().allMatch(Boolean::booleanValue));
+    }
+
+    /**
+     * As chamadas de {@code updateFieldsValues} que levam o card ao estado do lead, na ordem em que devem ser
+     * aplicadas, para serem enviadas com {@link #updateFieldsValues}. Só os campos em {@code changed} são enviados.
+     * <p>
+     * Se o interesse mudou para {@code false}, a primeira chamada limpa os campos de agendamento de reunião.
+     */
+    public List<String> cardFieldsUpdates(String cardId, String nome, String email, String company, String necessidade, Boolean interesse,
+                                          Set<LeadField> changed) {
+        String fields = updateFieldsSelection(cardId, nome, email, company, necessidade, interesse, changed);
+        // Caso ele não queira mais eu limpo o campo da Reunião
+        if (Boolean.FALSE.equals(interesse) && changed.contains(LeadField.INTERESTED)) {
+            return List.of(meetingFieldsSelection(cardId, "", null), fields);
+        }
+        return List.of(fields);
+    }
+
+    /**
+     * A chamada de {@code updateFieldsValues} dos campos da reunião, para ser enviada com {@link #updateFieldsValues}.
+     */
+    public String cardMeetingUpdate(String cardId, String meetingLink, String meetingTimeUtc) {
+        return meetingFieldsSelection(cardId, meetingLink, meetingTimeUtc);
+    }
+
+    /**
+     * Envia várias chamadas de {@code updateFieldsValues}, de um ou mais cards, em uma única requisição: cada uma
+     * vira um campo com alias do mesmo documento GraphQL. O Pipefy executa os campos de uma mutation em sequência,
+     * na ordem do documento.
+     *
+     * @param updatesByAlias As chamadas (ver {@link #cardFieldsUpdates} e {@link #cardMeetingUpdate}) indexadas pelo
+     *                       alias, que precisa ser um nome GraphQL válido.
+     * @return O resultado de cada alias: {@code true} se o Pipefy confirmou a atualização.
+     */
+    public Map<String, Boolean> updateFieldsValues(Map<String, String> updatesByAlias) {
+        return bulkhead.call(() -> updateFieldsValuesAsync(updatesByAlias).block());
+    }
+
+    /**
+     * Versão não bloqueante do {@link #updateFieldsValues}.
+     */
+    public Mono<Map<String, Boolean>> updateFieldsValuesAsync(Map<String, String> updatesByAlias) {
+        if (updatesByAlias.isEmpty()) return Mono.just(Map.of());
+        return performRequestAsync(buildAliasedMutation(updatesByAlias), String.class)
+                .map(response -> parseAliasedResults(response, updatesByAlias.keySet()));
+    }
+
+    static String buildAliasedMutation(Map<String, String> updatesByAlias) {
+        StringBuilder mutation = new StringBuilder("mutation {\n");
+        updatesByAlias.forEach((alias, selection) -> mutation.append("  ").append(alias).append(": ").append(selection).append('\n'));
+        return mutation.append('}').toString();
+    }
+
+    /**
+     * Lê o {@code success} de cada alias. Um alias que falhou vem como {@code null} em {@code data}, com o erro em
+     * {@code errors}, e conta como {@code false}.
+     *
+     * @throws IllegalStateException se a resposta não tem {@code data}: o Pipefy rejeitou o documento inteiro e
+     *                               nenhum alias foi executado.
+     */
+    Map<String, Boolean> parseAliasedResults(String response, Collection<String> aliases) {
+        try {
+            JsonNode root = mapper.readTree(response);
+            JsonNode data = root.path("data");
+            if (!data.isObject()) {
+                throw new IllegalStateException("Pipefy rejeitou o documento: " + root.path("errors"));
+            }
+            Map<String, Boolean> results = new LinkedHashMap<>();
+            for (String alias : aliases) {
+                results.put(alias, data.path(alias).path("success").asBoolean(false));
+            }
+            return results;
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Erro ao ler a resposta do updateFieldsValues", e);
+        }
+    }
+
+    /**
+     * Monta a mutation {@code updateFieldsValues} com os dados do lead.
+     */
+    String buildUpdateFieldsMutation(String cardId, String nome, String email, String company, String necessidade, Boolean interesse) {
+        return "mutation {\n  " + updateFieldsSelection(cardId, nome, email, company, necessidade, interesse, EnumSet.allOf(LeadField.class)) + "\n}";
+    }
 
+    private String updateFieldsSelection(String cardId, String nome, String email, String company, String necessidade, Boolean interesse,
+                                         Set<LeadField> changed) {
         String interesseValue = "null";
         if (Boolean.TRUE.equals(interesse)) {
             interesseValue = "\"Sim\"";
@@ -179,38 +479,26 @@ public class PipefyService {
             interesseValue = "\"Não\"";
         }
 
-        String mutation = String.format("""
-                    mutation {
-                      updateFieldsValues(input:{
-                        nodeId: "%s"
-                        values:[{ fieldId: "%s", value: "%s" },
-                              { fieldId: "%s", value: "%s" },
-                              { fieldId: "%s", value: "%s" },
-                              { fieldId: "%s", value: "%s" },
-                              { fieldId: "%s", value: %s }]
+        StringJoiner values = new StringJoiner(",\n          ", "[", "]");
+        for (LeadField field : changed) {
+            String value = switch (field) {
+                case NAME -> literal(checkIfNull(nome));
+                case EMAIL -> literal(checkIfNull(email));
+                case COMPANY -> literal(checkIfNull(company));
+                case NECESSITY -> literal(checkIfNull(necessidade));
+                case INTERESTED -> interesseValue;
+            };
+            values.add("{ fieldId: \"" + fieldMap.get(field.getPipefyLabel()) + "\", value: " + value + " }");
+        }
+
+        return String.format("""
+                    updateFieldsValues(input:{
+                        nodeId: %s
+                        values:%s
                       })
                       {
                         success
-                      }
-                    }
-                """,cardId,
-                nomeId, checkIfNull(nome),
-                emailId, checkIfNull(email),
-                companyId, checkIfNull(company),
-                necessidadeId, checkIfNull(necessidade),
-                interesseId, interesseValue
-                );
-
-        // Caso ele não queira mais eu limpo o campo da Reunião
-        if(Boolean.FALSE.equals(interesse)){
-            updateCardMeetingFields(cardId,"",null);
-        }
-
-        UpdateFieldsResponse response = performRequest(mutation, UpdateFieldsResponse.class);
-        return response != null &&
-                response.data != null &&
-                response.data.updateFieldsValues != null &&
-                response.data.updateFieldsValues.success;
+                      }""", literal(cardId), values);
     }
 
     /**
@@ -221,6 +509,24 @@ public class PipefyService {
      * @param meetingTimeUtc A data e hora da reunião em formato UTC (String).
      */
     public void updateCardMeetingFields(String cardId,String meetingLink, String meetingTimeUtc) {
+        bulkhead.run(() -> updateCardMeetingFieldsAsync(cardId, meetingLink, meetingTimeUtc).block());
+    }
+
+    /**
+     * Versão não bloqueante do {@link #updateCardMeetingFields}.
+     */
+    public Mono<Void> updateCardMeetingFieldsAsync(String cardId, String meetingLink, String meetingTimeUtc) {
+        return performRequestAsync(buildMeetingFieldsMutation(cardId, meetingLink, meetingTimeUtc), UpdateFieldsResponse.class).then();
+    }
+
+    /**
+     * Monta a mutation {@code updateFieldsValues} dos campos da reunião, com o horário convertido para o fuso de São Paulo.
+     */
+    String buildMeetingFieldsMutation(String cardId, String meetingLink, String meetingTimeUtc) {
+        return "mutation {\n  " + meetingFieldsSelection(cardId, meetingLink, meetingTimeUtc) + "\n}";
+    }
+
+    private String meetingFieldsSelection(String cardId, String meetingLink, String meetingTimeUtc) {
         String meetingId = fieldMap.get("Link da Reunião");
         String meetingTimeId = fieldMap.get("Hora da Reunião");
         String meetingTimeValue = "null";
@@ -229,23 +535,19 @@ public class PipefyService {
             ZonedDateTime spTime = utcInstant.atZone(ZoneId.of("America/Sao_Paulo"));
             meetingTimeValue = "\"" + spTime.toLocalDateTime().toString() + "\"";
         }
-        String mutation = String.format("""
-                    mutation {
-                      updateFieldsValues(input:{
-                        nodeId: "%s"
+        return String.format("""
+                    updateFieldsValues(input:{
+                        nodeId: %s
                         values:[
-                              { fieldId: "%s", value: "%s" },
+                              { fieldId: "%s", value: %s },
                               { fieldId: "%s", value: %s }]
                       })
                       {
                         success
-                      }
-                    }
-                """,cardId,
-                meetingId, meetingLink,
+                      }""", literal(cardId),
+                meetingId, literal(checkIfNull(meetingLink)),
                 meetingTimeId, meetingTimeValue
         );
-        UpdateFieldsResponse response = performRequest(mutation, UpdateFieldsResponse.class);
     }
 
     /**
@@ -256,12 +558,21 @@ public class PipefyService {
      * @throws IllegalStateException se o campo "E-mail" não for encontrado na configuração do pipe.
      */
     public Optional<Card> getCardByEmail(String email) {
+        return bulkhead.call(() -> getCardByEmailAsync(email).blockOptional());
+    }
+
+    /**
+     * Versão não bloqueante do {@link #getCardByEmail}.
+     *
+     * @return Um {@link Mono} com o {@link Card} encontrado, ou vazio caso não exista.
+     */
+    public Mono<Card> getCardByEmailAsync(String email) {
         String emailFieldId = fieldMap.get("E-mail");
-        if (emailFieldId == null) throw new IllegalStateException("Campo 'E-mail' não encontrado.");
+        if (emailFieldId == null) return Mono.error(new IllegalStateException("Campo 'E-mail' não encontrado."));
 
         String query = String.format("""
             query {
-              findCards(pipeId: %s, search: {fieldId: "%s", fieldValue: "%s"}) {
+              findCards(pipeId: %s, search: {fieldId: "%s", fieldValue: %s}) {
                 edges {
                   node {
                     id
@@ -274,16 +585,24 @@ public class PipefyService {
                 }
               }
             }
-        """, pipefyPipeId, emailFieldId, email);
-
-        FindCardResponse response = performRequest(query, FindCardResponse.class);
-        if (response != null &&
-                response.data != null &&
-                response.data.findCards != null &&
-                !response.data.findCards.edges.isEmpty()) {
-            return Optional.of(response.data.findCards.edges.getFirst().node);
-        } else {
-            return Optional.empty();
+        """, pipefyPipeId, emailFieldId, literal(email));
+
+        return performRequestAsync(query, FindCardResponse.class)
+                .filter(response -> response.data != null &&
+                        response.data.findCards != null &&
+                        !response.data.findCards.edges.isEmpty())
+                .map(response -> response.data.findCards.edges.getFirst().node);
+    }
+
+    /**
+     * O valor como literal de string GraphQL, com aspas, barras invertidas e quebras de linha escapadas (a sintaxe é
+     * a mesma do JSON). Os dados do lead são digitados pelo usuário e não podem quebrar o documento.
+     */
+    private String literal(String value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Valor inválido para o Pipefy", e);
         }
     }
 
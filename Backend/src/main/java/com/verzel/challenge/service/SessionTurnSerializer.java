@@ -0,0 +1,92 @@
+package com.verzel.challenge.service;
+
+import org.reactivestreams.Publisher;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Fila de turnos por sessão: garante que os turnos de uma mesma {@code sessionId} rodem um de cada vez,
+ * na ordem em que chegaram, para que cada chamada à OpenAI leia o {@code previousResponseId} gravado
+ * pelo turno anterior.
+ * <p>
+ * Cada sessão guarda apenas o futuro do último turno enfileirado; quem chega troca esse futuro pelo seu
+ * e espera o anterior terminar. Não existe lock global, então sessões diferentes continuam em paralelo,
+ * e a entrada da sessão some do mapa assim que o último turno termina.
+ */
+@Component
+public class SessionTurnSerializer {
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * Executa um turno bloqueante depois que todos os turnos anteriores da sessão terminarem.
+     *
+     * @param sessionId O ID da sessão.
+     * @param turn O turno a ser executado na thread atual.
+     * @param <T> O tipo do retorno.
+     * @return O retorno do turno.
+     */
+    public <T> T runInOrder(String sessionId, Supplier<T> turn) {
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        CompletableFuture<Void> previous = tails.put(sessionId, mine);
+        try {
+            if (previous != null) previous.join();
+            return turn.get();
+        } finally {
+            release(sessionId, mine);
+        }
+    }
+
+    /**
+     * Versão reativa do {@link #runInOrder}: a espera pelo turno anterior não bloqueia nenhuma thread.
+     * O turno só entra na fila quando o {@link Mono} é assinado.
+     */
+    public <T> Mono<T> runInOrderAsync(String sessionId, Supplier<Mono<T>> turn) {
+        // singleOrEmpty() espera o fim do turno para emitir: com next() o valor chegava antes de a sessão ser liberada
+        return enqueue(sessionId, turn).singleOrEmpty();
+    }
+
+    /**
+     * Variante de {@link #runInOrderAsync} para turnos que emitem vários eventos (ex: streaming).
+     * A sessão só é liberada quando o turno termina de fato.
+     * <p>
+     * Cancelar a assinatura (ex: o cliente desconectou) não libera a fila antes da hora: se o turno ainda espera
+     * o anterior, ele não roda, mas a sessão só é liberada quando o anterior terminar; se o turno já começou, ele
+     * roda até o fim, com as gravações no banco, e só então libera a sessão. Assim o turno seguinte nunca roda junto
+     * com um turno cancelado e sempre lê o {@code previousResponseId} gravado por ele.
+     */
+    public <T> Flux<T> enqueue(String sessionId, Supplier<? extends Publisher<T>> turn) {
+        return Flux.defer(() -> {
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> previous = tails.put(sessionId, mine);
+            AtomicBoolean cancelled = new AtomicBoolean();
+            Mono<Void> waitPrevious = previous == null ? Mono.empty() : Mono.fromFuture(previous, true);
+            // cache(): o cancelamento de quem assinou não chega ao turno, que continua até terminar
+            Flux<T> run = waitPrevious
+                    .thenMany(Flux.defer(() -> cancelled.get() ? Flux.<T>empty() : Flux.from(turn.get())))
+                    // Libera antes de o término chegar a quem assinou: quem recebe o fim do turno já vê a sessão livre.
+                    // O doFinally cobre um cancelamento do próprio turno; liberar duas vezes não tem efeito
+                    .doOnTerminate(() -> release(sessionId, mine))
+                    .doFinally(signal -> release(sessionId, mine))
+                    .cache();
+            return run.doOnCancel(() -> cancelled.set(true));
+        });
+    }
+
+    /**
+     * Quantidade de sessões com turnos em andamento ou na fila.
+     */
+    public int activeSessions() {
+        return tails.size();
+    }
+
+    private void release(String sessionId, CompletableFuture<Void> mine) {
+        tails.remove(sessionId, mine);
+        mine.complete(null);
+    }
+}
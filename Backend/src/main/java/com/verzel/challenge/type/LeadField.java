@@ -0,0 +1,45 @@
+package com.verzel.challenge.type;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Campos do lead sincronizados com o Pipefy, com o label do campo no formulário do pipe.
+ */
+public enum LeadField {
+    NAME("Nome"),
+    EMAIL("E-mail"),
+    COMPANY("Empresa"),
+    NECESSITY("Necessidade"),
+    INTERESTED("Interessado");
+
+    private final String pipefyLabel;
+
+    LeadField(String pipefyLabel) {
+        this.pipefyLabel = pipefyLabel;
+    }
+
+    public String getPipefyLabel() {
+        return pipefyLabel;
+    }
+
+    /**
+     * Formato gravado no payload do outbox, ex: {@code NAME,COMPANY}.
+     */
+    public static String format(Set<LeadField> fields) {
+        return fields.stream().map(Enum::name).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Lê o formato do {@link #format}. Um payload vazio (entradas gravadas antes do diff) significa todos os campos.
+     */
+    public static EnumSet<LeadField> parse(String payload) {
+        if (payload == null || payload.isBlank()) return EnumSet.allOf(LeadField.class);
+        return Arrays.stream(payload.split(","))
+                .map(String::trim)
+                .map(LeadField::valueOf)
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(LeadField.class)));
+    }
+}
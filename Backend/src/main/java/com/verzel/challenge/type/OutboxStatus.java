@@ -0,0 +1,6 @@
+package com.verzel.challenge.type;
+
+public enum OutboxStatus {
+    PENDING,
+    FAILED
+}
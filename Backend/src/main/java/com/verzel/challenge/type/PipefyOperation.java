@@ -0,0 +1,7 @@
+package com.verzel.challenge.type;
+
+public enum PipefyOperation {
+    CREATE_CARD,
+    UPDATE_FIELDS,
+    UPDATE_MEETING
+}
@@ -0,0 +1,7 @@
+package com.verzel.challenge.type;
+
+public enum WebhookStatus {
+    PENDING,
+    PROCESSED,
+    FAILED
+}
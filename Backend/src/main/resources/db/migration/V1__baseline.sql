@@ -0,0 +1,31 @@
+-- Schema original, como era gerado pelo ddl-auto=update.
+-- Bancos que já existiam antes do Flyway são marcados nesta versão (baseline-on-migrate) e pulam este script.
+CREATE TABLE lead_tb (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    card_id      VARCHAR(255),
+    name         VARCHAR(255),
+    email        VARCHAR(255),
+    company      VARCHAR(255),
+    necessity    VARCHAR(255),
+    interested   BOOLEAN,
+    meeting_link TEXT,
+    created_at   TIMESTAMP(6),
+    updated_at   TIMESTAMP(6)
+);
+
+CREATE TABLE chat_tb (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    session_id           VARCHAR(255),
+    previous_response_id VARCHAR(255),
+    created_at           TIMESTAMP(6),
+    last_interaction     TIMESTAMP(6),
+    lead_id              BIGINT REFERENCES lead_tb (id)
+);
+
+CREATE TABLE message_tb (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    sender     VARCHAR(255) CHECK (sender IN ('USER', 'ASSISTANT')),
+    content    TEXT,
+    created_at TIMESTAMP(6),
+    session_id BIGINT REFERENCES chat_tb (id)
+);
@@ -0,0 +1,24 @@
+-- Outbox do Pipefy e sequences dos IDs (allocationSize 50 no Hibernate).
+-- IF NOT EXISTS porque bancos que rodaram com ddl-auto=update já podem ter esses objetos.
+CREATE TABLE IF NOT EXISTS pipefy_outbox (
+    id              BIGINT PRIMARY KEY,
+    lead_id         BIGINT       NOT NULL,
+    operation       VARCHAR(255) CHECK (operation IN ('CREATE_CARD', 'UPDATE_FIELDS', 'UPDATE_MEETING')),
+    payload         TEXT,
+    status          VARCHAR(255) CHECK (status IN ('PENDING', 'FAILED')),
+    attempts        INTEGER      NOT NULL,
+    next_attempt_at TIMESTAMP(6),
+    last_error      TEXT,
+    created_at      TIMESTAMP(6)
+);
+
+CREATE SEQUENCE IF NOT EXISTS chat_tb_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS lead_tb_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS message_tb_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS pipefy_outbox_seq INCREMENT BY 50;
+
+-- As tabelas criadas com IDENTITY já têm linhas: avança cada sequence para depois do maior ID (nunca para trás)
+SELECT setval('chat_tb_seq', GREATEST((SELECT last_value FROM chat_tb_seq), (SELECT COALESCE(MAX(id), 0) FROM chat_tb) + 50));
+SELECT setval('lead_tb_seq', GREATEST((SELECT last_value FROM lead_tb_seq), (SELECT COALESCE(MAX(id), 0) FROM lead_tb) + 50));
+SELECT setval('message_tb_seq', GREATEST((SELECT last_value FROM message_tb_seq), (SELECT COALESCE(MAX(id), 0) FROM message_tb) + 50));
+SELECT setval('pipefy_outbox_seq', GREATEST((SELECT last_value FROM pipefy_outbox_seq), (SELECT COALESCE(MAX(id), 0) FROM pipefy_outbox) + 50));
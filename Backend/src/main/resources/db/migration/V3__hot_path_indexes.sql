@@ -0,0 +1,43 @@
+-- Bancos vindos do ddl-auto=update não tinham unicidade em chat_tb.session_id nem em lead_tb.email: antes dos
+-- índices únicos, as duplicatas são juntadas em uma linha só, senão o CREATE UNIQUE INDEX falha e a migration para.
+
+-- Sessões com o mesmo session_id: fica a de interação mais recente, que recebe as mensagens e o lead das outras
+CREATE TEMP TABLE chat_tb_duplicate AS
+SELECT id, lead_id, first_value(id) OVER (PARTITION BY session_id ORDER BY last_interaction DESC NULLS LAST, id DESC) AS kept_id
+FROM chat_tb WHERE session_id IS NOT NULL;
+DELETE FROM chat_tb_duplicate WHERE id = kept_id;
+
+UPDATE chat_tb c SET lead_id = d.lead_id
+FROM (SELECT kept_id, MAX(lead_id) AS lead_id FROM chat_tb_duplicate GROUP BY kept_id) d
+WHERE c.id = d.kept_id AND c.lead_id IS NULL;
+UPDATE message_tb m SET session_id = d.kept_id FROM chat_tb_duplicate d WHERE m.session_id = d.id;
+DELETE FROM chat_tb c USING chat_tb_duplicate d WHERE c.id = d.id;
+DROP TABLE chat_tb_duplicate;
+
+-- Leads com o mesmo e-mail (sem diferenciar maiúsculas): fica o que já tem card no Pipefy ou, entre eles, o mais
+-- antigo. Sessões e entradas do outbox passam para ele; o dispatcher não cria outro card para um lead que já tem
+CREATE TEMP TABLE lead_tb_duplicate AS
+SELECT id, first_value(id) OVER (PARTITION BY lower(email) ORDER BY card_id IS NULL, id) AS kept_id
+FROM lead_tb WHERE email IS NOT NULL;
+DELETE FROM lead_tb_duplicate WHERE id = kept_id;
+
+UPDATE chat_tb c SET lead_id = d.kept_id FROM lead_tb_duplicate d WHERE c.lead_id = d.id;
+UPDATE pipefy_outbox o SET lead_id = d.kept_id FROM lead_tb_duplicate d WHERE o.lead_id = d.id;
+DELETE FROM lead_tb l USING lead_tb_duplicate d WHERE l.id = d.id;
+DROP TABLE lead_tb_duplicate;
+
+-- ChatSessionRepository.findBySessionId (início de todo turno sem cache)
+CREATE UNIQUE INDEX IF NOT EXISTS chat_tb_session_id_uk ON chat_tb (session_id);
+
+-- ChatSessionRepository.findLatestSessionIdByLeadId (webhook do Calendly)
+CREATE INDEX IF NOT EXISTS chat_tb_lead_last_interaction_idx ON chat_tb (lead_id, last_interaction DESC);
+
+-- LeadRepository.findByEmailIgnoreCase compara lower(email); também impede leads duplicados por e-mail
+CREATE UNIQUE INDEX IF NOT EXISTS lead_tb_email_lower_uk ON lead_tb (lower(email));
+
+-- FK de message_tb para chat_tb
+CREATE INDEX IF NOT EXISTS message_tb_session_id_idx ON message_tb (session_id);
+
+-- PipefyOutboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc (dispatcher);
+-- parcial porque o dispatcher só lê PENDING e as entradas FAILED ficam paradas
+CREATE INDEX IF NOT EXISTS pipefy_outbox_due_idx ON pipefy_outbox (next_attempt_at, id) WHERE status = 'PENDING';
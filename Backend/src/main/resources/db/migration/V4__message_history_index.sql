@@ -0,0 +1,3 @@
+-- Keyset do histórico em (session_id, created_at, id); também atende a FK, então substitui o índice só de session_id
+CREATE INDEX IF NOT EXISTS message_tb_history_idx ON message_tb (session_id, created_at, id);
+DROP INDEX IF EXISTS message_tb_session_id_idx;
@@ -0,0 +1,41 @@
+-- message_tb passa a ser particionada por mês de created_at. A retenção (ChatRetentionService) arquiva e
+-- derruba as partições antigas inteiras em vez de apagar linha a linha, e os índices de cada mês ficam pequenos.
+-- A chave primária precisa incluir a chave de partição.
+ALTER TABLE message_tb RENAME TO message_tb_old;
+ALTER INDEX message_tb_pkey RENAME TO message_tb_old_pkey;
+ALTER INDEX message_tb_history_idx RENAME TO message_tb_old_history_idx;
+
+CREATE TABLE message_tb (
+    id         BIGINT       NOT NULL,
+    sender     VARCHAR(255) CHECK (sender IN ('USER', 'ASSISTANT')),
+    content    TEXT,
+    created_at TIMESTAMP(6) NOT NULL,
+    session_id BIGINT REFERENCES chat_tb (id),
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX message_tb_history_idx ON message_tb (session_id, created_at, id);
+
+-- Sem partição padrão: ela seria varrida sob lock a cada CREATE TABLE ... PARTITION OF e ATTACH PARTITION.
+-- As mensagens mantidas de um mês arquivado vão para a partição message_tb_a<ano>m<mês> dele, e as partições dos
+-- próximos meses são criadas com antecedência pelo ChatRetentionService.
+-- Um partição por mês, do mês da mensagem mais antiga até dois meses à frente
+DO $$
+DECLARE
+    month DATE := date_trunc('month', COALESCE((SELECT MIN(created_at) FROM message_tb_old), now()));
+BEGIN
+    WHILE month <= date_trunc('month', now()) + interval '2 months' LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF message_tb FOR VALUES FROM (%L) TO (%L)',
+                       'message_tb_y' || to_char(month, 'YYYY') || 'm' || to_char(month, 'MM'),
+                       month, month + interval '1 month');
+        month := month + interval '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO message_tb (id, sender, content, created_at, session_id)
+SELECT id, sender, content, COALESCE(created_at, now()), session_id FROM message_tb_old;
+
+DROP TABLE message_tb_old;
+
+-- Busca da retenção por sessões anônimas antigas
+CREATE INDEX IF NOT EXISTS chat_tb_anonymous_last_interaction_idx ON chat_tb (last_interaction) WHERE lead_id IS NULL;
@@ -0,0 +1,2 @@
+-- Versão do prompt com que a cadeia de respostas da OpenAI da sessão começou (ver OpenAIService)
+ALTER TABLE chat_tb ADD COLUMN IF NOT EXISTS prompt_version VARCHAR(255);
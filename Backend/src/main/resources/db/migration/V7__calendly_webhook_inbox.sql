@@ -0,0 +1,17 @@
+-- Webhooks do Calendly recebidos e ainda não processados (ou processados há pouco, para descartar as reentregas).
+-- dedupe_key identifica a entrega (evento + URI do invitee), então uma reentrega do Calendly não gera outra linha.
+CREATE TABLE IF NOT EXISTS calendly_webhook (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    dedupe_key      VARCHAR(512) NOT NULL,
+    payload         TEXT         NOT NULL,
+    status          VARCHAR(255) CHECK (status IN ('PENDING', 'PROCESSED', 'FAILED')),
+    attempts        INTEGER      NOT NULL,
+    next_attempt_at TIMESTAMP(6),
+    last_error      TEXT,
+    created_at      TIMESTAMP(6),
+    processed_at    TIMESTAMP(6),
+    CONSTRAINT calendly_webhook_dedupe_key_uk UNIQUE (dedupe_key)
+);
+
+-- CalendlyWebhookRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc (dispatcher)
+CREATE INDEX IF NOT EXISTS calendly_webhook_due_idx ON calendly_webhook (next_attempt_at, id) WHERE status = 'PENDING';
@@ -0,0 +1,23 @@
+package com.verzel.challenge.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Argumentos {@code --nome valor} da linha de comando.
+ */
+class Arguments {
+    private final Map<String, String> values = new HashMap<>();
+
+    Arguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Argumento inválido: " + args[i]);
+            String name = args[i].substring(2);
+            values.put(name, i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "true");
+        }
+    }
+
+    String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+}
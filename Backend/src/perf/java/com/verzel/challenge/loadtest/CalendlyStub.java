@@ -0,0 +1,72 @@
+package com.verzel.challenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emula os endpoints do Calendly usados na inicialização e no {@code getAvailableSlots}.
+ * A agenda tem horários de 30 minutos das 12h às 20h UTC, de segunda a sexta.
+ */
+class CalendlyStub extends StubHandler {
+    private static final String BASE = "https://api.calendly.com";
+
+    CalendlyStub(LatencyProfile profile, LatencyStats stats, ObjectMapper mapper) {
+        super("calendly", profile, stats, mapper);
+    }
+
+    @Override
+    protected String operation(HttpExchange exchange, byte[] body) {
+        String path = exchange.getRequestURI().getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    protected void respond(HttpExchange exchange, byte[] body, long delayMillis) throws IOException, InterruptedException {
+        Thread.sleep(delayMillis);
+        switch (operation(exchange, body)) {
+            case "me" -> send(exchange, 200, Map.of("resource", Map.of(
+                    "uri", BASE + "/users/STUB",
+                    "current_organization", BASE + "/organizations/STUB")));
+            case "event_types" -> send(exchange, 200, Map.of("collection", List.of(Map.of("uri", BASE + "/event_types/STUB"))));
+            case "webhook_subscriptions" -> send(exchange, 201, Map.of("resource", Map.of("state", "active")));
+            case "event_type_available_times" -> send(exchange, 200, Map.of("collection", slots(exchange.getRequestURI().getRawQuery())));
+            default -> send(exchange, 404, "{\"message\":\"Resource Not Found\"}");
+        }
+    }
+
+    private static List<Map<String, Object>> slots(String rawQuery) {
+        OffsetDateTime start = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime end = start.plusDays(7);
+        for (String param : rawQuery == null ? new String[0] : rawQuery.split("&")) {
+            String[] pair = param.split("=", 2);
+            if (pair.length < 2) continue;
+            String value = URLDecoder.decode(pair[1], StandardCharsets.UTF_8);
+            if (pair[0].equals("start_time")) start = OffsetDateTime.parse(value);
+            if (pair[0].equals("end_time")) end = OffsetDateTime.parse(value);
+        }
+
+        List<Map<String, Object>> slots = new ArrayList<>();
+        OffsetDateTime slot = start.truncatedTo(ChronoUnit.HOURS);
+        for (; slot.isBefore(end); slot = slot.plusMinutes(30)) {
+            if (slot.getDayOfWeek() == DayOfWeek.SATURDAY || slot.getDayOfWeek() == DayOfWeek.SUNDAY) continue;
+            if (slot.getHour() < 12 || slot.getHour() >= 20 || slot.isBefore(start)) continue;
+            slots.add(Map.of(
+                    "status", "available",
+                    "invitees_remaining", 1,
+                    "start_time", slot.toString(),
+                    "scheduling_url", "https://calendly.com/stub/30min/" + slot + "?month=" + slot.toLocalDate().withDayOfMonth(1)));
+        }
+        return slots;
+    }
+}
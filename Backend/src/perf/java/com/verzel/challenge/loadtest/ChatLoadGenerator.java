@@ -0,0 +1,232 @@
+package com.verzel.challenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * Gerador de carga de ponta a ponta: conversas no {@code POST /chat/message} e webhooks do Calendly
+ * em {@code POST /calendly/webhook}, cada um na sua taxa alvo.
+ * <p>
+ * A carga é de modelo aberto: as requisições saem no horário planejado, independente de as anteriores
+ * terem respondido, e a latência é medida a partir desse horário. Assim uma aplicação saturada aparece
+ * como latência crescente, e não como uma taxa menor que a pedida.
+ * <p>
+ * Cada conversa usa o próprio cookie {@code sessionId} e segue o roteiro que o {@link OpenAIStub} entende:
+ * duas mensagens de conversa, o e-mail ({@code registrarLead}) e o pedido de horário ({@code oferecerHorarios}).
+ * Os leads que terminaram o roteiro recebem o webhook de agendamento. O relatório traz p50/p95/p99 por etapa,
+ * a divisão do turno que a aplicação devolve no header {@code Server-Timing} e, com {@code --stub}, as latências
+ * das APIs emuladas no mesmo período.
+ * <pre>
+ * mvn -Pperf -DskipTests test-compile exec:exec -Dperf.main=com.verzel.challenge.loadtest.ChatLoadGenerator \
+ *     -Dperf.args="--target http://localhost:8080 --rps 20 --webhook-rps 2 --duration 120 --warmup 20 --stub http://localhost:9090"
+ * </pre>
+ */
+public class ChatLoadGenerator {
+    private static final List<Turn> SCRIPT = List.of(
+            new Turn("chat.talk", "Oi, quero saber mais sobre o CRM de vocês"),
+            new Turn("chat.talk", "Sou o Carlos, da TechSolutions, e hoje controlamos os fornecedores em planilhas"),
+            new Turn("chat.registrarLead", "Meu email é %s"),
+            new Turn("chat.oferecerHorarios", "Quero agendar um horário com o time"));
+
+    private record Turn(String stage, String message) {
+    }
+
+    private static class Conversation {
+        final String email;
+        String sessionCookie;
+        int next;
+
+        Conversation(String email) {
+            this.email = email;
+        }
+    }
+
+    private final URI target;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LatencyStats stats = new LatencyStats();
+    private final LatencyStats serverTiming = new LatencyStats();
+    private final Queue<Conversation> idle = new ConcurrentLinkedQueue<>();
+    private final Queue<String> scheduledLeads = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger conversations = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    ChatLoadGenerator(URI target, ExecutorService executor) {
+        this.target = target;
+        this.client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        URI target = URI.create(arguments.get("target", "http://localhost:8080"));
+        double rps = Double.parseDouble(arguments.get("rps", "10"));
+        double webhookRps = Double.parseDouble(arguments.get("webhook-rps", "1"));
+        int duration = Integer.parseInt(arguments.get("duration", "60"));
+        int warmup = Integer.parseInt(arguments.get("warmup", "10"));
+        String stub = arguments.get("stub", null);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            ChatLoadGenerator generator = new ChatLoadGenerator(target, executor);
+            System.out.printf("Aquecimento: %d s a %.1f msg/s e %.1f webhooks/s%n", warmup, rps, webhookRps);
+            generator.run(executor, rps, webhookRps, warmup);
+            generator.stats.reset();
+            generator.serverTiming.reset();
+            if (stub != null) post(generator.client, URI.create(stub + "/stats/reset"));
+
+            System.out.printf("Medição: %d s%n", duration);
+            generator.run(executor, rps, webhookRps, duration);
+            System.out.println();
+            System.out.println("Aplicação (" + target + "), latência desde o horário planejado:");
+            System.out.println(generator.stats.report(duration));
+            System.out.println("Etapas do turno na aplicação (Server-Timing):");
+            System.out.println(generator.serverTiming.report(duration));
+            if (stub != null) {
+                System.out.println("APIs emuladas (" + stub + "):");
+                System.out.println(post(generator.client, URI.create(stub + "/stats")));
+            }
+        }
+    }
+
+    /**
+     * Dispara as mensagens e os webhooks pelo tempo pedido e espera as requisições em andamento terminarem.
+     */
+    void run(ExecutorService executor, double rps, double webhookRps, int seconds) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        Thread webhooks = Thread.ofPlatform().name("load-webhooks").start(() ->
+                pace(start, end, webhookRps, intended -> executor.execute(() -> sendWebhook(intended))));
+        pace(start, end, rps, intended -> executor.execute(() -> sendTurn(intended)));
+        webhooks.join();
+        // As conversas em andamento terminam o turno atual antes da próxima fase
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) Thread.sleep(50);
+    }
+
+    private static void pace(long start, long end, double rate, LongConsumer send) {
+        if (rate <= 0) return;
+        long period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        for (long intended = start; intended < end; intended += period) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            send.accept(intended);
+        }
+    }
+
+    private void sendTurn(long intended) {
+        Conversation conversation = idle.poll();
+        if (conversation == null) {
+            conversation = new Conversation("lead-" + runId + "-" + conversations.incrementAndGet() + "@load.test");
+        }
+        Turn turn = SCRIPT.get(conversation.next);
+        inFlight.incrementAndGet();
+        try {
+            String body = mapper.writeValueAsString(Map.of("message", turn.message().formatted(conversation.email)));
+            HttpRequest.Builder request = HttpRequest.newBuilder(target.resolve("/chat/message"))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+            if (conversation.sessionCookie != null) request.header("Cookie", conversation.sessionCookie);
+
+            HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 != 2) {
+                stats.failure(turn.stage());
+                return;
+            }
+            stats.record(turn.stage(), System.nanoTime() - intended);
+            response.headers().firstValue("Server-Timing").ifPresent(header -> recordServerTiming(turn.stage(), header));
+            if (conversation.sessionCookie == null) {
+                conversation.sessionCookie = response.headers().firstValue("Set-Cookie")
+                        .map(cookie -> cookie.substring(0, cookie.indexOf(';')))
+                        .orElse(null);
+            }
+            if (++conversation.next < SCRIPT.size()) {
+                idle.add(conversation);
+            } else {
+                scheduledLeads.add(conversation.email);
+            }
+        } catch (Exception e) {
+            stats.failure(turn.stage());
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Registra as etapas com duração do header, por exemplo {@code llm;dur=812.4, action;desc="oferecerHorarios"}.
+     */
+    private void recordServerTiming(String stage, String header) {
+        for (String metric : header.split(",")) {
+            String[] params = metric.trim().split(";");
+            for (int i = 1; i < params.length; i++) {
+                if (params[i].startsWith("dur=")) {
+                    double millis = Double.parseDouble(params[i].substring(4));
+                    serverTiming.record(stage + " " + params[0], (long) (millis * TimeUnit.MILLISECONDS.toNanos(1)));
+                }
+            }
+        }
+    }
+
+    private void sendWebhook(long intended) {
+        String email = scheduledLeads.poll();
+        if (email == null) return;
+        inFlight.incrementAndGet();
+        try {
+            OffsetDateTime meeting = OffsetDateTime.now(ZoneOffset.UTC).plusDays(2).withHour(15).withMinute(0).withSecond(0).withNano(0);
+            String body = mapper.writeValueAsString(Map.of(
+                    "event", "invitee.created",
+                    "created_at", OffsetDateTime.now(ZoneOffset.UTC).toString(),
+                    "payload", Map.of(
+                            "uri", "https://api.calendly.com/scheduled_events/LOAD/invitees/" + UUID.randomUUID(),
+                            "email", email,
+                            "name", "Lead de carga",
+                            "scheduled_event", Map.of(
+                                    "uri", "https://api.calendly.com/scheduled_events/LOAD-" + UUID.randomUUID(),
+                                    "name", "Reunião",
+                                    "start_time", meeting.toInstant().toString(),
+                                    "end_time", meeting.plusMinutes(30).toInstant().toString(),
+                                    "location", Map.of("join_url", "https://meet.google.com/" + email.hashCode())))));
+            HttpRequest request = HttpRequest.newBuilder(target.resolve("/calendly/webhook"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 == 2) {
+                stats.record("webhook.calendly", System.nanoTime() - intended);
+            } else {
+                stats.failure("webhook.calendly");
+            }
+        } catch (Exception e) {
+            stats.failure("webhook.calendly");
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static String post(HttpClient client, URI uri) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
@@ -0,0 +1,110 @@
+package com.verzel.challenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor local que emula OpenAI, Pipefy e Calendly, para subir e testar a aplicação sem as APIs reais.
+ * <p>
+ * Cada API fica em um prefixo ({@code /openai/v1}, {@code /pipefy}, {@code /calendly}) e tem o seu
+ * {@link LatencyProfile}. Cada chamada roda em uma virtual thread, então a latência simulada não limita
+ * a concorrência do stub. {@code GET /stats} devolve as latências servidas por operação;
+ * {@code POST /stats/reset} zera as estatísticas.
+ * <p>
+ * Pode ser usado embutido ({@link #start}) ou pela linha de comando:
+ * <pre>
+ * mvn -Pperf -DskipTests test-compile exec:exec -Dperf.main=com.verzel.challenge.loadtest.ExternalApiStub \
+ *     -Dperf.args="--port 9090 --openai 800:3000:0.01 --pipefy 150:600 --calendly 200:800"
+ * </pre>
+ */
+public class ExternalApiStub implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LatencyStats stats = new LatencyStats();
+    private volatile long statsSince = System.nanoTime();
+
+    private ExternalApiStub(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Sobe o stub na porta informada ({@code 0} escolhe uma porta livre).
+     */
+    public static ExternalApiStub start(int port, LatencyProfile openai, LatencyProfile pipefy, LatencyProfile calendly) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        ExternalApiStub stub = new ExternalApiStub(server, executor);
+
+        server.createContext("/openai/v1/responses", new OpenAIStub(openai, stub.stats, mapper));
+        server.createContext("/pipefy/graphql", new PipefyStub(pipefy, stub.stats, mapper));
+        server.createContext("/calendly/", new CalendlyStub(calendly, stub.stats, mapper));
+        server.createContext("/stats", exchange -> {
+            try (exchange) {
+                if (exchange.getRequestURI().getPath().endsWith("/reset")) {
+                    stub.stats.reset();
+                    stub.statsSince = System.nanoTime();
+                }
+                byte[] body = stub.report().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        return stub;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * As variáveis de ambiente que apontam a aplicação para este stub.
+     */
+    public String environment() {
+        String base = "http://localhost:" + port();
+        return "OPENAI_BASE_URL=" + base + "/openai/v1\n"
+                + "PIPEFY_BASE_URL=" + base + "/pipefy\n"
+                + "CALENDLY_BASE_URL=" + base + "/calendly\n";
+    }
+
+    public String report() {
+        return stats.report((System.nanoTime() - statsSince) / 1e9);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = new Arguments(args);
+        LatencyProfile openai = LatencyProfile.parse(arguments.get("openai", "800:3000:0"));
+        LatencyProfile pipefy = LatencyProfile.parse(arguments.get("pipefy", "150:600:0"));
+        LatencyProfile calendly = LatencyProfile.parse(arguments.get("calendly", "200:800:0"));
+
+        ExternalApiStub stub = start(Integer.parseInt(arguments.get("port", "9090")), openai, pipefy, calendly);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println(stub.report());
+            stub.close();
+        }));
+        System.out.println("Stub das APIs externas na porta " + stub.port());
+        System.out.println("  openai:   " + openai);
+        System.out.println("  pipefy:   " + pipefy);
+        System.out.println("  calendly: " + calendly);
+        System.out.println("Variáveis de ambiente da aplicação:\n" + stub.environment());
+    }
+}
@@ -0,0 +1,44 @@
+package com.verzel.challenge.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latência e taxa de erro de uma API emulada pelo {@link ExternalApiStub}.
+ * <p>
+ * A latência segue uma log-normal definida pela mediana e pelo p99, que é o formato típico de APIs externas:
+ * a maior parte das chamadas perto da mediana e uma cauda longa.
+ *
+ * @param medianMillis A mediana da latência.
+ * @param p99Millis O p99 da latência; igual à mediana para latência fixa.
+ * @param errorRate A fração das chamadas respondidas com HTTP 500, entre 0 e 1.
+ */
+public record LatencyProfile(double medianMillis, double p99Millis, double errorRate) {
+    private static final double Z_99 = 2.326;
+
+    /**
+     * Lê o formato {@code mediana:p99:erro}, por exemplo {@code 800:3000:0.01}. O p99 e a taxa de erro são opcionais.
+     */
+    public static LatencyProfile parse(String value) {
+        String[] parts = value.split(":");
+        double median = Double.parseDouble(parts[0]);
+        double p99 = parts.length > 1 ? Double.parseDouble(parts[1]) : median;
+        double errorRate = parts.length > 2 ? Double.parseDouble(parts[2]) : 0;
+        if (p99 < median) throw new IllegalArgumentException("p99 menor que a mediana: " + value);
+        return new LatencyProfile(median, p99, errorRate);
+    }
+
+    long sampleMillis() {
+        if (medianMillis <= 0) return 0;
+        double sigma = Math.log(p99Millis / medianMillis) / Z_99;
+        return Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    boolean fails() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("mediana %.0f ms, p99 %.0f ms, erro %.1f%%", medianMillis, p99Millis, errorRate * 100);
+    }
+}
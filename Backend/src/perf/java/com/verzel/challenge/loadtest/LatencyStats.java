@@ -0,0 +1,76 @@
+package com.verzel.challenge.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latências por etapa, guardadas inteiras e ordenadas só no relatório; um teste de carga gera no máximo
+ * algumas centenas de milhares de amostras.
+ */
+class LatencyStats {
+    private final Map<String, Samples> stages = new ConcurrentHashMap<>();
+
+    void record(String stage, long nanos) {
+        stages.computeIfAbsent(stage, s -> new Samples()).add(nanos);
+    }
+
+    void failure(String stage) {
+        stages.computeIfAbsent(stage, s -> new Samples()).fail();
+    }
+
+    void reset() {
+        stages.clear();
+    }
+
+    /**
+     * Uma linha por etapa: total de chamadas, erros, vazão e os percentis da latência em milissegundos.
+     *
+     * @param seconds A duração da medição, para a vazão.
+     */
+    String report(double seconds) {
+        StringBuilder sb = new StringBuilder(String.format("%-36s %8s %7s %8s %9s %9s %9s %9s%n",
+                "etapa", "total", "erros", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        new TreeMap<>(stages).forEach((stage, samples) -> {
+            long[] sorted = samples.sorted();
+            int total = sorted.length + samples.failures;
+            sb.append(String.format("%-36s %8d %7d %8.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    stage, total, samples.failures, total / seconds,
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                    millis(percentile(sorted, 0.99)), millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1])));
+        });
+        return sb.toString();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static class Samples {
+        private long[] values = new long[1024];
+        private int size;
+        private volatile int failures;
+
+        synchronized void add(long nanos) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = nanos;
+        }
+
+        synchronized void fail() {
+            failures++;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
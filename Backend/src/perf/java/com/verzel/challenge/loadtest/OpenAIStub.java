@@ -0,0 +1,126 @@
+package com.verzel.challenge.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Emula o {@code POST /v1/responses} da OpenAI, com e sem {@code stream}.
+ * <p>
+ * O "modelo" segue o roteiro do {@link ChatLoadGenerator}: uma mensagem com e-mail gera {@code registrarLead},
+ * uma mensagem pedindo horário gera {@code oferecerHorarios} e o resto é só conversa. O lead devolvido parte do
+ * "ESTADO ATUAL DO LEAD" enviado pela aplicação, como o modelo real faria.
+ */
+class OpenAIStub extends StubHandler {
+    private static final String LEAD_STATE_PREFIX = "ESTADO ATUAL DO LEAD:\n";
+    private static final Pattern EMAIL = Pattern.compile("[\\w.+-]+@[\\w.-]+\\.\\w+");
+    private static final int STREAM_CHUNKS = 20;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    OpenAIStub(LatencyProfile profile, LatencyStats stats, ObjectMapper mapper) {
+        super("openai", profile, stats, mapper);
+    }
+
+    @Override
+    protected String operation(HttpExchange exchange, byte[] body) throws IOException {
+        return mapper.readTree(body).path("stream").asBoolean() ? "responses.stream" : "responses";
+    }
+
+    @Override
+    protected void respond(HttpExchange exchange, byte[] body, long delayMillis) throws IOException, InterruptedException {
+        JsonNode request = mapper.readTree(body);
+        ObjectNode response = buildResponse(request, body.length);
+        if (!request.path("stream").asBoolean()) {
+            Thread.sleep(delayMillis);
+            send(exchange, 200, response);
+            return;
+        }
+
+        // Primeiro token em ~30% da latência; o resto do texto chega em pedaços ao longo do tempo restante
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            Thread.sleep(delayMillis * 3 / 10);
+            String text = response.path("output").get(0).path("content").get(0).path("text").asText();
+            int chunk = Math.max(1, (text.length() + STREAM_CHUNKS - 1) / STREAM_CHUNKS);
+            long pause = delayMillis * 7 / 10 / STREAM_CHUNKS;
+            for (int i = 0; i < text.length(); i += chunk) {
+                event(out, "response.output_text.delta", Map.of("type", "response.output_text.delta",
+                        "delta", text.substring(i, Math.min(text.length(), i + chunk))));
+                Thread.sleep(pause);
+            }
+            event(out, "response.completed", Map.of("type", "response.completed", "response", response));
+        }
+    }
+
+    private void event(OutputStream out, String type, Object data) throws IOException {
+        out.write(("event: " + type + "\ndata: " + mapper.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ObjectNode buildResponse(JsonNode request, int requestBytes) throws IOException {
+        Map<String, Object> lead = new LinkedHashMap<>();
+        String question = "";
+        for (JsonNode item : request.path("input")) {
+            String content = item.path("content").asText();
+            if (content.startsWith(LEAD_STATE_PREFIX)) {
+                mapper.readerForUpdating(lead).readValue(content.substring(LEAD_STATE_PREFIX.length()));
+            } else if ("user".equals(item.path("role").asText())) {
+                question = content;
+            }
+        }
+
+        String mensagem;
+        String action = null;
+        Matcher email = EMAIL.matcher(question);
+        if (email.find()) {
+            lead.put("email", email.group());
+            mensagem = "Obrigado! Já registrei seu contato. Quer ver alguns horários para conversar com o nosso time?";
+            action = "registrarLead";
+        } else if (question.toLowerCase().contains("horário") || question.toLowerCase().contains("agendar")) {
+            lead.put("interesse", true);
+            mensagem = "Ótimo! Separei alguns horários disponíveis para a nossa conversa.";
+            action = "oferecerHorarios";
+        } else {
+            mensagem = "Entendi. Pode me contar um pouco mais sobre a sua empresa e o que vocês precisam resolver?";
+        }
+        Map<String, Object> assistant = new LinkedHashMap<>();
+        assistant.put("mensagem", mensagem);
+        assistant.put("lead", lead);
+        assistant.put("action", action);
+
+        // Uma estimativa grosseira de tokens (4 bytes por token); nas cadeias, o prefixo já enviado vem do cache
+        long inputTokens = requestBytes / 4 + (request.hasNonNull("previous_response_id") ? 1_900 : 0);
+        long cachedTokens = request.hasNonNull("previous_response_id") ? (inputTokens - 200) / 128 * 128 : 0;
+
+        ObjectNode response = mapper.createObjectNode();
+        response.put("id", "resp_stub_" + ids.incrementAndGet());
+        response.put("object", "response");
+        response.put("status", "completed");
+        response.put("model", request.path("model").asText());
+        response.set("previous_response_id", request.path("previous_response_id"));
+        response.set("output", mapper.valueToTree(List.of(Map.of(
+                "id", "msg_stub_" + ids.get(),
+                "type", "message",
+                "status", "completed",
+                "role", "assistant",
+                "content", List.of(Map.of("type", "output_text", "annotations", List.of(), "text", mapper.writeValueAsString(assistant)))))));
+        response.set("usage", mapper.valueToTree(Map.of(
+                "input_tokens", inputTokens,
+                "input_tokens_details", Map.of("cached_tokens", cachedTokens),
+                "output_tokens", mensagem.length() / 4 + 40)));
+        return response;
+    }
+}
@@ -0,0 +1,89 @@
+package com.verzel.challenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Emula o {@code POST /graphql} do Pipefy para as queries e mutations que a aplicação envia.
+ * Os cards criados ficam em memória, indexados pelo e-mail, para o {@code findCards} encontrá-los depois.
+ */
+class PipefyStub extends StubHandler {
+    private static final Pattern SEARCH_VALUE = Pattern.compile("fieldValue:\\s*\"([^\"]*)\"");
+    private static final Pattern UPDATE_ALIAS = Pattern.compile("(?:(\\w+)\\s*:\\s*)?updateFieldsValues\\s*\\(");
+    private static final Pattern CARD_EMAIL = Pattern.compile("field_value:\\s*\"([^\"]*)\"");
+    private static final List<String> FIELDS = List.of("Nome", "E-mail", "Empresa", "Necessidade", "Interessado", "Link da Reunião", "Hora da Reunião");
+
+    private final Map<String, String> cardsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong cardIds = new AtomicLong(1_000_000);
+
+    PipefyStub(LatencyProfile profile, LatencyStats stats, ObjectMapper mapper) {
+        super("pipefy", profile, stats, mapper);
+    }
+
+    @Override
+    protected String operation(HttpExchange exchange, byte[] body) throws IOException {
+        String query = mapper.readTree(body).path("query").asText();
+        if (query.contains("phases")) return "phases";
+        if (query.contains("start_form_fields")) return "start_form_fields";
+        if (query.contains("allCards")) return "allCards";
+        if (query.contains("findCards")) return "findCards";
+        if (query.contains("createCard")) return "createCard";
+        if (query.contains("updateFieldsValues")) return "updateFieldsValues";
+        return "unknown";
+    }
+
+    @Override
+    protected void respond(HttpExchange exchange, byte[] body, long delayMillis) throws IOException, InterruptedException {
+        String query = mapper.readTree(body).path("query").asText();
+        Thread.sleep(delayMillis);
+        switch (operation(exchange, body)) {
+            case "phases" -> send(exchange, 200, Map.of("data", Map.of("pipe", Map.of("phases", List.of(
+                    Map.of("id", "1", "name", "Pré-Vendas"),
+                    Map.of("id", "2", "name", "Reunião Agendada"))))));
+            case "start_form_fields" -> send(exchange, 200, Map.of("data", Map.of("pipe", Map.of("start_form_fields",
+                    FIELDS.stream().map(label -> Map.of("id", label.toLowerCase().replaceAll("\\W+", "_"), "label", label)).toList()))));
+            case "allCards" -> send(exchange, 200, Map.of("data", Map.of("allCards", Map.of(
+                    "pageInfo", Map.of("hasNextPage", false),
+                    "edges", cardsByEmail.entrySet().stream().map(card -> Map.of("node", Map.of(
+                            "id", card.getValue(),
+                            "fields", List.of(Map.of("name", "E-mail", "value", card.getKey()))))).toList()))));
+            case "findCards" -> {
+                String cardId = cardsByEmail.get(group(SEARCH_VALUE, query));
+                List<?> edges = cardId == null ? List.of() : List.of(Map.of("node", Map.of("id", cardId, "title", "Lead capturado via API", "fields", List.of())));
+                send(exchange, 200, Map.of("data", Map.of("findCards", Map.of("edges", edges))));
+            }
+            case "createCard" -> {
+                String cardId = cardsByEmail.computeIfAbsent(group(CARD_EMAIL, query), email -> String.valueOf(cardIds.incrementAndGet()));
+                send(exchange, 200, Map.of("data", Map.of("createCard", Map.of("card", Map.of("id", cardId, "title", "Lead capturado via API")))));
+            }
+            case "updateFieldsValues" -> send(exchange, 200, Map.of("data", updateResults(query)));
+            default -> send(exchange, 200, "{\"errors\":[{\"message\":\"operação não suportada pelo stub\"}]}");
+        }
+    }
+
+    /**
+     * Um resultado por campo {@code updateFieldsValues} do documento, com o alias quando houver.
+     */
+    private static Map<String, Object> updateResults(String query) {
+        Map<String, Object> results = new LinkedHashMap<>();
+        Matcher matcher = UPDATE_ALIAS.matcher(query);
+        while (matcher.find()) {
+            results.put(matcher.group(1) == null ? "updateFieldsValues" : matcher.group(1), Map.of("success", true));
+        }
+        return results;
+    }
+
+    private static String group(Pattern pattern, String query) {
+        Matcher matcher = pattern.matcher(query);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+}
@@ -0,0 +1,72 @@
+package com.verzel.challenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base dos handlers do {@link ExternalApiStub}: sorteia a latência e os erros do {@link LatencyProfile}
+ * e registra o tempo de cada chamada por operação.
+ */
+abstract class StubHandler implements HttpHandler {
+    protected final ObjectMapper mapper;
+    private final String api;
+    private final LatencyProfile profile;
+    private final LatencyStats stats;
+
+    StubHandler(String api, LatencyProfile profile, LatencyStats stats, ObjectMapper mapper) {
+        this.api = api;
+        this.profile = profile;
+        this.stats = stats;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        String operation = "?";
+        try (exchange) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            operation = operation(exchange, body);
+            long delay = profile.sampleMillis();
+            if (profile.fails()) {
+                Thread.sleep(delay);
+                send(exchange, 500, "{\"error\":{\"message\":\"erro simulado pelo stub\"}}");
+                stats.failure(api + " " + operation);
+                return;
+            }
+            respond(exchange, body, delay);
+            stats.record(api + " " + operation, System.nanoTime() - start);
+        } catch (Exception e) {
+            System.err.println("Erro no stub " + api + " " + operation + ": " + e);
+            stats.failure(api + " " + operation);
+        }
+    }
+
+    /**
+     * O nome da operação nas estatísticas, por exemplo {@code findCards}.
+     */
+    protected abstract String operation(HttpExchange exchange, byte[] body) throws IOException;
+
+    /**
+     * Responde à chamada; quem não faz streaming só espera {@code delayMillis} e envia o corpo.
+     */
+    protected abstract void respond(HttpExchange exchange, byte[] body, long delayMillis) throws IOException, InterruptedException;
+
+    protected void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    protected void send(HttpExchange exchange, int status, Object body) throws IOException {
+        send(exchange, status, mapper.writeValueAsString(body));
+    }
+}
@@ -0,0 +1,58 @@
+package com.verzel.challenge.mapper;
+
+import com.verzel.challenge.dto.pipefy.Card;
+import com.verzel.challenge.dto.pipefy.Lead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão do card do Pipefy (com os campos que o pipe realmente tem) para o {@link Lead}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeadMapperBenchmark {
+
+	private Card card;
+
+	@Setup
+	public void setup() {
+		card = new Card();
+		card.id = "1234567890";
+		card.title = "Carlos Silva";
+		card.fields = new ArrayList<>();
+		field("Nome", "Carlos Silva");
+		field("E-mail", "carlos@techsolutions.com");
+		field("Empresa", "TechSolutions");
+		field("Necessidade", "Gestão de fornecedores feita em planilhas");
+		field("Interessado", "Sim");
+		field("Link da Reunião", "https://calendly.com/events/abc/google_meet");
+		field("Hora da Reunião", "20/10/2026 14:30");
+	}
+
+	private void field(String name, String value) {
+		Card.Field field = new Card.Field();
+		field.name = name;
+		field.value = value;
+		card.fields.add(field);
+	}
+
+	@Benchmark
+	public Lead toLead() {
+		return LeadMapper.toLead(card);
+	}
+}
@@ -0,0 +1,64 @@
+package com.verzel.challenge.parser;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.chat.AIResponseBodyDTO;
+import com.verzel.challenge.dto.chat.AIResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodificação da resposta da Responses API, do corpo em bytes até o {@link AIResponseDTO}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AIResponseDecoderBenchmark {
+
+	private static final String ASSISTANT_TEXT = """
+			{"mensagem":"Entendo, planilhas podem ser bem complicadas mesmo quando tem muitos fornecedores. Nosso CRM centraliza tudo isso e automatiza o processo. Faz sentido pra vocês? Quer conversar com nosso time pra ver como podemos ajudar?","lead":{"nome":"Carlos Silva","email":"carlos@techsolutions.com","empresa":"TechSolutions","necessidade":"Gestão de fornecedores feita em planilhas, sem controle de contratos e prazos","interesse":null},"action":"registrarLead"}""";
+
+	private ObjectMapper mapper;
+	private AIResponseDecoder decoder;
+	private byte[] body;
+
+	@Setup
+	public void setup() throws IOException {
+		mapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		decoder = new AIResponseDecoder(mapper);
+		body = ("{\"id\":\"resp_68f1a2b3c4d5e6f7\",\"object\":\"response\",\"created_at\":1760000000,\"status\":\"completed\",\"error\":null,"
+				+ "\"model\":\"gpt-4o-mini-2024-07-18\",\"output\":[{\"id\":\"msg_68f1a2b3c4d5e6f8\",\"type\":\"message\",\"status\":\"completed\","
+				+ "\"content\":[{\"type\":\"output_text\",\"annotations\":[],\"logprobs\":[],\"text\":" + mapper.writeValueAsString(ASSISTANT_TEXT) + "}],"
+				+ "\"role\":\"assistant\"}],\"previous_response_id\":\"resp_68f1a2b3c4d5e6f0\",\"reasoning\":{\"effort\":null,\"summary\":null},"
+				+ "\"store\":true,\"temperature\":1.0,\"text\":{\"format\":{\"type\":\"text\"}},\"tool_choice\":\"auto\",\"tools\":[],\"top_p\":1.0,"
+				+ "\"usage\":{\"input_tokens\":2143,\"input_tokens_details\":{\"cached_tokens\":1920},\"output_tokens\":96,"
+				+ "\"output_tokens_details\":{\"reasoning_tokens\":0},\"total_tokens\":2239},\"user\":null,\"metadata\":{}}")
+				.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public AIResponseDecoder.Result dto() throws IOException {
+		return decoder.decode(mapper.readValue(body, AIResponseBodyDTO.class));
+	}
+
+	@Benchmark
+	public AIResponseDecoder.Result streaming() {
+		return decoder.read(new ByteArrayInputStream(body));
+	}
+}
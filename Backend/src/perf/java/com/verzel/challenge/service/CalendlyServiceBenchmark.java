@@ -0,0 +1,74 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.pipefy.Lead;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.resilience.Bulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pós-processamento dos horários do Calendly: sorteio de 3 horários e URL de agendamento com nome e e-mail do lead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalendlyServiceBenchmark {
+
+	/**
+	 * Horários devolvidos por uma janela de 7 dias (o Calendly lista de 30 em 30 minutos).
+	 */
+	@Param({"10", "100"})
+	public int slots;
+
+	private CalendlyService service;
+	private List<Map<String, Object>> available;
+	private Lead lead;
+
+	@Setup
+	public void setup() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service = new CalendlyService(new Bulkhead("calendly", 1, Duration.ofSeconds(1)), new ObjectMapper(), WebClient.builder(),
+				new ExternalCallMetrics(registry), registry,
+				new MetadataCache(new ObjectMapper(), Path.of("target", "metadata-cache")));
+		lead = new Lead("Carlos Silva", "carlos@techsolutions.com", "TechSolutions", null, true);
+		available = new ArrayList<>(slots);
+		OffsetDateTime start = OffsetDateTime.of(2026, 10, 20, 12, 0, 0, 0, ZoneOffset.UTC);
+		for (int i = 0; i < slots; i++) {
+			String time = start.plusMinutes(30L * i).toString();
+			available.add(Map.of(
+					"status", "available",
+					"invitees_remaining", 1,
+					"start_time", time,
+					"scheduling_url", "https://calendly.com/verzel/30min/" + time + "?month=2026-10&date=2026-10-20"));
+		}
+	}
+
+	@Benchmark
+	public List<Map<String, Object>> personalizeSlots() {
+		return service.personalizeSlots(available, lead);
+	}
+}
@@ -0,0 +1,62 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.pipefy.Lead;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.parser.AIResponseDecoder;
+import com.verzel.challenge.resilience.Bulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem e serialização do corpo enviado à Responses API em cada turno do chat.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenAIServiceBenchmark {
+
+	private OpenAIService service;
+	private Lead lead;
+
+	@Setup
+	public void setup() {
+		ObjectMapper mapper = new ObjectMapper();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service = new OpenAIService("token", "http://localhost", "sdr-v2", "dto", new Bulkhead("openai", 1, Duration.ofSeconds(1)),
+				registry, mapper, new AIResponseDecoder(mapper), WebClient.builder(), new ExternalCallMetrics(registry));
+		lead = new Lead("Carlos Silva", "carlos@techsolutions.com", "TechSolutions", "Gestão de fornecedores feita em planilhas", null);
+	}
+
+	/**
+	 * Primeiro turno: o prompt completo vai no input.
+	 */
+	@Benchmark
+	public String firstTurn() {
+		return service.buildRequestJson(null, null, "Oi, quero conhecer o CRM de vocês", lead, false);
+	}
+
+	/**
+	 * Turnos seguintes: só o estado do lead e a pergunta, encadeados pelo previous_response_id.
+	 */
+	@Benchmark
+	public String chainedTurn() {
+		return service.buildRequestJson("resp_68f1a2b3c4d5e6f0", "sdr-v2", "Meu email é carlos@techsolutions.com", lead, true);
+	}
+}
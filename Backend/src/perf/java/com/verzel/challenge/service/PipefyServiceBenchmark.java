@@ -0,0 +1,61 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.resilience.Bulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Montagem das mutations GraphQL que atualizam o card do lead no Pipefy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipefyServiceBenchmark {
+
+	private PipefyService service;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		service = new PipefyService(new Bulkhead("pipefy", 1, Duration.ofSeconds(1)), new ObjectMapper(), WebClient.builder(),
+				new ExternalCallMetrics(new SimpleMeterRegistry()), new PipefyCardIndex(),
+				new MetadataCache(new ObjectMapper(), Path.of("target", "metadata-cache")));
+		// O fieldMap normalmente vem do Pipefy (ou do MetadataCache) depois do @PostConstruct
+		Field fieldMap = PipefyService.class.getDeclaredField("fieldMap");
+		fieldMap.setAccessible(true);
+		fieldMap.set(service, new java.util.HashMap<>(Map.of(
+				"Nome", "nome", "E-mail", "e_mail", "Empresa", "empresa", "Necessidade", "necessidade",
+				"Interessado", "interessado", "Link da Reunião", "link_da_reuni_o", "Hora da Reunião", "hora_da_reuni_o")));
+	}
+
+	@Benchmark
+	public String updateCardFields() {
+		return service.buildUpdateFieldsMutation("1234567890", "Carlos Silva", "carlos@techsolutions.com", "TechSolutions",
+				"Gestão de fornecedores feita em planilhas", true);
+	}
+
+	@Benchmark
+	public String updateCardMeetingFields() {
+		return service.buildMeetingFieldsMutation("1234567890", "https://calendly.com/events/abc/google_meet", "2026-10-20T17:30:00Z");
+	}
+}
@@ -0,0 +1,77 @@
+package com.verzel.challenge.jfr;
+
+import com.sun.net.httpserver.HttpServer;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PayloadSizeFilterTest {
+
+	private static final byte[] RESPONSE = "{\"data\":{\"findCards\":{\"edges\":[]}}}".getBytes(StandardCharsets.UTF_8);
+
+	private HttpServer server;
+	private WebClient webClient;
+	private final ExternalCallMetrics metrics = new ExternalCallMetrics(new SimpleMeterRegistry());
+
+	@BeforeEach
+	void startServer() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/graphql", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			exchange.sendResponseHeaders(200, RESPONSE.length);
+			exchange.getResponseBody().write(RESPONSE);
+			exchange.close();
+		});
+		server.start();
+		webClient = WebClient.builder()
+				.baseUrl("http://localhost:" + server.getAddress().getPort())
+				.filter(new PayloadSizeFilter())
+				.build();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void externalCallEventCountsRequestsAndBytes(@TempDir Path dir) throws Exception {
+		String query = "{\"query\":\"query { findCards(pipeId: 1) { edges { node { id } } } }\"}";
+		Path file = dir.resolve("calls.jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(ExternalCallEvent.class);
+			recording.start();
+			metrics.time("pipefy", "findCards", webClient.post().uri("/graphql").bodyValue(query).retrieve().bodyToMono(String.class))
+					.contextWrite(JfrSession.context("session-1"))
+					.block();
+			recording.stop();
+			recording.dump(file);
+		}
+		// Sem gravação a chamada passa pelo filtro sem evento
+		metrics.time("pipefy", "findCards", webClient.post().uri("/graphql").bodyValue(query).retrieve().bodyToMono(String.class)).block();
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		assertEquals(1, events.size());
+		RecordedEvent event = events.get(0);
+		assertEquals("findCards", event.getString("operation"));
+		assertEquals(JfrSession.fingerprint("session-1"), event.getString("sessionId"));
+		assertEquals("SUCCESS", event.getString("outcome"));
+		assertEquals(1, event.getInt("requests"));
+		assertEquals(query.getBytes(StandardCharsets.UTF_8).length, event.getLong("requestBytes"));
+		assertEquals(RESPONSE.length, event.getLong("responseBytes"));
+	}
+}
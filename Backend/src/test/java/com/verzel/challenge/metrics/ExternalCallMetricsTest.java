@@ -0,0 +1,55 @@
+package com.verzel.challenge.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExternalCallMetricsTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ExternalCallMetrics metrics = new ExternalCallMetrics(registry);
+
+	@Test
+	void successAndServerErrorAreTaggedByOutcome() {
+		metrics.time("pipefy", "createCard", Mono.just("ok")).block();
+		Mono<String> failing = metrics.time("pipefy", "createCard",
+				Mono.error(WebClientResponseException.create(HttpStatus.BAD_GATEWAY.value(), "Bad Gateway", null, null, null)));
+		assertThrows(WebClientResponseException.class, failing::block);
+
+		assertEquals(1, count("createCard", "SUCCESS"));
+		assertEquals(1, count("createCard", "SERVER_ERROR"));
+	}
+
+	@Test
+	void retriesAreCountedAndExhaustionKeepsTheOriginalOutcome() {
+		AtomicInteger attempts = new AtomicInteger();
+		Mono<String> call = Mono.defer(() -> {
+					attempts.incrementAndGet();
+					return Mono.<String>never().timeout(Duration.ofMillis(5));
+				})
+				.doOnError(TimeoutException.class, e -> metrics.timeout("pipefy", "findCards"))
+				.retryWhen(Retry.fixedDelay(2, Duration.ofMillis(1))
+						.doBeforeRetry(signal -> metrics.retry("pipefy", "findCards")));
+
+		assertThrows(RuntimeException.class, metrics.time("pipefy", "findCards", call)::block);
+
+		assertEquals(3, attempts.get());
+		assertEquals(1, count("findCards", "TIMEOUT"));
+		assertEquals(2.0, registry.get("external.calls.retries").tag("operation", "findCards").counter().count());
+		assertEquals(3.0, registry.get("external.calls.timeouts").tag("operation", "findCards").counter().count());
+	}
+
+	private long count(String operation, String outcome) {
+		return registry.get("external.calls").tag("operation", operation).tag("outcome", outcome).timer().count();
+	}
+}
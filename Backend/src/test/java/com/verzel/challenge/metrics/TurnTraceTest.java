@@ -0,0 +1,44 @@
+package com.verzel.challenge.metrics;
+
+import com.verzel.challenge.jfr.JfrSession;
+import com.verzel.challenge.type.ActionAI;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TurnTraceTest {
+
+	@Test
+	void serverTimingListsPhasesInOrderWithActionAndTotal() {
+		TurnTrace trace = TurnTrace.start("blocking", "req-1", "session-1");
+		trace.queued();
+		trace.time("session", () -> "chat");
+		trace.time("llm", Mono.delay(Duration.ofMillis(20))).block();
+		trace.run("lead", () -> { });
+		trace.run("lead", () -> { });
+		trace.setAction(ActionAI.registrarLead);
+
+		String header = trace.serverTiming();
+
+		assertTrue(header.matches("queue;dur=[\\d.]+, session;dur=[\\d.]+, llm;dur=[\\d.]+, lead;dur=[\\d.]+, "
+				+ "action;desc=\"registrarLead\", total;dur=[\\d.]+"), header);
+		double llm = Double.parseDouble(header.replaceAll(".*llm;dur=([\\d.]+).*", "$1"));
+		assertTrue(llm >= 20, header);
+		String logLine = trace.logLine("SUCCESS");
+		assertTrue(logLine.startsWith("turn requestId=req-1 session=" + JfrSession.fingerprint("session-1")
+				+ " mode=blocking outcome=SUCCESS action=registrarLead total_ms="), logLine);
+		assertFalse(logLine.contains("session-1"), logLine);
+	}
+
+	@Test
+	void invalidRequestIdIsReplaced() {
+		assertEquals("abc-123", TurnTrace.start("blocking", "abc-123", "s").getRequestId());
+		assertNotEquals("a b\r\nX: y", TurnTrace.start("blocking", "a b\r\nX: y", "s").getRequestId());
+	}
+}
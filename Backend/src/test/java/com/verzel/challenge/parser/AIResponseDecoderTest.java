@@ -0,0 +1,57 @@
+package com.verzel.challenge.parser;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.chat.AIResponseBodyDTO;
+import com.verzel.challenge.type.ActionAI;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AIResponseDecoderTest {
+
+	// Mesmo ajuste do ObjectMapper do Spring Boot
+	private final ObjectMapper mapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+	private final AIResponseDecoder decoder = new AIResponseDecoder(mapper);
+
+	private static final String RESPONSE = """
+			{"id":"resp_2","object":"response","status":"completed","metadata":{"text":"x"},
+			 "output":[
+			  {"id":"rs_1","type":"reasoning","summary":[]},
+			  {"id":"msg_1","type":"message","role":"assistant","content":[
+			    {"type":"output_text","annotations":[],"text":"{\\"mensagem\\":\\"Oi, Jo\\\\u00e3o! \\",\\"lead\\":{\\"nome\\":\\"João\\",\\"email\\":null},\\"action\\":null}"},
+			    {"text":"{\\"mensagem\\":\\"Qual seu email?\\",\\"lead\\":{\\"nome\\":\\"outro\\"},\\"action\\":\\"registrarLead\\"}","type":"output_text"},
+			    {"type":"refusal","refusal":"não"}
+			  ]}
+			 ],
+			 "usage":{"input_tokens":2143,"input_tokens_details":{"cached_tokens":1920},"output_tokens":96,"total_tokens":2239}}""";
+
+	@Test
+	void dtoAndStreamingPathsDecodeTheSameResponse() throws Exception {
+		AIResponseDecoder.Result fromDto = decoder.decode(mapper.readValue(RESPONSE, AIResponseBodyDTO.class));
+		AIResponseDecoder.Result streamed = decoder.read(new ByteArrayInputStream(RESPONSE.getBytes(StandardCharsets.UTF_8)));
+
+		for (AIResponseDecoder.Result result : new AIResponseDecoder.Result[]{fromDto, streamed}) {
+			assertEquals("resp_2", result.response().getId());
+			assertEquals("Oi, João! Qual seu email?", result.response().getMensagem());
+			// Lead e action vêm do primeiro output_text que os tiver
+			assertEquals("João", result.response().getLead().getNome());
+			assertEquals(ActionAI.registrarLead, result.response().getAction());
+			assertEquals(2143L, result.usage().getInputTokens());
+			assertEquals(1920L, result.usage().getInputTokensDetails().getCachedTokens());
+		}
+	}
+
+	@Test
+	void responseWithoutOutputIsEmpty() {
+		AIResponseDecoder.Result result = decoder.read(new ByteArrayInputStream("{\"id\":\"resp_3\",\"output\":[],\"usage\":null}".getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals("", result.response().getMensagem());
+		assertNull(result.response().getLead());
+		assertNull(result.usage());
+	}
+}
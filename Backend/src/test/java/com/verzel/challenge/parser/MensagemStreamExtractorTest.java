@@ -0,0 +1,31 @@
+package com.verzel.challenge.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MensagemStreamExtractorTest {
+
+	private static final String JSON = """
+			{"lead":{"nome":"Jo\\u00e3o","mensagem":"não é esta"},"mensagem":"Oi, Jo\\u00e3o! \\"Tudo\\" bem?\\nQual seu email? 😀","action":null}""";
+
+	@Test
+	void extractsMensagemRegardlessOfChunking() {
+		String expected = "Oi, João! \"Tudo\" bem?\nQual seu email? 😀";
+		for (int size = 1; size <= JSON.length(); size++) {
+			MensagemStreamExtractor extractor = new MensagemStreamExtractor();
+			StringBuilder out = new StringBuilder();
+			for (int i = 0; i < JSON.length(); i += size) {
+				out.append(extractor.feed(JSON.substring(i, Math.min(JSON.length(), i + size))));
+			}
+			assertEquals(expected, out.toString(), "chunk size " + size);
+		}
+	}
+
+	@Test
+	void ignoresNullMensagem() {
+		MensagemStreamExtractor extractor = new MensagemStreamExtractor();
+		assertEquals("", extractor.feed("{\"mensagem\":null,\"action\":\"registrarLead\"}"));
+	}
+
+}
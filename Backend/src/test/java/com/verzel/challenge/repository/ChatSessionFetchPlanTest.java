@@ -0,0 +1,120 @@
+package com.verzel.challenge.repository;
+
+import com.verzel.challenge.entity.ChatSessionEntity;
+import com.verzel.challenge.entity.LeadEntity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * O turno lê a sessão e o lead, nunca as mensagens: a memória alocada por turno não pode crescer
+ * com o tamanho da conversa.
+ */
+class ChatSessionFetchPlanTest extends EmbeddedPostgresTest {
+
+	private static final int LONG_CONVERSATION = 5_000;
+	private static final int RUNS = 20;
+
+	@Autowired
+	private ChatSessionRepository chatSessionRepository;
+
+	@Autowired
+	private LeadRepository leadRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@BeforeEach
+	void seed() {
+		LeadEntity lead = leadRepository.save(new LeadEntity("fetch-plan@example.com"));
+		for (String sessionId : new String[]{"short", "long"}) {
+			ChatSessionEntity chat = new ChatSessionEntity(sessionId);
+			chat.setLead(lead);
+			chatSessionRepository.save(chat);
+		}
+		chatSessionRepository.flush();
+		insertMessages("short", 2);
+		insertMessages("long", LONG_CONVERSATION);
+	}
+
+	@Test
+	void turnLoadsLeadButNotMessages() {
+		ChatSessionEntity chat = loadTurn("long");
+
+		assertTrue(Hibernate.isInitialized(chat.getLead()));
+		assertFalse(Hibernate.isInitialized(chat.getMessages()));
+		assertEquals(LONG_CONVERSATION, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM message_tb m JOIN chat_tb c ON c.id = m.session_id WHERE c.session_id = 'long'", Integer.class));
+	}
+
+	@Test
+	void turnAllocationDoesNotGrowWithConversationLength() {
+		long shortTurn = minAllocatedBytes("short");
+		long longTurn = minAllocatedBytes("long");
+
+		// Carregar 5000 mensagens custaria vários MB; a margem cobre só o ruído do Hibernate/JDBC
+		assertTrue(longTurn < shortTurn * 2 + 64 * 1024,
+				"turno da conversa longa alocou " + longTurn + " bytes, a curta " + shortTurn);
+	}
+
+	@Test
+	void equalityUsesOnlyTheIdentifier() {
+		ChatSessionEntity loaded = loadTurn("long");
+		ChatSessionEntity reference = entityManager.getReference(ChatSessionEntity.class, loaded.getId());
+		ChatSessionEntity other = loadTurn("short");
+
+		assertEquals(loaded, reference);
+		assertEquals(loaded.hashCode(), new ChatSessionEntity("long").hashCode());
+		assertNotEquals(loaded, other);
+		assertNotEquals(new ChatSessionEntity("a"), new ChatSessionEntity("a"));
+		assertFalse(loaded.toString().contains("messages"));
+	}
+
+	/**
+	 * O que o ChatService faz com a sessão em um turno: carrega (cache miss), lê o lead,
+	 * gera o toString/hashCode que logs e mapas usariam e grava o previousResponseId.
+	 */
+	private ChatSessionEntity loadTurn(String sessionId) {
+		entityManager.clear();
+		ChatSessionEntity chat = chatSessionRepository.findBySessionId(sessionId).orElseThrow();
+		chat.getLead().getEmail();
+		chat.toString();
+		chat.hashCode();
+		chatSessionRepository.updateResponseChain(chat.getId(), "resp", "sdr-v2", LocalDateTime.now());
+		return chat;
+	}
+
+	private long minAllocatedBytes(String sessionId) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().threadId();
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long before = threads.getThreadAllocatedBytes(threadId);
+			loadTurn(sessionId);
+			min = Math.min(min, threads.getThreadAllocatedBytes(threadId) - before);
+		}
+		return min;
+	}
+
+	private void insertMessages(String sessionId, int count) {
+		jdbcTemplate.update("""
+				INSERT INTO message_tb (id, sender, content, created_at, session_id)
+				SELECT nextval('message_tb_seq'), CASE WHEN g % 2 = 0 THEN 'USER' ELSE 'ASSISTANT' END,
+				       repeat('mensagem ', 20), now(), c.id
+				FROM generate_series(1, ?) g, chat_tb c WHERE c.session_id = ?""", count, sessionId);
+	}
+}
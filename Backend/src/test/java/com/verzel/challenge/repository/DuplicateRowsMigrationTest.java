@@ -0,0 +1,77 @@
+package com.verzel.challenge.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Bancos vindos do ddl-auto=update podem ter sessões e leads duplicados: a V3 precisa juntá-los antes de criar
+ * os índices únicos. Roda as migrations em um schema à parte, parando antes da V3 para semear as duplicatas.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DuplicateRowsMigrationTest extends EmbeddedPostgresTest {
+
+	private static final String SCHEMA = "duplicate_rows";
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void dropSchema() {
+		jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+	}
+
+	@Test
+	void duplicatesAreMergedBeforeTheUniqueIndexes() {
+		migrate("2");
+		jdbcTemplate.update("""
+				INSERT INTO %s.lead_tb (id, card_id, email) VALUES
+				(1, NULL, 'ana@example.com'), (2, 'card-2', 'Ana@Example.com'), (3, NULL, 'ANA@example.com'),
+				(4, NULL, 'bia@example.com')""".formatted(SCHEMA));
+		jdbcTemplate.update("""
+				INSERT INTO %s.chat_tb (id, session_id, lead_id, last_interaction) VALUES
+				(10, 's1', NULL, '2024-01-01'), (11, 's1', 3, '2024-01-03'), (12, 's1', NULL, '2024-01-02'),
+				(13, 's2', 1, '2024-01-01')""".formatted(SCHEMA));
+		jdbcTemplate.update("""
+				INSERT INTO %s.message_tb (id, sender, content, created_at, session_id) VALUES
+				(100, 'USER', 'a', '2024-01-01', 10), (101, 'USER', 'b', '2024-01-02', 12), (102, 'USER', 'c', '2024-01-03', 11)""".formatted(SCHEMA));
+		jdbcTemplate.update("""
+				INSERT INTO %s.pipefy_outbox (id, lead_id, operation, status, attempts) VALUES
+				(1000, 1, 'CREATE_CARD', 'PENDING', 0), (1001, 3, 'UPDATE_FIELDS', 'PENDING', 0)""".formatted(SCHEMA));
+
+		migrate("3");
+
+		// Fica o lead que já tem card; as sessões e o outbox dos outros passam para ele
+		assertEquals(List.of(2L, 4L), jdbcTemplate.queryForList("SELECT id FROM " + SCHEMA + ".lead_tb ORDER BY id", Long.class));
+		assertEquals(List.of("11:2", "13:2"), jdbcTemplate.queryForList(
+				"SELECT id || ':' || lead_id FROM " + SCHEMA + ".chat_tb ORDER BY id", String.class));
+		assertEquals(List.of(11L, 11L, 11L), jdbcTemplate.queryForList(
+				"SELECT session_id FROM " + SCHEMA + ".message_tb ORDER BY id", Long.class));
+		assertEquals(List.of(2L, 2L), jdbcTemplate.queryForList(
+				"SELECT lead_id FROM " + SCHEMA + ".pipefy_outbox ORDER BY id", Long.class));
+		assertEquals(2, jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM pg_indexes WHERE schemaname = ? AND indexname IN ('chat_tb_session_id_uk', 'lead_tb_email_lower_uk')",
+				Integer.class, SCHEMA));
+	}
+
+	private void migrate(String target) {
+		Flyway.configure()
+				.dataSource(dataSource)
+				.schemas(SCHEMA)
+				.target(target)
+				.load()
+				.migrate();
+	}
+}
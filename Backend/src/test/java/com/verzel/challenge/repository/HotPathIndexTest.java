@@ -0,0 +1,216 @@
+package com.verzel.challenge.repository;
+
+import com.verzel.challenge.entity.ChatSessionEntity;
+import com.verzel.challenge.entity.LeadEntity;
+import com.verzel.challenge.type.OutboxStatus;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Confere que as consultas do caminho quente usam os índices das migrations em vez de varrer a tabela.
+ * <p>
+ * O SQL explicado é o que o Hibernate gera para os métodos dos repositórios (capturado pelo {@link SqlCapture}),
+ * com os mesmos parâmetros, e o planner escolhe livremente: há linhas suficientes para um seq scan ser a opção
+ * mais barata se o índice não servisse. Só as tabelas vazias (as partições dos próximos meses) podem ser varridas.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.verzel.challenge.repository.HotPathIndexTest$SqlCapture")
+class HotPathIndexTest extends EmbeddedPostgresTest {
+
+	private static final Pattern PARAMETER = Pattern.compile("\\?");
+	private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+	private static final String LONG_SESSION = "bulk-long";
+	private static final int LONG_CONVERSATION = 5_000;
+
+	@Autowired
+	private LeadRepository leadRepository;
+
+	@Autowired
+	private ChatSessionRepository chatSessionRepository;
+
+	@Autowired
+	private MessageRepository messageRepository;
+
+	@Autowired
+	private PipefyOutboxRepository outboxRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Guarda todo SQL que o Hibernate prepara.
+	 */
+	public static class SqlCapture implements StatementInspector {
+		static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			STATEMENTS.add(sql);
+			return sql;
+		}
+	}
+
+	@BeforeEach
+	void seed() {
+		for (int i = 0; i < 200; i++) {
+			LeadEntity lead = leadRepository.save(new LeadEntity("Lead" + i + "@Example.com"));
+			ChatSessionEntity chat = new ChatSessionEntity(UUID.randomUUID().toString());
+			chat.setLead(lead);
+			chatSessionRepository.save(chat);
+		}
+		leadRepository.flush();
+		// O volume vai com IDs negativos, fora das sequences: os outros testes derivam datas dos IDs gerados
+		jdbcTemplate.update("""
+				INSERT INTO lead_tb (id, email, created_at) SELECT -g, 'bulk' || g || '@example.com', now()
+				FROM generate_series(1, 5000) g""");
+		jdbcTemplate.update("""
+				INSERT INTO chat_tb (id, session_id, lead_id, created_at, last_interaction)
+				SELECT -(l.id * -2 + g), 'bulk-' || l.id || '-' || g, l.id, now(), now() + l.id * interval '1 second'
+				FROM lead_tb l, generate_series(0, 1) g WHERE l.id < 0""");
+		// Uma conversa de 20 mensagens no mês atual para 1000 sessões
+		jdbcTemplate.update("""
+				INSERT INTO message_tb (id, sender, content, created_at, session_id)
+				SELECT c.id * 20 - g, 'USER', 'mensagem ' || g, now() - g * interval '1 second', c.id
+				FROM (SELECT id FROM chat_tb WHERE id < 0 ORDER BY id DESC LIMIT 1000) c, generate_series(0, 19) g""");
+		// E uma conversa longa, em que ordenar o histórico inteiro para devolver uma página seria caro
+		jdbcTemplate.update("""
+				INSERT INTO chat_tb (id, session_id, lead_id, created_at, last_interaction)
+				SELECT -20000, ?, id, now(), now() FROM lead_tb WHERE email = 'bulk42@example.com'""", LONG_SESSION);
+		jdbcTemplate.update("""
+				INSERT INTO message_tb (id, sender, content, created_at, session_id)
+				SELECT -1000000 - g, 'USER', 'mensagem ' || g, now() - g * interval '1 second', -20000
+				FROM generate_series(1, ?) g""", LONG_CONVERSATION);
+		// Entradas agendadas para o futuro: o dispatcher precisa achar as vencidas sem percorrer todas
+		jdbcTemplate.update("""
+				INSERT INTO pipefy_outbox (id, lead_id, operation, status, attempts, next_attempt_at, created_at)
+				SELECT g, g, 'UPDATE_FIELDS', 'PENDING', 1, now() + interval '1 hour', now() FROM generate_series(1, 5000) g""");
+		jdbcTemplate.execute("ANALYZE");
+		SqlCapture.STATEMENTS.clear();
+	}
+
+	@Test
+	void findByEmailIgnoreCaseUsesLowerEmailIndex() {
+		assertTrue(leadRepository.findByEmailIgnoreCase("lead42@EXAMPLE.com").isPresent());
+		assertUsesIndex(lastSelect(), "lead_tb_email_lower_uk", "lead42@EXAMPLE.com");
+	}
+
+	@Test
+	void findBySessionIdUsesSessionIndex() {
+		chatSessionRepository.findBySessionId("abc");
+		assertUsesIndex(lastSelect(), "chat_tb_session_id_uk", "abc");
+	}
+
+	@Test
+	void latestChatOfLeadUsesLeadLastInteractionIndex() {
+		Long leadId = leadRepository.findByEmailIgnoreCase("bulk42@example.com").orElseThrow().getId();
+		SqlCapture.STATEMENTS.clear();
+		assertTrue(chatSessionRepository.findLatestSessionIdByLeadId(leadId).isPresent());
+		assertUsesIndex(lastSelect(), "chat_tb_lead_last_interaction_idx", leadId);
+	}
+
+	@Test
+	void leadHistoryUsesHistoryIndex() {
+		Long leadId = leadRepository.findByEmailIgnoreCase("bulk42@example.com").orElseThrow().getId();
+		SqlCapture.STATEMENTS.clear();
+		try (Stream<MessageRepository.HistoryRow> rows = messageRepository.streamLeadHistory(leadId, Long.MAX_VALUE,
+				LocalDateTime.of(2100, 1, 1, 0, 0), Long.MAX_VALUE, 51)) {
+			assertEquals(51, rows.count());
+		}
+		// message_tb é particionada: cada partição tem a sua cópia do message_tb_history_idx
+		assertUsesIndex(lastSelect(), "_session_id_created_at_id_idx", leadId, Long.MAX_VALUE, "2100-01-01 00:00:00", Long.MAX_VALUE, 51);
+	}
+
+	@Test
+	void sessionHistoryUsesHistoryIndex() {
+		try (Stream<MessageRepository.HistoryRow> rows = messageRepository.streamSessionHistory(LONG_SESSION,
+				LocalDateTime.of(2100, 1, 1, 0, 0), Long.MAX_VALUE, 51)) {
+			assertEquals(51, rows.count());
+		}
+		// A sessão é resolvida pelo chat_tb_session_id_uk e as mensagens dela lidas pelo índice de cada partição. O
+		// planner estima as linhas da sessão pela média (não sabe qual sessão o join vai trazer), então pode ordenar
+		// essas linhas em memória em vez de combinar as partições já ordenadas; nunca varre a tabela
+		String plan = explain(lastSelect(), LONG_SESSION, "2100-01-01 00:00:00", Long.MAX_VALUE, 51);
+		assertTrue(plan.contains("chat_tb_session_id_uk") && plan.contains("using message_tb_y"), plan);
+		assertUsesIndex(lastSelect(), "_session_id_created_at_id_idx", LONG_SESSION, "2100-01-01 00:00:00", Long.MAX_VALUE, 51);
+	}
+
+	@Test
+	void dueOutboxEntriesUseDueIndex() {
+		LocalDateTime now = LocalDateTime.now();
+		outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(OutboxStatus.PENDING, now, Limit.of(100));
+		assertUsesIndex(lastSelect(), "pipefy_outbox_due_idx", "PENDING", now.toString(), 100);
+	}
+
+	@Test
+	void sequencesStartAfterExistingRows() {
+		Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM lead_tb", Long.class);
+		Long next = jdbcTemplate.queryForObject("SELECT nextval('lead_tb_seq')", Long.class);
+		assertTrue(next > maxId);
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM flyway_schema_history WHERE version = '3' AND success", Integer.class));
+	}
+
+	private static String lastSelect() {
+		List<String> selects = new ArrayList<>(SqlCapture.STATEMENTS.stream()
+				.filter(sql -> sql.stripLeading().regionMatches(true, 0, "select", 0, 6))
+				.toList());
+		assertTrue(!selects.isEmpty(), "nenhum select capturado");
+		return selects.get(selects.size() - 1);
+	}
+
+	private void assertUsesIndex(String sql, String index, Object... parameters) {
+		String plan = explain(sql, parameters);
+		assertTrue(plan.contains(index), "plano não usa " + index + ":\n" + plan);
+		assertOnlyEmptyTablesAreScanned(plan);
+	}
+
+	private void assertOnlyEmptyTablesAreScanned(String plan) {
+		Matcher scan = SEQ_SCAN.matcher(plan);
+		while (scan.find()) {
+			String table = scan.group(1);
+			assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class), "seq scan em " + table + ":\n" + plan);
+		}
+	}
+
+	/**
+	 * EXPLAIN do SQL com parâmetros ({@code ?}) via PREPARE/EXECUTE, para o Postgres inferir os tipos como faria com
+	 * o statement do driver.
+	 */
+	private String explain(String sql, Object... parameters) {
+		Matcher matcher = PARAMETER.matcher(sql);
+		StringBuilder numbered = new StringBuilder();
+		int count = 0;
+		while (matcher.find()) {
+			matcher.appendReplacement(numbered, "\\$" + ++count);
+		}
+		matcher.appendTail(numbered);
+		assertEquals(parameters.length, count, "parâmetros de: " + sql);
+
+		String values = Stream.of(parameters)
+				.map(value -> value instanceof Number ? value.toString() : "'" + value.toString().replace("'", "''") + "'")
+				.collect(Collectors.joining(", "));
+		jdbcTemplate.execute("PREPARE hot_path AS " + numbered);
+		try {
+			List<String> plan = jdbcTemplate.queryForList("EXPLAIN EXECUTE hot_path" + (count == 0 ? "" : "(" + values + ")"), String.class);
+			return sql + "\n" + String.join("\n", plan);
+		} finally {
+			jdbcTemplate.execute("DEALLOCATE hot_path");
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.verzel.challenge.resilience;
+
+import com.verzel.challenge.GlobalExceptionHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BulkheadTest {
+
+	private final ExecutorService pool = Executors.newFixedThreadPool(4);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void stop() {
+		release.countDown();
+		pool.shutdownNow();
+	}
+
+	@Test
+	void saturatedBulkheadRejectsCallsAfterMaxWait() throws Exception {
+		Bulkhead bulkhead = new Bulkhead("pipefy", 2, Duration.ofMillis(200));
+		CountDownLatch holding = new CountDownLatch(2);
+		Future<?> first = pool.submit(() -> bulkhead.run(() -> hold(holding)));
+		Future<?> second = pool.submit(() -> bulkhead.run(() -> hold(holding)));
+		assertTrue(holding.await(5, TimeUnit.SECONDS));
+		assertEquals(0, bulkhead.getAvailablePermits());
+
+		long start = System.nanoTime();
+		BulkheadFullException error = assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "terceira"));
+		long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(waitedMs >= 200, "falhou antes do max-wait: " + waitedMs + " ms");
+		assertTrue(error.getMessage().contains("pipefy"), error.getMessage());
+
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		second.get(5, TimeUnit.SECONDS);
+		assertEquals(2, bulkhead.getAvailablePermits());
+		assertEquals("terceira", bulkhead.call(() -> "terceira"));
+	}
+
+	@Test
+	void waitingCallTakesThePermitReleasedWithinMaxWait() throws Exception {
+		Bulkhead bulkhead = new Bulkhead("calendly", 1, Duration.ofSeconds(5));
+		CountDownLatch holding = new CountDownLatch(1);
+		pool.submit(() -> bulkhead.run(() -> hold(holding)));
+		assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+		Future<String> waiting = pool.submit(() -> bulkhead.call(() -> "depois"));
+		Thread.sleep(100);
+		assertFalse(waiting.isDone());
+
+		release.countDown();
+		assertEquals("depois", waiting.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void permitIsReleasedWhenTheCallThrows() {
+		Bulkhead bulkhead = new Bulkhead("openai", 1, Duration.ofMillis(100));
+
+		assertThrows(IllegalStateException.class, () -> bulkhead.call(() -> {
+			throw new IllegalStateException("OpenAI fora do ar");
+		}));
+
+		assertEquals(1, bulkhead.getAvailablePermits());
+		assertEquals("ok", bulkhead.call(() -> "ok"));
+	}
+
+	@Test
+	void reactiveCallsShareThePermitsAndReleaseThemOnErrorAndCancel() {
+		Bulkhead bulkhead = new Bulkhead("openai", 1, Duration.ofMillis(100));
+		Sinks.One<String> response = Sinks.one();
+		Disposable inFlight = bulkhead.mono(response.asMono()).subscribe();
+		assertEquals(0, bulkhead.getAvailablePermits());
+
+		assertThrows(BulkheadFullException.class, () -> bulkhead.mono(Mono.just("segunda")).block());
+		assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "bloqueante"));
+
+		inFlight.dispose();
+		assertEquals(1, bulkhead.getAvailablePermits());
+		assertThrows(IllegalStateException.class, () -> bulkhead.mono(Mono.error(new IllegalStateException("erro"))).block());
+		assertEquals(1, bulkhead.getAvailablePermits());
+		assertEquals("ok", bulkhead.mono(Mono.just("ok")).block());
+	}
+
+	@Test
+	void fullBulkheadIsAnsweredWith503() throws Exception {
+		Bulkhead bulkhead = new Bulkhead("calendly", 1, Duration.ofMillis(50));
+		CountDownLatch holding = new CountDownLatch(1);
+		pool.submit(() -> bulkhead.run(() -> hold(holding)));
+		assertTrue(holding.await(5, TimeUnit.SECONDS));
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new SlotsController(bulkhead))
+				.setControllerAdvice(new GlobalExceptionHandler())
+				.build();
+
+		mockMvc.perform(get("/slots"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(jsonPath("$.code").value(503))
+				.andExpect(jsonPath("$.message").value(new BulkheadFullException("calendly").getMessage()));
+	}
+
+	@RestController
+	static class SlotsController {
+		private final Bulkhead bulkhead;
+
+		SlotsController(Bulkhead bulkhead) {
+			this.bulkhead = bulkhead;
+		}
+
+		@GetMapping("/slots")
+		String slots() {
+			return bulkhead.call(() -> "horários");
+		}
+	}
+
+	private void hold(CountDownLatch holding) {
+		holding.countDown();
+		try {
+			release.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
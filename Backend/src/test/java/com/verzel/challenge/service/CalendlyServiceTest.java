@@ -0,0 +1,185 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.verzel.challenge.dto.calendly.AvailableSlots;
+import com.verzel.challenge.dto.pipefy.Lead;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.resilience.Bulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.net.URLDecoder;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalendlyServiceTest {
+
+	private static final String TWO_SLOTS = """
+			{"collection":[
+			 {"start_time":"2030-01-02T13:00:00Z","scheduling_url":"https://calendly.com/x/1"},
+			 {"start_time":"2030-01-02T14:00:00Z","scheduling_url":"https://calendly.com/x/2"}]}""";
+
+	private final AtomicInteger availabilityRequests = new AtomicInteger();
+	private volatile String availableTimes = TWO_SLOTS;
+	private volatile long availabilityDelayMs;
+	// Se maior que zero, cada janela devolve esse número de horários depois do start_time pedido (a primeira, um só)
+	private volatile int slotsPerWindow;
+	private final Set<String> windowStarts = ConcurrentHashMap.newKeySet();
+	private HttpServer server;
+	private CalendlyService service;
+	@TempDir
+	Path cacheDir;
+
+	@BeforeEach
+	void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/users/me", exchange -> respond(exchange,
+				"{\"resource\":{\"uri\":\"u1\",\"current_organization\":\"o1\"}}"));
+		server.createContext("/event_types", exchange -> respond(exchange, "{\"collection\":[{\"uri\":\"et1\"}]}"));
+		server.createContext("/webhook_subscriptions", exchange -> respond(exchange, "{}"));
+		server.createContext("/event_type_available_times", exchange -> {
+			availabilityRequests.incrementAndGet();
+			try {
+				Thread.sleep(availabilityDelayMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, slotsPerWindow > 0 ? slotsFrom(exchange) : availableTimes);
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service = new CalendlyService(new Bulkhead("calendly", 4, Duration.ofSeconds(1)), new ObjectMapper(), WebClient.builder(),
+				new ExternalCallMetrics(registry), registry, new MetadataCache(new ObjectMapper(), cacheDir));
+		ReflectionTestUtils.setField(service, "calendlyToken", "token");
+		ReflectionTestUtils.setField(service, "calendlyCallback", "http://localhost/calendly/webhook");
+		ReflectionTestUtils.setField(service, "calendlyBaseUrl", "http://localhost:" + server.getAddress().getPort());
+		ReflectionTestUtils.setField(service, "availabilityMaxAgeMs", 60_000L);
+		ReflectionTestUtils.setField(service, "availabilityHorizonDays", 28);
+		service.init();
+		service.ready().block(Duration.ofSeconds(5));
+		service.getAvailableSlots(new Lead("Ana", "ana@x.com", null, null, null));
+		availabilityRequests.set(0);
+	}
+
+	@AfterEach
+	void stop() {
+		service.shutdown();
+		server.stop(0);
+	}
+
+	@Test
+	void offersAreServedFromTheSharedAvailability() {
+		for (int i = 0; i < 5; i++) {
+			AvailableSlots slots = service.getAvailableSlots(new Lead("Lead " + i, "lead" + i + "@x.com", null, null, null));
+
+			assertEquals(2, slots.slots().size());
+			assertTrue(((String) slots.slots().get(0).get("scheduling_url")).contains("email=lead" + i + "@x.com"));
+		}
+		assertEquals(0, availabilityRequests.get());
+	}
+
+	@Test
+	void webhookInvalidationSearchesEveryWindowInParallelAndDedupes() {
+		availabilityDelayMs = 400;
+		long start = System.nanoTime();
+		service.invalidateAvailability();
+		AvailableSlots slots = service.getAvailableSlots(new Lead("Ana", "ana@x.com", null, null, null));
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		// 28 dias em janelas de 7: quatro requisições, cada uma devolvendo os mesmos dois horários
+		assertEquals(4, availabilityRequests.get());
+		assertEquals(2, slots.slots().size());
+		assertTrue(elapsedMs < 1200, "janelas consultadas em sequência: " + elapsedMs + " ms");
+	}
+
+	@Test
+	void burstOfWebhooksCostsAtMostTwoSearches() throws InterruptedException {
+		availabilityDelayMs = 300;
+		for (int i = 0; i < 10; i++) {
+			service.invalidateAvailability();
+		}
+		service.getAvailableSlots(new Lead("Ana", "ana@x.com", null, null, null));
+		for (int i = 0; i < 100 && availabilityRequests.get() < 8; i++) Thread.sleep(20);
+		Thread.sleep(500);
+
+		// Uma busca para o primeiro webhook e uma repetição para os que chegaram durante ela, com 4 janelas cada
+		assertEquals(8, availabilityRequests.get());
+	}
+
+	@Test
+	void emptyCalendarEndsAtTheHorizon() {
+		availableTimes = "{\"collection\":[]}";
+		service.invalidateAvailability();
+
+		AvailableSlots slots = service.getAvailableSlots(new Lead("Ana", "ana@x.com", null, null, null));
+
+		assertTrue(slots.isEmpty());
+		assertEquals(4, availabilityRequests.get());
+	}
+
+	@Test
+	void offersComeFromTheEarliestWeeksWithAtLeastTwoSlots() {
+		slotsPerWindow = 3;
+		service.invalidateAvailability();
+
+		Set<OffsetDateTime> everOffered = new HashSet<>();
+		for (int i = 0; i < 20; i++) {
+			everOffered.addAll(service.getAvailableSlots(new Lead("Ana", "ana@x.com", null, null, null)).slots().stream()
+					.map(slot -> OffsetDateTime.parse((String) slot.get("start_time")))
+					.toList());
+		}
+
+		// A primeira semana tem um horário só, então entram os três da segunda; as duas seguintes nunca são oferecidas
+		OffsetDateTime firstWeek = firstWindowStart();
+		assertEquals(Set.of(firstWeek.plusHours(1), firstWeek.plusDays(7).plusHours(1), firstWeek.plusDays(7).plusHours(2),
+				firstWeek.plusDays(7).plusHours(3)), everOffered);
+	}
+
+	private OffsetDateTime firstWindowStart() {
+		return windowStarts.stream().map(OffsetDateTime::parse).min(OffsetDateTime::compareTo).orElseThrow();
+	}
+
+	private String slotsFrom(HttpExchange exchange) {
+		String start = URLDecoder.decode(UriComponentsBuilder.fromUri(exchange.getRequestURI()).build()
+				.getQueryParams().getFirst("start_time"), StandardCharsets.UTF_8);
+		windowStarts.add(start);
+		OffsetDateTime windowStart = OffsetDateTime.parse(start);
+		int count = windowStart.isBefore(OffsetDateTime.now().plusDays(2)) ? 1 : slotsPerWindow;
+		return IntStream.rangeClosed(1, count)
+				.mapToObj(hour -> "{\"start_time\":\"" + windowStart.plusHours(hour) + "\",\"scheduling_url\":\"https://calendly.com/x/" + hour + "\"}")
+				.collect(Collectors.joining(",", "{\"collection\":[", "]}"));
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		exchange.getResponseBody().write(bytes);
+		exchange.close();
+	}
+}
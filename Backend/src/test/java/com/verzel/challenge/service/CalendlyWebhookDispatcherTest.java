@@ -0,0 +1,105 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.calendly.CalendlyWebhookWrapper;
+import com.verzel.challenge.dto.calendly.WebhookPayload;
+import com.verzel.challenge.entity.CalendlyWebhookEntity;
+import com.verzel.challenge.repository.CalendlyWebhookRepository;
+import com.verzel.challenge.repository.EmbeddedPostgresTest;
+import com.verzel.challenge.type.WebhookStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sem a transação do teste: os workers do dispatcher gravam em outras threads.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CalendlyWebhookDispatcherTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private CalendlyWebhookRepository webhookRepository;
+
+	private final List<String> scheduled = new CopyOnWriteArrayList<>();
+	private volatile boolean failing;
+	private CalendlyWebhookService webhookService;
+	private CalendlyWebhookDispatcher dispatcher;
+
+	@BeforeEach
+	void setUp() {
+		ObjectMapper mapper = new ObjectMapper();
+		ChatService chatService = new ChatService(null, null, null, null, null, null, null, null, null, null, null, null) {
+			@Override
+			public void scheduleMeeting(WebhookPayload payload) {
+				if (failing) throw new IllegalStateException("Lead não encontrado no Webhook");
+				scheduled.add(payload.getEmail());
+			}
+		};
+		webhookService = new CalendlyWebhookService(webhookRepository, mapper);
+		dispatcher = new CalendlyWebhookDispatcher(webhookRepository, chatService, mapper, 2);
+		ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+		ReflectionTestUtils.setField(dispatcher, "maxAttempts", 2);
+		ReflectionTestUtils.setField(dispatcher, "backoffBaseMs", 0L);
+		ReflectionTestUtils.setField(dispatcher, "backoffMaxMs", 0L);
+		ReflectionTestUtils.setField(dispatcher, "retentionHours", 48L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		dispatcher.shutdown();
+		webhookRepository.deleteAll();
+	}
+
+	@Test
+	void redeliveriesAreDroppedBeforeAndAfterProcessing() throws InterruptedException {
+		assertTrue(webhookService.accept(webhook("invitees/1", "ana@x.com")));
+		assertFalse(webhookService.accept(webhook("invitees/1", "ana@x.com")));
+		assertTrue(webhookService.accept(webhook("invitees/2", "bia@x.com")));
+
+		dispatcher.dispatch();
+		assertFalse(webhookService.accept(webhook("invitees/1", "ana@x.com")));
+		dispatcher.dispatch();
+
+		assertEquals(List.of("ana@x.com", "bia@x.com"), scheduled.stream().sorted().toList());
+		assertTrue(webhookRepository.findAll().stream().allMatch(entry -> entry.getStatus() == WebhookStatus.PROCESSED));
+	}
+
+	@Test
+	void exhaustedWebhookIsDeadLetteredUntilRequeued() throws InterruptedException {
+		failing = true;
+		webhookService.accept(webhook("invitees/1", "ana@x.com"));
+
+		dispatcher.dispatch();
+		dispatcher.dispatch();
+		CalendlyWebhookEntity entry = webhookRepository.findAll().get(0);
+		assertEquals(WebhookStatus.FAILED, entry.getStatus());
+		assertEquals(2, entry.getAttempts());
+		assertEquals("Lead não encontrado no Webhook", entry.getLastError());
+
+		dispatcher.dispatch();
+		assertTrue(scheduled.isEmpty());
+
+		failing = false;
+		assertEquals(1, webhookService.requeueFailed());
+		dispatcher.dispatch();
+		assertEquals(List.of("ana@x.com"), scheduled);
+	}
+
+	private static CalendlyWebhookWrapper webhook(String invitee, String email) {
+		WebhookPayload payload = new WebhookPayload();
+		payload.setUri("https://api.calendly.com/scheduled_events/E1/" + invitee);
+		payload.setEmail(email);
+		return new CalendlyWebhookWrapper("invitee.created", "2030-01-01T10:00:00Z", payload);
+	}
+}
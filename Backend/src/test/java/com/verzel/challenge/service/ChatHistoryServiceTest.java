@@ -0,0 +1,138 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.dto.chat.HistoryMessageDTO;
+import com.verzel.challenge.dto.chat.HistoryPageDTO;
+import com.verzel.challenge.entity.ChatSessionEntity;
+import com.verzel.challenge.entity.LeadEntity;
+import com.verzel.challenge.repository.ChatSessionRepository;
+import com.verzel.challenge.repository.EmbeddedPostgresTest;
+import com.verzel.challenge.repository.LeadRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Import(ChatHistoryService.class)
+class ChatHistoryServiceTest extends EmbeddedPostgresTest {
+
+	private static final int LONG_SESSION = 1_000;
+	private static final int SHORT_SESSION = 30;
+
+	@Autowired
+	private ChatHistoryService chatHistoryService;
+
+	@Autowired
+	private ChatSessionRepository chatSessionRepository;
+
+	@Autowired
+	private LeadRepository leadRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Long leadId;
+
+	@BeforeEach
+	void seed() {
+		LeadEntity lead = leadRepository.save(new LeadEntity("history@example.com"));
+		leadId = lead.getId();
+		for (String sessionId : new String[]{"older", "newer"}) {
+			ChatSessionEntity chat = new ChatSessionEntity(sessionId);
+			chat.setLead(lead);
+			chatSessionRepository.save(chat);
+		}
+		chatSessionRepository.flush();
+		insertMessages("older", SHORT_SESSION);
+		insertMessages("newer", LONG_SESSION);
+	}
+
+	@Test
+	void pagesThroughSessionWithoutGapsOrDuplicates() {
+		List<HistoryMessageDTO> all = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			HistoryPageDTO page = chatHistoryService.getSessionHistory("newer", cursor, 50);
+			assertTrue(page.messages().size() <= 50);
+			// Cada página vem antes das já lidas
+			all.addAll(0, page.messages());
+			cursor = page.nextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertEquals(LONG_SESSION / 50, pages);
+		assertChronologicalAndUnique(all, LONG_SESSION);
+		assertTrue(all.stream().allMatch(message -> message.sessionId().equals("newer")));
+	}
+
+	@Test
+	void leadHistoryCoversAllSessions() {
+		List<HistoryMessageDTO> all = new ArrayList<>();
+		String cursor = null;
+		do {
+			HistoryPageDTO page = chatHistoryService.getLeadHistory(leadId, cursor, 200);
+			all.addAll(0, page.messages());
+			cursor = page.nextCursor();
+		} while (cursor != null);
+
+		assertEquals(SHORT_SESSION + LONG_SESSION, all.size());
+		assertEquals("older", all.getFirst().sessionId());
+		assertEquals("newer", all.getLast().sessionId());
+		assertEquals(SHORT_SESSION + LONG_SESSION, new HashSet<>(all.stream().map(HistoryMessageDTO::id).toList()).size());
+	}
+
+	@Test
+	void firstPageHasTheMostRecentMessages() {
+		HistoryPageDTO page = chatHistoryService.getSessionHistory("newer", null, 10);
+
+		assertEquals(10, page.messages().size());
+		assertEquals("mensagem " + LONG_SESSION, page.messages().getLast().content());
+	}
+
+	@Test
+	void unknownSessionReturnsEmptyPage() {
+		HistoryPageDTO page = chatHistoryService.getSessionHistory("missing", null, null);
+
+		assertTrue(page.messages().isEmpty());
+		assertNull(page.nextCursor());
+	}
+
+	@Test
+	void malformedCursorIsRejected() {
+		assertThrows(InvalidCursorException.class, () -> chatHistoryService.getSessionHistory("newer", "not-a-cursor", 10));
+	}
+
+	private static void assertChronologicalAndUnique(List<HistoryMessageDTO> messages, int expected) {
+		assertEquals(expected, messages.size());
+		assertEquals(expected, new HashSet<>(messages.stream().map(HistoryMessageDTO::id).toList()).size());
+		for (int i = 1; i < messages.size(); i++) {
+			HistoryMessageDTO previous = messages.get(i - 1);
+			HistoryMessageDTO current = messages.get(i);
+			assertTrue(!current.createdAt().isBefore(previous.createdAt()));
+			assertEquals("mensagem " + (i + 1), current.content());
+		}
+	}
+
+	/**
+	 * Mensagens em pares com o mesmo created_at (usuário e assistente do mesmo turno), como o MessageWriteBuffer grava.
+	 * As datas ficam no mês atual, que sempre tem partição (o message_tb não tem partição padrão).
+	 */
+	private void insertMessages(String sessionId, int count) {
+		jdbcTemplate.update("""
+				INSERT INTO message_tb (id, sender, content, created_at, session_id)
+				SELECT nextval('message_tb_seq'), CASE WHEN g % 2 = 1 THEN 'USER' ELSE 'ASSISTANT' END,
+				       'mensagem ' || g, date_trunc('month', now()) + c.id * interval '1 minute' + ((g + 1) / 2) * interval '1 second', c.id
+				FROM generate_series(1, ?) g, chat_tb c WHERE c.session_id = ?
+				ORDER BY g""", count, sessionId);
+	}
+}
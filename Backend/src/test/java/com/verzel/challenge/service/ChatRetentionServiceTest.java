@@ -0,0 +1,183 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.config.SchedulingConfig;
+import com.verzel.challenge.repository.EmbeddedPostgresTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sem a transação do teste: o job usa DDL e uma conexão própria para o COPY, que precisam ver os dados gravados.
+ */
+@Import({ChatRetentionService.class, SchedulingConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {"chat.retention.archive-dir=target/retention-archive", "chat.retention.max-age-days=90"})
+class ChatRetentionServiceTest extends EmbeddedPostgresTest {
+
+	private static final Path ARCHIVE_DIR = Path.of("target/retention-archive");
+	private static final YearMonth OLD_MONTH = YearMonth.of(2024, 1);
+	private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 3, 30);
+
+	@Autowired
+	private ChatRetentionService retentionService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() throws IOException {
+		FileSystemUtils.deleteRecursively(ARCHIVE_DIR);
+		// Sem partição padrão, cada mês com mensagens precisa da sua: janeiro a junho de 2024
+		retentionService.ensurePartitions(OLD_MONTH);
+		retentionService.ensurePartitions(OLD_MONTH.plusMonths(3));
+
+		jdbcTemplate.update("INSERT INTO lead_tb (id, email) VALUES (900001, 'retention@example.com')");
+		insertSession(900001, "anonymous-old", null, "2024-01-10 10:00");
+		insertSession(900002, "lead-old", 900001L, "2024-01-12 10:00");
+		insertSession(900003, "anonymous-recent", null, "2024-05-30 10:00");
+		insertMessages(900001, "2024-01-10 09:50", 40);
+		insertMessages(900002, "2024-01-12 09:50", 10);
+		insertMessages(900003, "2024-05-30 09:50", 4);
+	}
+
+	@AfterEach
+	void cleanUp() throws IOException {
+		jdbcTemplate.update("DELETE FROM message_tb WHERE session_id >= 900001");
+		jdbcTemplate.update("DELETE FROM chat_tb WHERE id >= 900001");
+		jdbcTemplate.update("DELETE FROM lead_tb WHERE id = 900001");
+		for (YearMonth month : retentionService.partitions()) {
+			if (month.isBefore(YearMonth.now())) jdbcTemplate.execute("DROP TABLE message_tb_y" + month.getYear() + "m" + String.format("%02d", month.getMonthValue()));
+		}
+		for (YearMonth month : retentionService.archivedPartitions()) {
+			jdbcTemplate.execute("DROP TABLE message_tb_a" + month.getYear() + "m" + String.format("%02d", month.getMonthValue()));
+		}
+		FileSystemUtils.deleteRecursively(ARCHIVE_DIR);
+	}
+
+	@Test
+	void expiredMonthIsArchivedAndDropped() throws IOException {
+		retentionService.applyRetention(NOW);
+
+		List<YearMonth> partitions = retentionService.partitions();
+		assertFalse(partitions.contains(OLD_MONTH));
+		assertFalse(partitions.contains(OLD_MONTH.plusMonths(1)));
+		// Março termina depois do corte (90 dias antes de 01/06 = 03/03), então fica
+		assertTrue(partitions.contains(OLD_MONTH.plusMonths(2)));
+
+		// 40 mensagens anônimas no arquivo, mais o cabeçalho
+		assertEquals(41, readArchive("message_tb_y2024m01.csv.gz").size());
+		assertEquals(0, countMessages(900001));
+	}
+
+	@Test
+	void messagesOfLeadSessionsAreKeptInArchivedPartitionOfTheirMonth() {
+		retentionService.applyRetention(NOW);
+
+		assertEquals(10, countMessages(900002));
+		assertEquals(List.of(OLD_MONTH), retentionService.archivedPartitions());
+		assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message_tb_a2024m01 WHERE session_id = 900002", Integer.class));
+		assertEquals(4, countMessages(900003));
+	}
+
+	@Test
+	void archivedMessagesAreRemovedOnceTheirSessionExpires() throws IOException {
+		// Sessão anônima com mensagens em janeiro, mas com interação recente: fica na partição arquivada
+		insertSession(900004, "anonymous-returning", null, "2024-05-20 10:00");
+		insertMessages(900004, "2024-01-20 10:00", 3);
+		retentionService.applyRetention(NOW);
+		assertEquals(3, countMessages(900004));
+
+		LocalDateTime later = LocalDateTime.of(2024, 9, 1, 3, 30);
+		retentionService.applyRetention(later);
+
+		assertEquals(0, countMessages(900004));
+		assertEquals(10, countMessages(900002));
+		assertEquals(4, readArchive("message_tb_a2024m01_20240901T033000.csv.gz").size());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_tb WHERE id = 900004", Integer.class));
+	}
+
+	@Test
+	void anonymousExpiredSessionsAreArchivedAndDeleted() throws IOException {
+		retentionService.applyRetention(NOW);
+
+		List<String> sessions = jdbcTemplate.queryForList("SELECT session_id FROM chat_tb WHERE id >= 900001 ORDER BY id", String.class);
+		assertEquals(List.of("lead-old", "anonymous-recent"), sessions);
+
+		List<String> archived = readArchive("chat_tb_20240601T033000.csv.gz");
+		assertEquals(2, archived.size());
+		assertTrue(archived.get(1).contains("anonymous-old"));
+	}
+
+	@Test
+	void runningAgainIsHarmless() {
+		retentionService.applyRetention(NOW);
+		retentionService.applyRetention(NOW);
+
+		assertEquals(10, countMessages(900002));
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_tb WHERE id >= 900001", Integer.class));
+	}
+
+	@Test
+	void partitionThatCannotBeCreatedFailsLoudly() {
+		retentionService.applyRetention(NOW);
+
+		// Janeiro já tem a partição arquivada, então a do mês não pode mais ser criada
+		assertThrows(IllegalStateException.class, () -> retentionService.ensurePartitions(OLD_MONTH));
+	}
+
+	@Test
+	void archivedTableLeftByAFailedRunIsRebuilt() {
+		// A execução anterior caiu depois de preencher a arquivada e antes do DETACH
+		jdbcTemplate.execute("CREATE TABLE message_tb_a2024m01 (LIKE message_tb INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+		jdbcTemplate.update("INSERT INTO message_tb_a2024m01 SELECT * FROM message_tb WHERE session_id = 900002");
+
+		retentionService.applyRetention(NOW);
+
+		assertEquals(List.of(OLD_MONTH), retentionService.archivedPartitions());
+		assertEquals(10, countMessages(900002));
+	}
+
+	private void insertSession(long id, String sessionId, Long leadId, String lastInteraction) {
+		jdbcTemplate.update("INSERT INTO chat_tb (id, session_id, lead_id, created_at, last_interaction) VALUES (?, ?, ?, ?::timestamp, ?::timestamp)",
+				id, sessionId, leadId, lastInteraction, lastInteraction);
+	}
+
+	private void insertMessages(long sessionPk, String start, int count) {
+		jdbcTemplate.update("""
+				INSERT INTO message_tb (id, sender, content, created_at, session_id)
+				SELECT nextval('message_tb_seq'), 'USER', 'mensagem ' || g, ?::timestamp + g * interval '1 second', ?
+				FROM generate_series(1, ?) g""", start, sessionPk, count);
+	}
+
+	private int countMessages(long sessionPk) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM message_tb WHERE session_id = ?", Integer.class, sessionPk);
+	}
+
+	private static List<String> readArchive(String name) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(ARCHIVE_DIR.resolve(name)))))) {
+			return reader.lines().toList();
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.chat.AIResponseDTO;
+import com.verzel.challenge.dto.chat.MessageDTO;
+import com.verzel.challenge.dto.chat.ResponseDTO;
+import com.verzel.challenge.dto.pipefy.Lead;
+import com.verzel.challenge.entity.LeadEntity;
+import com.verzel.challenge.entity.PipefyOutboxEntity;
+import com.verzel.challenge.metrics.ChatMetrics;
+import com.verzel.challenge.metrics.TurnTrace;
+import com.verzel.challenge.repository.ChatSessionRepository;
+import com.verzel.challenge.repository.EmbeddedPostgresTest;
+import com.verzel.challenge.repository.LeadRepository;
+import com.verzel.challenge.repository.MessageRepository;
+import com.verzel.challenge.repository.PipefyOutboxRepository;
+import com.verzel.challenge.resilience.Bulkhead;
+import com.verzel.challenge.resilience.BulkheadFullException;
+import com.verzel.challenge.type.ActionAI;
+import com.verzel.challenge.type.ResponseAction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChatServiceTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private LeadRepository leadRepository;
+	@Autowired
+	private ChatSessionRepository chatSessionRepository;
+	@Autowired
+	private MessageRepository messageRepository;
+	@Autowired
+	private PipefyOutboxRepository outboxRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final Queue<Lead> assistantLeads = new ArrayDeque<>();
+	private final List<Lead> promptLeads = new ArrayList<>();
+	private Runnable duringTurn = () -> {};
+	// No modo reativo, a resposta da OpenAI fica presa até o teste emitir nele
+	private Sinks.One<AIResponseDTO> heldResponse;
+	private final AtomicInteger leadSaves = new AtomicInteger();
+	private ChatService chatService;
+
+	@BeforeEach
+	void setUp() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		// A OpenAI devolve, a cada turno, a próxima ficha do lead da fila
+		OpenAIService openAIService = new OpenAIService("token", "http://localhost", "sdr-v2", "dto",
+				new Bulkhead("openai", 1, Duration.ofMillis(50)), registry, new ObjectMapper(), null, WebClient.builder(), null) {
+			private int turn;
+
+			@Override
+			public AIResponseDTO askAssistant(String previousResponseId, String chainPromptVersion, String question, Lead lead) {
+				promptLeads.add(lead);
+				duringTurn.run();
+				return new AIResponseDTO("resp-" + ++turn, "Anotado!", assistantLeads.remove(), ActionAI.registrarLead);
+			}
+
+			@Override
+			Mono<AIResponseDTO> requestAssistant(String previousResponseId, String chainPromptVersion, String question, Lead lead) {
+				if (heldResponse != null) return heldResponse.asMono();
+				return Mono.fromCallable(() -> askAssistant(previousResponseId, chainPromptVersion, question, lead));
+			}
+		};
+		LeadRepository countingLeads = (LeadRepository) Proxy.newProxyInstance(LeadRepository.class.getClassLoader(),
+				new Class<?>[]{LeadRepository.class}, (proxy, method, args) -> {
+					if (method.getName().equals("save")) leadSaves.incrementAndGet();
+					try {
+						return method.invoke(leadRepository, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+		chatService = new ChatService(openAIService, new PipefyOutboxService(outboxRepository), null, chatSessionRepository,
+				countingLeads, new MessageWriteBuffer(messageRepository, "sync", 200, 200, 100), null, Schedulers.immediate(),
+				transactionTemplate, new SessionTurnSerializer(), new ChatSessionCache(100, 30, registry), new ChatMetrics(registry));
+	}
+
+	@Test
+	void repeatedLeadIsNotSavedAgainAndOnlyChangedFieldsGoToTheOutbox() {
+		assistantLeads.add(new Lead("Ana", "ana@x.com", null, null, null));
+		assistantLeads.add(new Lead("Ana", "ana@x.com", null, null, null));
+		assistantLeads.add(new Lead("Ana", "ana@x.com", "ACME", "CRM", null));
+
+		turn("Sou a Ana, ana@x.com");
+		assertEquals(List.of("CREATE_CARD:null", "UPDATE_FIELDS:NAME"), outbox());
+		int savesAfterFirstTurn = leadSaves.get();
+
+		turn("Isso mesmo");
+		assertEquals(savesAfterFirstTurn, leadSaves.get(), "turno sem alteração gravou o lead");
+		assertEquals(List.of("CREATE_CARD:null", "UPDATE_FIELDS:NAME"), outbox());
+
+		turn("Trabalho na ACME e preciso de um CRM");
+		assertEquals(savesAfterFirstTurn + 1, leadSaves.get());
+		assertEquals(List.of("CREATE_CARD:null", "UPDATE_FIELDS:NAME", "UPDATE_FIELDS:COMPANY,NECESSITY"), outbox());
+		assertEquals("ACME", leadRepository.findByEmailIgnoreCase("ana@x.com").orElseThrow().getCompany());
+	}
+
+	@Test
+	void cachedSessionSeesLeadChangesMadeOutsideTheTurn() {
+		assistantLeads.add(new Lead("Ana", "ana@x.com", null, null, null));
+		assistantLeads.add(new Lead("Ana", "ana@x.com", "ACME", "CRM", null));
+		turn("Sou a Ana, ana@x.com");
+
+		// Entre os turnos, o webhook do Calendly grava o link da reunião e o time corrige a empresa
+		LeadEntity lead = leadRepository.findByEmailIgnoreCase("ana@x.com").orElseThrow();
+		lead.setMeetingLink("https://meet/ana");
+		lead.setCompany("ACME");
+		leadRepository.saveAndFlush(lead);
+
+		turn("Preciso de um CRM");
+		assertEquals("ACME", promptLeads.get(1).getEmpresa(), "o turno usou o lead do cache");
+		LeadEntity saved = leadRepository.findByEmailIgnoreCase("ana@x.com").orElseThrow();
+		assertEquals("https://meet/ana", saved.getMeetingLink());
+		assertEquals("CRM", saved.getNecessity());
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void leadUpdateDoesNotOverwriteColumnsWrittenDuringTheTurn() {
+		try {
+			assistantLeads.add(new Lead("Bia", "bia@x.com", null, null, null));
+			assistantLeads.add(new Lead("Bia", "bia@x.com", "ACME", null, null));
+			turn("Sou a Bia, bia@x.com");
+
+			// O webhook do Calendly grava o link da reunião enquanto a IA responde
+			duringTurn = () -> jdbcTemplate.update("UPDATE lead_tb SET meeting_link = 'https://meet/bia' WHERE email = 'bia@x.com'");
+			turn("Trabalho na ACME");
+
+			LeadEntity saved = leadRepository.findByEmailIgnoreCase("bia@x.com").orElseThrow();
+			assertEquals("https://meet/bia", saved.getMeetingLink());
+			assertEquals("ACME", saved.getCompany());
+		} finally {
+			jdbcTemplate.update("DELETE FROM message_tb WHERE session_id IN (SELECT id FROM chat_tb WHERE session_id = 'session-1')");
+			jdbcTemplate.update("DELETE FROM chat_tb WHERE session_id = 'session-1'");
+			jdbcTemplate.update("DELETE FROM pipefy_outbox WHERE lead_id IN (SELECT id FROM lead_tb WHERE email = 'bia@x.com')");
+			jdbcTemplate.update("DELETE FROM lead_tb WHERE email = 'bia@x.com'");
+		}
+	}
+
+	@Test
+	void reactiveTurnRegistersTheLeadLikeTheBlockingOne() {
+		assistantLeads.add(new Lead("Ana", "ana@x.com", null, null, null));
+		assistantLeads.add(new Lead("Ana", "ana@x.com", "ACME", null, null));
+
+		ResponseDTO response = reactiveTurn("session-1", "Sou a Ana, ana@x.com").block();
+		reactiveTurn("session-1", "Trabalho na ACME").block();
+
+		assertEquals(ResponseAction.talk, response.action());
+		assertEquals("Anotado!", response.message());
+		assertEquals(List.of("CREATE_CARD:null", "UPDATE_FIELDS:NAME", "UPDATE_FIELDS:COMPANY"), outbox());
+		assertEquals("resp-2", jdbcTemplate.queryForObject("SELECT previous_response_id FROM chat_tb WHERE session_id = 'session-1'", String.class));
+		assertEquals(4, messageRepository.count());
+	}
+
+	@Test
+	void reactiveTurnsShareTheOpenAIBulkhead() {
+		assistantLeads.add(new Lead(null, null, null, null, null));
+		heldResponse = Sinks.one();
+		CompletableFuture<ResponseDTO> first = reactiveTurn("session-1", "Oi").toFuture();
+
+		// A única permissão está com o primeiro turno, que espera a OpenAI
+		assertThrows(BulkheadFullException.class, () -> reactiveTurn("session-2", "Oi").block());
+
+		heldResponse.tryEmitValue(new AIResponseDTO("resp-1", "Olá!", assistantLeads.remove(), null));
+		assertEquals("Olá!", first.join().message());
+		heldResponse = null;
+		assistantLeads.add(new Lead(null, null, null, null, null));
+		assertEquals("Anotado!", reactiveTurn("session-2", "Oi").block().message());
+	}
+
+	private Mono<ResponseDTO> reactiveTurn(String sessionId, String message) {
+		return chatService.handleMessageReactive(new MessageDTO(message), sessionId, TurnTrace.start("reactive", null, sessionId));
+	}
+
+	private void turn(String message) {
+		chatService.handleMessage(new MessageDTO(message), "session-1", TurnTrace.start("blocking", null, "session-1"));
+	}
+
+	private List<String> outbox() {
+		return outboxRepository.findAll().stream()
+				.sorted(Comparator.comparing(PipefyOutboxEntity::getId))
+				.map(entry -> entry.getOperation() + ":" + entry.getPayload())
+				.toList();
+	}
+}
@@ -0,0 +1,94 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.entity.MessageEntity;
+import com.verzel.challenge.repository.MessageRepository;
+import com.verzel.challenge.type.Sender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageWriteBufferTest {
+
+	private final List<String> saved = new CopyOnWriteArrayList<>();
+	private final AtomicInteger failures = new AtomicInteger();
+	private volatile boolean databaseDown;
+	private MessageWriteBuffer writeBuffer;
+
+	@BeforeEach
+	void setUp() {
+		MessageRepository repository = (MessageRepository) Proxy.newProxyInstance(MessageRepository.class.getClassLoader(),
+				new Class<?>[]{MessageRepository.class}, (proxy, method, args) -> {
+					if (!method.getName().equals("saveAll")) throw new UnsupportedOperationException(method.getName());
+					if (databaseDown) {
+						failures.incrementAndGet();
+						throw new DataAccessResourceFailureException("banco fora do ar");
+					}
+					@SuppressWarnings("unchecked")
+					List<MessageEntity> messages = (List<MessageEntity>) args[0];
+					messages.forEach(message -> saved.add(message.getContent()));
+					return messages;
+				});
+		writeBuffer = new MessageWriteBuffer(repository, "async", 200, 20, 100);
+		writeBuffer.start();
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		writeBuffer.stop();
+	}
+
+	@Test
+	void failedBatchIsHeldAndWrittenBeforeLaterTurns() throws InterruptedException {
+		databaseDown = true;
+		writeBuffer.store(turn("a"));
+		// As 3 tentativas do lote e a primeira nova tentativa do lote retido
+		waitFor(() -> failures.get() >= 4);
+
+		// Com um lote retido o turno não entra no buffer: é gravado na hora e falha junto com o banco
+		assertThrows(DataAccessResourceFailureException.class, () -> writeBuffer.store(turn("b")));
+
+		databaseDown = false;
+		writeBuffer.store(turn("c"));
+		waitFor(() -> saved.size() == 4);
+
+		assertEquals(List.of("a-user", "a-assistant", "c-user", "c-assistant"), saved);
+		assertEquals(0, writeBuffer.pending());
+	}
+
+	@Test
+	void bufferedTurnsResumeAfterTheDatabaseComesBack() throws InterruptedException {
+		databaseDown = true;
+		writeBuffer.store(turn("a"));
+		waitFor(() -> failures.get() >= 3);
+
+		databaseDown = false;
+		waitFor(() -> saved.size() == 2);
+		writeBuffer.store(turn("b"));
+		waitFor(() -> saved.size() == 4);
+
+		assertEquals(List.of("a-user", "a-assistant", "b-user", "b-assistant"), saved);
+	}
+
+	private static List<MessageEntity> turn(String name) {
+		return List.of(new MessageEntity(Sender.USER, name + "-user", null), new MessageEntity(Sender.ASSISTANT, name + "-assistant", null));
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "condição não atingida em 5s");
+			Thread.sleep(5);
+		}
+	}
+}
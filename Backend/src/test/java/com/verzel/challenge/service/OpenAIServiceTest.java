@@ -0,0 +1,89 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verzel.challenge.dto.chat.AIResponseBodyDTO;
+import com.verzel.challenge.dto.pipefy.Lead;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.parser.AIResponseDecoder;
+import com.verzel.challenge.resilience.Bulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenAIServiceTest {
+
+	private static final String VERSION = "sdr-v2";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final OpenAIService service = new OpenAIService("token", "http://localhost", VERSION, "dto", new Bulkhead("openai", 1, Duration.ofSeconds(1)), registry,
+			mapper, new AIResponseDecoder(mapper), WebClient.builder(), new ExternalCallMetrics(registry));
+
+	@Test
+	void newChainStartsWithTheStaticPromptAndNoInstructions() {
+		Map<String, Object> body = service.buildRequestBody(null, null, "Oi", new Lead(), false);
+		List<Map<String, String>> input = input(body);
+
+		assertEquals(3, input.size());
+		assertEquals("developer", input.get(0).get("role"));
+		assertTrue(input.get(0).get("content").startsWith("Você é um SDR"));
+		assertTrue(input.get(1).get("content").startsWith("ESTADO ATUAL DO LEAD:"));
+		assertEquals(Map.of("role", "user", "content", "Oi"), input.get(2));
+		assertNull(body.get("instructions"));
+		assertNull(body.get("previous_response_id"));
+		assertEquals(VERSION, body.get("prompt_cache_key"));
+	}
+
+	@Test
+	void promptPrefixIsIdenticalForEveryLead() {
+		String first = input(service.buildRequestBody(null, null, "Oi", new Lead("Ana", "ana@a.com", "A", null, null), false)).get(0).get("content");
+		String second = input(service.buildRequestBody(null, null, "Olá", new Lead("Bruno", null, null, null, null), false)).get(0).get("content");
+
+		assertSame(first, second);
+		assertFalse(first.contains("%s"));
+		assertFalse(first.contains("Ana"));
+	}
+
+	@Test
+	void continuingChainSendsOnlyLeadStateAndQuestion() {
+		Map<String, Object> body = service.buildRequestBody("resp_1", VERSION, "Meu nome é Ana", new Lead("Ana", null, null, null, null), false);
+		List<Map<String, String>> input = input(body);
+
+		assertEquals("resp_1", body.get("previous_response_id"));
+		assertNull(body.get("instructions"));
+		assertEquals(2, input.size());
+		assertTrue(input.get(0).get("content").contains("\"nome\":\"Ana\""));
+	}
+
+	@Test
+	void chainFromAnotherPromptVersionStillGetsInstructions() {
+		Map<String, Object> body = service.buildRequestBody("resp_1", null, "Oi", new Lead(), false);
+
+		assertTrue(((String) body.get("instructions")).startsWith("Você é um SDR"));
+		assertEquals(2, input(body).size());
+	}
+
+	@Test
+	void usageIsRecordedIncludingCachedTokens() {
+		service.recordUsage(new AIResponseBodyDTO.Usage(2_000L, 80L, new AIResponseBodyDTO.InputTokensDetails(1_792L)));
+
+		assertEquals(2_000, registry.get("openai.tokens").tag("type", "input").counter().count());
+		assertEquals(1_792, registry.get("openai.tokens").tag("type", "cached").counter().count());
+		assertEquals(80, registry.get("openai.tokens").tag("type", "output").counter().count());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Map<String, String>> input(Map<String, Object> body) {
+		return (List<Map<String, String>>) body.get("input");
+	}
+}
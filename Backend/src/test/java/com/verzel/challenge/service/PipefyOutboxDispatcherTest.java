@@ -0,0 +1,205 @@
+package com.verzel.challenge.service;
+
+import com.verzel.challenge.entity.LeadEntity;
+import com.verzel.challenge.entity.PipefyOutboxEntity;
+import com.verzel.challenge.repository.EmbeddedPostgresTest;
+import com.verzel.challenge.repository.LeadRepository;
+import com.verzel.challenge.repository.PipefyOutboxRepository;
+import com.verzel.challenge.type.LeadField;
+import com.verzel.challenge.type.OutboxStatus;
+import com.verzel.challenge.type.PipefyOperation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipefyOutboxDispatcherTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private LeadRepository leadRepository;
+	@Autowired
+	private PipefyOutboxRepository outboxRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Integer> requestSizes = new CopyOnWriteArrayList<>();
+	// Chamadas ao Pipefy na ordem: criações de card e o conteúdo de cada requisição de atualização
+	private final List<String> calls = new CopyOnWriteArrayList<>();
+	private final List<Set<LeadField>> changedFields = new CopyOnWriteArrayList<>();
+	private PipefyOutboxDispatcher dispatcher;
+
+	@BeforeEach
+	void setUp() {
+		// O Pipefy rejeita o documento inteiro sempre que ele contém a atualização do card "bad", e está fora do ar
+		// para o card "down"
+		PipefyService pipefy = new PipefyService(null, null, null, null, null, null) {
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public String createCardWithEmail(String email) {
+				calls.add("createCard(" + email + ")");
+				return "card-" + email;
+			}
+
+			@Override
+			public List<String> cardFieldsUpdates(String cardId, String nome, String email, String company, String necessidade,
+												  Boolean interesse, Set<LeadField> changed) {
+				changedFields.add(changed);
+				return List.of("update(" + cardId + ")");
+			}
+
+			@Override
+			public String cardMeetingUpdate(String cardId, String meetingLink, String meetingTimeUtc) {
+				return "meeting(" + cardId + ")";
+			}
+
+			@Override
+			public Map<String, Boolean> updateFieldsValues(Map<String, String> updatesByAlias) {
+				requestSizes.add(updatesByAlias.size());
+				calls.add(String.join(", ", updatesByAlias.values()));
+				if (updatesByAlias.containsValue("update(bad)")) {
+					throw new IllegalStateException("Pipefy rejeitou o documento: [{\"message\":\"Parse error\"}]");
+				}
+				if (updatesByAlias.containsValue("update(down)")) {
+					throw new IllegalStateException("Pipefy fora do ar");
+				}
+				return updatesByAlias.keySet().stream().collect(Collectors.toMap(alias -> alias, alias -> true));
+			}
+		};
+		dispatcher = new PipefyOutboxDispatcher(outboxRepository, leadRepository, pipefy);
+		ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+		ReflectionTestUtils.setField(dispatcher, "maxAttempts", 10);
+		ReflectionTestUtils.setField(dispatcher, "backoffBaseMs", 60_000L);
+		ReflectionTestUtils.setField(dispatcher, "backoffMaxMs", 60_000L);
+		ReflectionTestUtils.setField(dispatcher, "maxUpdatesPerRequest", 50);
+	}
+
+	@Test
+	void rejectedDocumentFallsBackToOneRequestPerLead() {
+		List<Long> leads = new ArrayList<>();
+		for (String card : List.of("1", "bad", "3")) {
+			LeadEntity lead = new LeadEntity(card + "@x.com");
+			lead.setCardId(card);
+			leads.add(leadRepository.save(lead).getId());
+		}
+		leads.forEach(id -> outboxRepository.save(new PipefyOutboxEntity(id, PipefyOperation.UPDATE_FIELDS, null)));
+
+		dispatcher.dispatch();
+
+		assertEquals(List.of(3, 1, 1, 1), requestSizes);
+		List<PipefyOutboxEntity> left = outboxRepository.findAll();
+		assertEquals(1, left.size());
+		assertEquals(leads.get(1), left.get(0).getLeadId());
+		assertEquals(1, left.get(0).getAttempts());
+	}
+
+	@Test
+	void pendingUpdatesOfALeadCollapseIntoOneWithEveryChangedField() {
+		Long lead = lead("1");
+		enqueue(lead, PipefyOperation.UPDATE_FIELDS, "NAME");
+		enqueue(lead, PipefyOperation.UPDATE_FIELDS, "COMPANY");
+		enqueue(lead, PipefyOperation.UPDATE_FIELDS, "NAME,NECESSITY");
+
+		dispatcher.dispatch();
+
+		assertEquals(List.of("update(1)"), calls);
+		assertEquals(List.of(EnumSet.of(LeadField.NAME, LeadField.COMPANY, LeadField.NECESSITY)), changedFields);
+		assertTrue(outboxRepository.findAll().isEmpty());
+	}
+
+	@Test
+	void cardIsCreatedBeforeItIsUpdated() {
+		Long lead = lead(null);
+		enqueue(lead, PipefyOperation.CREATE_CARD, null);
+		enqueue(lead, PipefyOperation.UPDATE_FIELDS, "NAME");
+
+		dispatcher.dispatch();
+
+		assertEquals(List.of("createCard(novo@x.com)", "update(card-novo@x.com)"), calls);
+		assertEquals("card-novo@x.com", jdbcTemplate.queryForObject("SELECT card_id FROM lead_tb WHERE id = ?", String.class, lead));
+		assertTrue(outboxRepository.findAll().isEmpty());
+	}
+
+	@Test
+	void meetingAndFieldsAreSentInTheOrderTheyHappened() {
+		Long scheduledThenChanged = lead("1");
+		Long changedThenScheduled = lead("2");
+		enqueue(scheduledThenChanged, PipefyOperation.UPDATE_MEETING, "2024-06-03T13:00:00Z");
+		enqueue(changedThenScheduled, PipefyOperation.UPDATE_FIELDS, "INTERESTED");
+		enqueue(scheduledThenChanged, PipefyOperation.UPDATE_FIELDS, "INTERESTED");
+		enqueue(changedThenScheduled, PipefyOperation.UPDATE_MEETING, "2024-06-03T14:00:00Z");
+
+		dispatcher.dispatch();
+
+		assertEquals(List.of("meeting(1), update(1), update(2), meeting(2)"), calls);
+	}
+
+	@Test
+	void failedEntryIsRescheduledWithExponentialBackoff() {
+		ReflectionTestUtils.setField(dispatcher, "backoffBaseMs", 1_000L);
+		ReflectionTestUtils.setField(dispatcher, "backoffMaxMs", 5_000L);
+		enqueue(lead("down"), PipefyOperation.UPDATE_FIELDS, "NAME");
+
+		for (long expected : new long[]{1_000, 2_000, 4_000, 5_000, 5_000}) {
+			LocalDateTime before = LocalDateTime.now();
+			dispatcher.dispatch();
+			PipefyOutboxEntity entry = outboxRepository.findAll().get(0);
+
+			assertEquals(OutboxStatus.PENDING, entry.getStatus());
+			assertEquals("Pipefy fora do ar", entry.getLastError());
+			long delay = Duration.between(before, entry.getNextAttemptAt()).toMillis();
+			assertTrue(delay >= expected && delay < expected + 1_000, "tentativa " + entry.getAttempts() + ": " + delay + " ms");
+			makeDue(entry);
+		}
+	}
+
+	@Test
+	void entryIsMarkedFailedAfterMaxAttempts() {
+		ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+		enqueue(lead("down"), PipefyOperation.UPDATE_FIELDS, "NAME");
+
+		for (int i = 0; i < 3; i++) {
+			dispatcher.dispatch();
+			makeDue(outboxRepository.findAll().get(0));
+		}
+		dispatcher.dispatch();
+
+		PipefyOutboxEntity entry = outboxRepository.findAll().get(0);
+		assertEquals(OutboxStatus.FAILED, entry.getStatus());
+		assertEquals(3, entry.getAttempts());
+		// A entrada com falha não é mais enviada
+		assertEquals(3, calls.size());
+	}
+
+	private Long lead(String cardId) {
+		LeadEntity lead = new LeadEntity((cardId == null ? "novo" : cardId) + "@x.com");
+		lead.setCardId(cardId);
+		return leadRepository.save(lead).getId();
+	}
+
+	private void enqueue(Long leadId, PipefyOperation operation, String payload) {
+		outboxRepository.save(new PipefyOutboxEntity(leadId, operation, payload));
+	}
+
+	private void makeDue(PipefyOutboxEntity entry) {
+		entry.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+		outboxRepository.save(entry);
+	}
+}
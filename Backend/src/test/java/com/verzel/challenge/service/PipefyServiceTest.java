@@ -0,0 +1,204 @@
+package com.verzel.challenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.verzel.challenge.metrics.ExternalCallMetrics;
+import com.verzel.challenge.resilience.Bulkhead;
+import com.verzel.challenge.type.LeadField;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipefyServiceTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final List<String> mutations = new CopyOnWriteArrayList<>();
+	private final List<String> queries = new CopyOnWriteArrayList<>();
+	private volatile String updateResponse;
+	private HttpServer server;
+	private PipefyService service;
+	@TempDir
+	Path cacheDir;
+
+	@BeforeEach
+	void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/graphql", exchange -> {
+			String query = mapper.readTree(exchange.getRequestBody()).path("query").asText();
+			if (query.contains("start_form_fields")) {
+				respond(exchange, """
+						{"data":{"pipe":{"start_form_fields":[{"id":"nome","label":"Nome"},{"id":"email","label":"E-mail"},
+						 {"id":"empresa","label":"Empresa"},{"id":"necessidade","label":"Necessidade"},{"id":"interessado","label":"Interessado"},
+						 {"id":"link","label":"Link da Reunião"},{"id":"hora","label":"Hora da Reunião"}]}}}""");
+			} else if (query.contains("phases")) {
+				respond(exchange, "{\"data\":{\"pipe\":{\"phases\":[{\"id\":\"7\",\"name\":\"Pré-Vendas\"}]}}}");
+			} else if (query.contains("allCards")) {
+				queries.add("allCards");
+				respond(exchange, query.contains("after:") ? """
+						{"data":{"allCards":{"pageInfo":{"hasNextPage":false,"endCursor":null},
+						 "edges":[{"node":{"id":"202","fields":[{"name":"E-mail","value":"Bia@x.com"}]}}]}}}""" : """
+						{"data":{"allCards":{"pageInfo":{"hasNextPage":true,"endCursor":"c1"},
+						 "edges":[{"node":{"id":"201","fields":[{"name":"Nome","value":"Ana"},{"name":"E-mail","value":"ana@x.com"}]}}]}}}""");
+			} else if (query.contains("findCards")) {
+				queries.add("findCards");
+				// Card criado no Pipefy depois da importação do índice
+				respond(exchange, query.contains("externo@x.com")
+						? "{\"data\":{\"findCards\":{\"edges\":[{\"node\":{\"id\":\"401\",\"fields\":[]}}]}}}"
+						: "{\"data\":{\"findCards\":{\"edges\":[]}}}");
+			} else if (query.contains("createCard")) {
+				queries.add("createCard");
+				respond(exchange, "{\"data\":{\"createCard\":{\"card\":{\"id\":\"301\"}}}}");
+			} else {
+				mutations.add(query);
+				respond(exchange, updateResponse);
+			}
+		});
+		server.start();
+
+		service = newService(cacheDir);
+		service.init();
+		service.ready().block(Duration.ofSeconds(5));
+	}
+
+	@AfterEach
+	void stop() {
+		service.shutdown();
+		server.stop(0);
+	}
+
+	private PipefyService newService(Path dir) {
+		PipefyService pipefy = new PipefyService(new Bulkhead("pipefy", 4, Duration.ofSeconds(1)), mapper, WebClient.builder(),
+				new ExternalCallMetrics(new SimpleMeterRegistry()), new PipefyCardIndex(), new MetadataCache(mapper, dir));
+		ReflectionTestUtils.setField(pipefy, "pipefyToken", "token");
+		ReflectionTestUtils.setField(pipefy, "pipefyPipeId", "1");
+		ReflectionTestUtils.setField(pipefy, "pipefyBaseUrl", "http://localhost:" + server.getAddress().getPort());
+		return pipefy;
+	}
+
+	@Test
+	void restartWhilePipefyIsDownStartsFromTheLocalCopy(@TempDir Path emptyDir) {
+		server.stop(0);
+
+		PipefyService cold = newService(emptyDir);
+		cold.init();
+		PipefyService warm = newService(cacheDir);
+		warm.init();
+
+		assertFalse(cold.isReady());
+		assertTrue(warm.isReady());
+		List<String> updates = warm.cardFieldsUpdates("101", "Ana", "ana@x.com", "ACME", "CRM", true, EnumSet.of(LeadField.COMPANY));
+		assertTrue(updates.get(0).contains("{ fieldId: \"empresa\", value: \"ACME\" }"), updates.get(0));
+		cold.shutdown();
+		warm.shutdown();
+	}
+
+	@Test
+	void updatesOfSeveralCardsGoInOneAliasedDocument() {
+		updateResponse = """
+				{"data":{"lead1_0":{"success":true},"lead2_0":null},
+				 "errors":[{"message":"Card não encontrado","path":["lead2_0"]}]}""";
+		Map<String, String> updates = new LinkedHashMap<>();
+		updates.put("lead1_0", service.cardMeetingUpdate("101", "https://meet/1", "2030-01-02T13:00:00Z"));
+		updates.put("lead2_0", service.cardMeetingUpdate("102", "https://meet/2", null));
+
+		Map<String, Boolean> results = service.updateFieldsValues(updates);
+
+		assertEquals(Map.of("lead1_0", true, "lead2_0", false), results);
+		assertEquals(1, mutations.size());
+		assertTrue(mutations.get(0).matches("(?s)mutation \\{\\s+lead1_0: updateFieldsValues.*nodeId: \"101\".*lead2_0: updateFieldsValues.*nodeId: \"102\".*"),
+				mutations.get(0));
+		assertEquals("updateFieldsValues", PipefyService.operationName(mutations.get(0)));
+	}
+
+	@Test
+	void lostInterestClearsTheMeetingInTheSameRequest() {
+		updateResponse = "{\"data\":{\"update0\":{\"success\":true},\"update1\":{\"success\":true}}}";
+
+		assertTrue(service.updateCardFields("101", "Ana", "ana@x.com", "ACME", "CRM", false));
+		assertEquals(1, mutations.size());
+		String mutation = mutations.get(0);
+		assertTrue(mutation.indexOf("fieldId: \"link\", value: \"\"") < mutation.indexOf("fieldId: \"interessado\", value: \"Não\""), mutation);
+
+		updateResponse = "{\"data\":{\"update0\":{\"success\":true},\"update1\":{\"success\":false}}}";
+		assertFalse(service.updateCardFields("101", "Ana", "ana@x.com", "ACME", "CRM", false));
+	}
+
+	@Test
+	void onlyChangedFieldsAreSent() {
+		List<String> updates = service.cardFieldsUpdates("101", "Ana", "ana@x.com", "ACME", "CRM", false,
+				LeadField.parse(LeadField.format(EnumSet.of(LeadField.COMPANY, LeadField.NECESSITY))));
+
+		assertEquals(1, updates.size());
+		assertTrue(updates.get(0).contains("{ fieldId: \"empresa\", value: \"ACME\" }"), updates.get(0));
+		assertTrue(updates.get(0).contains("{ fieldId: \"necessidade\", value: \"CRM\" }"), updates.get(0));
+		assertFalse(updates.get(0).contains("nome") || updates.get(0).contains("interessado"), updates.get(0));
+		assertEquals(EnumSet.allOf(LeadField.class), LeadField.parse(null));
+	}
+
+	@Test
+	void freeTextIsEscapedAndARejectedDocumentIsAnError() {
+		List<String> updates = service.cardFieldsUpdates("101", "Ana", "ana@x.com", "ACME", "Planilha \"V2\" em C:\\dados\nurgente",
+				true, EnumSet.of(LeadField.NECESSITY));
+		assertTrue(updates.get(0).contains("value: \"Planilha \\\"V2\\\" em C:\\\\dados\\nurgente\" }"), updates.get(0));
+
+		updateResponse = "{\"data\":null,\"errors\":[{\"message\":\"Parse error\"}]}";
+		IllegalStateException error = assertThrows(IllegalStateException.class,
+				() -> service.updateFieldsValues(Map.of("lead1_0", updates.get(0))));
+		assertTrue(error.getMessage().contains("Parse error"), error.getMessage());
+	}
+
+	@Test
+	void importedCardIndexSkipsTheSearchBeforeCreatingCards() {
+		assertEquals("301", service.createCardWithEmail("novo@x.com"));
+		assertEquals(List.of("findCards", "createCard"), queries);
+		queries.clear();
+
+		assertEquals(2, service.importCardIndex());
+		assertEquals("201", service.createCardWithEmail("ANA@x.com"));
+		assertEquals("202", service.createCardWithEmail("bia@x.com"));
+		assertEquals("301", service.createCardWithEmail("outro@x.com"));
+		assertEquals("301", service.createCardWithEmail("outro@x.com"));
+
+		assertEquals(List.of("allCards", "allCards", "findCards", "createCard"), queries);
+	}
+
+	@Test
+	void emailMissingFromTheImportedIndexIsSearchedBeforeCreatingACard() {
+		assertEquals(2, service.importCardIndex());
+		queries.clear();
+
+		assertEquals("401", service.createCardWithEmail("externo@x.com"));
+		assertEquals("401", service.createCardWithEmail("externo@x.com"));
+
+		assertEquals(List.of("findCards"), queries);
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		exchange.getResponseBody().write(bytes);
+		exchange.close();
+	}
+}
@@ -0,0 +1,190 @@
+package com.verzel.challenge.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionTurnSerializerTest {
+
+	private static final int TURNS = 200;
+
+	/**
+	 * Simula o ChatSessionEntity: cada turno lê o previousResponseId, "chama a OpenAI" e grava o novo id.
+	 * Se dois turnos rodarem ao mesmo tempo, ambos leem o mesmo id e a cadeia bifurca.
+	 */
+	private static class FakeSession {
+		volatile String previousResponseId;
+		final List<String[]> links = Collections.synchronizedList(new ArrayList<>());
+		final AtomicInteger inFlight = new AtomicInteger();
+		volatile int maxInFlight;
+
+		String turn(int n) {
+			int now = inFlight.incrementAndGet();
+			maxInFlight = Math.max(maxInFlight, now);
+			String read = previousResponseId;
+			sleepQuietly();
+			String written = "resp-" + n;
+			previousResponseId = written;
+			links.add(new String[]{read, written});
+			inFlight.decrementAndGet();
+			return written;
+		}
+	}
+
+	@Test
+	void concurrentBlockingTurnsOnOneSessionFormALinearChain() throws Exception {
+		SessionTurnSerializer serializer = new SessionTurnSerializer();
+		FakeSession session = new FakeSession();
+		ExecutorService pool = Executors.newFixedThreadPool(32);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+
+		for (int i = 0; i < TURNS; i++) {
+			int n = i;
+			results.add(pool.submit(() -> {
+				start.await();
+				return serializer.runInOrder("session-1", () -> session.turn(n));
+			}));
+		}
+		start.countDown();
+		for (Future<String> result : results) result.get(30, TimeUnit.SECONDS);
+		pool.shutdown();
+
+		assertLinear(session);
+		assertEquals(0, serializer.activeSessions());
+	}
+
+	@Test
+	void concurrentReactiveTurnsOnOneSessionFormALinearChain() {
+		SessionTurnSerializer serializer = new SessionTurnSerializer();
+		FakeSession session = new FakeSession();
+
+		Flux.range(0, TURNS)
+				.flatMap(n -> serializer.runInOrderAsync("session-1", () -> Mono.fromCallable(() -> session.turn(n)))
+						.subscribeOn(Schedulers.parallel()), TURNS)
+				.blockLast(Duration.ofSeconds(30));
+
+		assertLinear(session);
+		assertEquals(0, serializer.activeSessions());
+	}
+
+	@Test
+	void differentSessionsDoNotWaitForEachOther() throws Exception {
+		SessionTurnSerializer serializer = new SessionTurnSerializer();
+		CountDownLatch otherSessionRan = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+
+		// O turno da sessão A só termina depois que um turno da sessão B rodar
+		Future<Boolean> a = pool.submit(() -> serializer.runInOrder("A", () -> awaitQuietly(otherSessionRan)));
+		Future<?> b = pool.submit(() -> serializer.runInOrder("B", () -> {
+			otherSessionRan.countDown();
+			return null;
+		}));
+
+		b.get(5, TimeUnit.SECONDS);
+		assertTrue(a.get(5, TimeUnit.SECONDS));
+		pool.shutdown();
+	}
+
+	@Test
+	void cancellingAQueuedTurnDoesNotLetTheNextOneSkipAhead() throws Exception {
+		SessionTurnSerializer serializer = new SessionTurnSerializer();
+		CompletableFuture<String> firstTurn = new CompletableFuture<>();
+		AtomicBoolean secondRan = new AtomicBoolean();
+		CountDownLatch thirdStarted = new CountDownLatch(1);
+
+		serializer.enqueue("session-1", () -> Mono.fromFuture(firstTurn)).subscribe();
+		Disposable second = serializer.enqueue("session-1", () -> Mono.fromRunnable(() -> secondRan.set(true))).subscribe();
+		Mono<Void> third = serializer.enqueue("session-1", () -> Mono.<Void>fromRunnable(thirdStarted::countDown)).then();
+		third.subscribe();
+
+		second.dispose();
+		assertFalse(thirdStarted.await(200, TimeUnit.MILLISECONDS), "turno 3 começou antes do turno 1 terminar");
+
+		firstTurn.complete("resp-1");
+		assertTrue(thirdStarted.await(5, TimeUnit.SECONDS));
+		assertFalse(secondRan.get(), "turno cancelado na fila rodou");
+	}
+
+	@Test
+	void cancelledTurnHoldsTheSessionUntilItsBlockingWorkEnds() throws Exception {
+		SessionTurnSerializer serializer = new SessionTurnSerializer();
+		CountDownLatch firstStarted = new CountDownLatch(1);
+		CountDownLatch finishFirst = new CountDownLatch(1);
+		AtomicBoolean firstFinished = new AtomicBoolean();
+		CountDownLatch secondStarted = new CountDownLatch(1);
+
+		Disposable first = serializer.enqueue("session-1", () -> Mono.fromCallable(() -> {
+			firstStarted.countDown();
+			awaitQuietly(finishFirst);
+			firstFinished.set(true);
+			return "resp-1";
+		}).subscribeOn(Schedulers.boundedElastic())).subscribe();
+		assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+		first.dispose();
+
+		serializer.enqueue("session-1", () -> Mono.fromRunnable(secondStarted::countDown)).subscribe();
+		assertFalse(secondStarted.await(200, TimeUnit.MILLISECONDS), "turno 2 rodou junto com o turno 1 cancelado");
+
+		finishFirst.countDown();
+		assertTrue(secondStarted.await(5, TimeUnit.SECONDS));
+		assertTrue(firstFinished.get());
+		assertEquals(0, waitForIdle(serializer));
+	}
+
+	private static void assertLinear(FakeSession session) {
+		assertEquals(1, session.maxInFlight, "turnos da mesma sessão rodaram em paralelo");
+		assertEquals(TURNS, session.links.size());
+
+		// Cada turno leu exatamente o id gravado pelo turno anterior, sem bifurcações
+		HashSet<String> readIds = new HashSet<>();
+		String expectedPrevious = null;
+		for (String[] link : session.links) {
+			assertEquals(expectedPrevious, link[0]);
+			assertTrue(readIds.add(String.valueOf(link[0])), "previousResponseId lido por dois turnos");
+			expectedPrevious = link[1];
+		}
+	}
+
+	private static void sleepQuietly() {
+		try {
+			Thread.sleep(1);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static int waitForIdle(SessionTurnSerializer serializer) throws InterruptedException {
+		for (int i = 0; i < 50 && serializer.activeSessions() > 0; i++) Thread.sleep(10);
+		return serializer.activeSessions();
+	}
+
+	private static boolean awaitQuietly(CountDownLatch latch) {
+		try {
+			return latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}